@@ -0,0 +1,30 @@
+package com.structurizr.export.benchmark;
+
+import com.structurizr.Workspace;
+import com.structurizr.export.WorkspaceGenerator;
+import com.structurizr.util.WorkspaceUtils;
+
+import java.io.File;
+
+/**
+ * The workspaces used by the benchmarks; either one of the test workspaces ("36141" or "54915"),
+ * or a generated workspace with approximately the given number of elements (e.g. "synthetic-10000").
+ */
+final class BenchmarkWorkspaces {
+
+    private static final String SYNTHETIC_PREFIX = "synthetic-";
+
+    private static final long SYNTHETIC_SEED = 1;
+
+    private BenchmarkWorkspaces() {
+    }
+
+    static Workspace load(String name) throws Exception {
+        if (name.startsWith(SYNTHETIC_PREFIX)) {
+            return WorkspaceGenerator.ofSize(Integer.parseInt(name.substring(SYNTHETIC_PREFIX.length())), SYNTHETIC_SEED).generate();
+        } else {
+            return WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-" + name + "-workspace.json"));
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.structurizr.export.benchmark;
+
+import com.structurizr.Workspace;
+import com.structurizr.export.AbstractDiagramExporter;
+import com.structurizr.export.Diagram;
+import com.structurizr.export.dot.DOTExporter;
+import com.structurizr.export.mermaid.MermaidDiagramExporter;
+import com.structurizr.export.plantuml.C4PlantUMLExporter;
+import com.structurizr.export.plantuml.StructurizrPlantUMLExporter;
+import com.structurizr.export.websequencediagrams.WebSequenceDiagramsExporter;
+import com.structurizr.view.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures the throughput of each diagram exporter, for each type of view.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DiagramExporterBenchmark {
+
+    @Param({ "StructurizrPlantUML", "C4PlantUML", "Mermaid", "DOT", "WebSequenceDiagrams" })
+    public String exporter;
+
+    @Param({ "36141", "54915", "synthetic-1000", "synthetic-10000", "synthetic-50000" })
+    public String workspace;
+
+    @Param({ "SystemLandscape", "SystemContext", "Container", "Component", "Dynamic", "Deployment" })
+    public String viewType;
+
+    private List<Supplier<Diagram>> exports;
+
+    @Setup
+    public void setup() throws Exception {
+        AbstractDiagramExporter diagramExporter = createExporter(exporter);
+        Workspace workspace = BenchmarkWorkspaces.load(this.workspace);
+        exports = new ArrayList<>();
+
+        switch (viewType) {
+            case "SystemLandscape":
+                for (SystemLandscapeView view : workspace.getViews().getSystemLandscapeViews()) {
+                    exports.add(() -> diagramExporter.export(view));
+                }
+                break;
+            case "SystemContext":
+                for (SystemContextView view : workspace.getViews().getSystemContextViews()) {
+                    exports.add(() -> diagramExporter.export(view));
+                }
+                break;
+            case "Container":
+                for (ContainerView view : workspace.getViews().getContainerViews()) {
+                    exports.add(() -> diagramExporter.export(view));
+                }
+                break;
+            case "Component":
+                for (ComponentView view : workspace.getViews().getComponentViews()) {
+                    exports.add(() -> diagramExporter.export(view));
+                }
+                break;
+            case "Dynamic":
+                for (DynamicView view : workspace.getViews().getDynamicViews()) {
+                    exports.add(() -> diagramExporter.export(view));
+                }
+                break;
+            case "Deployment":
+                for (DeploymentView view : workspace.getViews().getDeploymentViews()) {
+                    exports.add(() -> diagramExporter.export(view));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown view type: " + viewType);
+        }
+    }
+
+    @Benchmark
+    public void export(Blackhole blackhole) {
+        for (Supplier<Diagram> export : exports) {
+            blackhole.consume(export.get());
+        }
+    }
+
+    static AbstractDiagramExporter createExporter(String name) {
+        switch (name) {
+            case "StructurizrPlantUML":
+                return new StructurizrPlantUMLExporter();
+            case "C4PlantUML":
+                return new C4PlantUMLExporter();
+            case "Mermaid":
+                return new MermaidDiagramExporter();
+            case "DOT":
+                return new DOTExporter();
+            case "WebSequenceDiagrams":
+                return new WebSequenceDiagramsExporter();
+            default:
+                throw new IllegalArgumentException("Unknown exporter: " + name);
+        }
+    }
+
+}
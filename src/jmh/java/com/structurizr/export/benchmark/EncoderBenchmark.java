@@ -0,0 +1,72 @@
+package com.structurizr.export.benchmark;
+
+import com.structurizr.Workspace;
+import com.structurizr.export.Diagram;
+import com.structurizr.export.mermaid.MermaidDiagramExporter;
+import com.structurizr.export.mermaid.MermaidEncoder;
+import com.structurizr.export.plantuml.PlantUMLEncoder;
+import com.structurizr.export.plantuml.StructurizrPlantUMLExporter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Measures the throughput of encoding the diagram definitions for a workspace, using the PlantUML and Mermaid encoders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EncoderBenchmark {
+
+    @Param({ "36141", "54915", "synthetic-1000", "synthetic-10000", "synthetic-50000" })
+    public String workspace;
+
+    private final List<String> plantUMLDefinitions = new ArrayList<>();
+    private final List<String> mermaidDefinitions = new ArrayList<>();
+
+    private final PlantUMLEncoder plantUMLEncoder = new PlantUMLEncoder();
+    private final PlantUMLEncoder plantUMLEncoderWithDefaultCompression = new PlantUMLEncoder(Deflater.DEFAULT_COMPRESSION);
+    private final MermaidEncoder mermaidEncoder = new MermaidEncoder();
+
+    @Setup
+    public void setup() throws Exception {
+        Workspace workspace = BenchmarkWorkspaces.load(this.workspace);
+
+        for (Diagram diagram : new StructurizrPlantUMLExporter().export(workspace)) {
+            plantUMLDefinitions.add(diagram.getDefinition());
+        }
+
+        for (Diagram diagram : new MermaidDiagramExporter().export(workspace)) {
+            mermaidDefinitions.add(diagram.getDefinition());
+        }
+    }
+
+    @Benchmark
+    public void plantUMLEncoder(Blackhole blackhole) throws Exception {
+        for (String definition : plantUMLDefinitions) {
+            blackhole.consume(plantUMLEncoder.encode(definition));
+        }
+    }
+
+    @Benchmark
+    public void plantUMLEncoderWithDefaultCompression(Blackhole blackhole) throws Exception {
+        for (String definition : plantUMLDefinitions) {
+            blackhole.consume(plantUMLEncoderWithDefaultCompression.encode(definition));
+        }
+    }
+
+    @Benchmark
+    public void mermaidEncoder(Blackhole blackhole) {
+        for (String definition : mermaidDefinitions) {
+            blackhole.consume(mermaidEncoder.encode(definition));
+        }
+    }
+
+}
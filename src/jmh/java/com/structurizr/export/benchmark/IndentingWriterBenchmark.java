@@ -0,0 +1,100 @@
+package com.structurizr.export.benchmark;
+
+import com.structurizr.export.IndentingWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput (and, with the GC profiler, the allocation rate) of writing indented lines
+ * with an IndentingWriter, to a reused sink so that only the writer's own allocations are measured.
+ * The legacy* benchmarks write the same lines with {@link LegacyIndentingWriter}, the previous implementation,
+ * so the allocation reduction can be seen by comparing gc.alloc.rate.norm (bytes per operation), e.g.
+ * ./gradlew jmh -PjmhArgs="IndentingWriterBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class IndentingWriterBenchmark {
+
+    private static final int LINES = 1000;
+
+    private static final String LINE = "Software System -> Container : \"Makes API calls using\" <<Relationship>>";
+    private static final String LINE_WITH_NEWLINES = "rectangle \"==Software System\\n<size:10>[Software System]</size>\\n\\nDescription\" <<Element>>";
+
+    @Param({ "0", "2", "8" })
+    public int depth;
+
+    private final StringBuilder out = new StringBuilder(1024 * 1024);
+
+    @Benchmark
+    public void writeLine(Blackhole blackhole) {
+        out.setLength(0);
+        IndentingWriter writer = createWriter();
+
+        for (int i = 0; i < LINES; i++) {
+            writer.writeLine(LINE);
+        }
+
+        blackhole.consume(out.length());
+    }
+
+    @Benchmark
+    public void writeLineWithNewlines(Blackhole blackhole) {
+        out.setLength(0);
+        IndentingWriter writer = createWriter();
+
+        for (int i = 0; i < LINES; i++) {
+            writer.writeLine(LINE_WITH_NEWLINES);
+        }
+
+        blackhole.consume(out.length());
+    }
+
+    @Benchmark
+    public void legacyWriteLine(Blackhole blackhole) {
+        out.setLength(0);
+        LegacyIndentingWriter writer = createLegacyWriter();
+
+        for (int i = 0; i < LINES; i++) {
+            writer.writeLine(LINE);
+        }
+
+        blackhole.consume(out.length());
+    }
+
+    @Benchmark
+    public void legacyWriteLineWithNewlines(Blackhole blackhole) {
+        out.setLength(0);
+        LegacyIndentingWriter writer = createLegacyWriter();
+
+        for (int i = 0; i < LINES; i++) {
+            writer.writeLine(LINE_WITH_NEWLINES);
+        }
+
+        blackhole.consume(out.length());
+    }
+
+    private LegacyIndentingWriter createLegacyWriter() {
+        LegacyIndentingWriter writer = new LegacyIndentingWriter(out);
+        for (int i = 0; i < depth; i++) {
+            writer.indent();
+        }
+
+        return writer;
+    }
+
+    private IndentingWriter createWriter() {
+        IndentingWriter writer = new IndentingWriter(out);
+        for (int i = 0; i < depth; i++) {
+            writer.indent();
+        }
+
+        return writer;
+    }
+
+}
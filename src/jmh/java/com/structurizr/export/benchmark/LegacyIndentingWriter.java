@@ -0,0 +1,44 @@
+package com.structurizr.export.benchmark;
+
+import com.structurizr.export.IndentType;
+
+/**
+ * The IndentingWriter line writing as it was before it was made allocation-free (a padding String built per line,
+ * String.replace for newlines and String.format), kept as the baseline for {@link IndentingWriterBenchmark}.
+ * The only difference is that lines are written to the given StringBuilder, so that both writers write to the same sink.
+ */
+final class LegacyIndentingWriter {
+
+    private int indent = 0;
+    private IndentType indentType = IndentType.Spaces;
+    private int indentQuantity = 2;
+
+    private final StringBuilder buf;
+
+    LegacyIndentingWriter(StringBuilder buf) {
+        this.buf = buf;
+    }
+
+    void indent() {
+        indent++;
+    }
+
+    private String padding() {
+        StringBuilder buf = new StringBuilder();
+
+        for (int i = 0; i < indent * indentQuantity; i++) {
+            if (indentType == IndentType.Spaces) {
+                buf.append(" ");
+            } else {
+                buf.append("\t");
+            }
+        }
+
+        return buf.toString();
+    }
+
+    void writeLine(String content) {
+        buf.append(String.format("%s%s\n", padding(), content.replace("\n", "\\n")));
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.structurizr.export.benchmark;
+
+import com.structurizr.Workspace;
+import com.structurizr.export.AbstractDiagramExporter;
+import com.structurizr.export.ilograph.IlographExporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Measures the throughput of exporting an entire workspace, with each diagram exporter and the Ilograph exporter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WorkspaceExporterBenchmark {
+
+    @Param({ "StructurizrPlantUML", "C4PlantUML", "Mermaid", "DOT", "WebSequenceDiagrams", "Ilograph" })
+    public String exporter;
+
+    @Param({ "36141", "54915", "synthetic-1000", "synthetic-10000", "synthetic-50000" })
+    public String workspace;
+
+    private Workspace workspaceToExport;
+    private Function<Workspace, Object> export;
+
+    @Setup
+    public void setup() throws Exception {
+        workspaceToExport = BenchmarkWorkspaces.load(workspace);
+
+        if ("Ilograph".equals(exporter)) {
+            IlographExporter ilographExporter = new IlographExporter();
+            export = ilographExporter::export;
+        } else {
+            AbstractDiagramExporter diagramExporter = DiagramExporterBenchmark.createExporter(exporter);
+            export = diagramExporter::export;
+        }
+    }
+
+    @Benchmark
+    public Object export() {
+        return export.apply(workspaceToExport);
+    }
+
+}
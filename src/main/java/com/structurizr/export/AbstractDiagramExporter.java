@@ -5,12 +5,29 @@ import com.structurizr.model.*;
 import com.structurizr.util.StringUtils;
 import com.structurizr.view.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public abstract class AbstractDiagramExporter extends AbstractExporter implements DiagramExporter {
 
-    private Object frame = null;
+    /**
+     * The name of the model property that defines the separator used for nested groups (e.g. "/" for "Team/Subteam").
+     */
+    public static final String GROUP_SEPARATOR_PROPERTY_NAME = "structurizr.groupSeparator";
+
+    private volatile Executor frameExecutor;
+    private volatile ExportListener exportListener;
 
     /**
      * Exports all views in the workspace.
@@ -24,134 +41,786 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
         }
 
         Collection<Diagram> diagrams = new ArrayList<>();
+        exportTo(workspace, diagrams::add);
+
+        return diagrams;
+    }
+
+    /**
+     * Exports all views in the workspace, using a style resolver that may be shared with other exporters
+     * (see {@link StyleResolver#forWorkspace(Workspace)}), so that styles are only resolved once per workspace.
+     *
+     * @param workspace         the workspace containing the views to be written
+     * @param styleResolver     a style resolver for the workspace
+     * @return  a collection of diagram definitions, one per view
+     */
+    public final Collection<Diagram> export(Workspace workspace, StyleResolver styleResolver) {
+        Collection<Diagram> diagrams = new ArrayList<>();
+        exportTo(workspace, styleResolver, diagrams::add);
 
-        for (CustomView view : workspace.getViews().getCustomViews()) {
-            Diagram diagram = export(view);
+        return diagrams;
+    }
+
+    /**
+     * Exports all views in the workspace, passing each diagram to the consumer as soon as it has been rendered.
+     * Diagrams are passed in the same order as {@link #export(Workspace)}, and no reference is kept to them afterwards.
+     *
+     * @param workspace     the workspace containing the views to be written
+     * @param consumer      the consumer that receives each diagram
+     */
+    public final void exportTo(Workspace workspace, Consumer<Diagram> consumer) {
+        if (workspace == null) {
+            throw new IllegalArgumentException("A workspace must be provided.");
+        }
+
+        exportTo(workspace, new StyleResolver(workspace.getViews().getConfiguration().getStyles()), consumer);
+    }
+
+    /**
+     * Exports all views in the workspace, passing each diagram to the consumer as soon as it has been rendered,
+     * and using a style resolver that may be shared with other exporters (see {@link StyleResolver#forWorkspace(Workspace)}).
+     *
+     * @param workspace         the workspace containing the views to be written
+     * @param styleResolver     a style resolver for the workspace
+     * @param consumer          the consumer that receives each diagram
+     */
+    public final void exportTo(Workspace workspace, StyleResolver styleResolver, Consumer<Diagram> consumer) {
+        if (workspace == null) {
+            throw new IllegalArgumentException("A workspace must be provided.");
+        }
+
+        if (styleResolver == null || !styleResolver.isFor(workspace.getViews().getConfiguration().getStyles())) {
+            throw new IllegalArgumentException("A style resolver for the workspace must be provided.");
+        }
+
+        if (consumer == null) {
+            throw new IllegalArgumentException("A consumer must be provided.");
+        }
+
+        for (Supplier<Diagram> task : createExportTasks(workspace, styleResolver)) {
+            Diagram diagram = task.get();
             if (diagram != null) {
-                diagrams.add(diagram);
+                consumer.accept(diagram);
             }
         }
+    }
 
-        for (SystemLandscapeView view : workspace.getViews().getSystemLandscapeViews()) {
-            Diagram diagram = export(view);
+    /**
+     * Exports all views in the workspace, rendering the views concurrently using the specified executor
+     * (e.g. ForkJoinPool.commonPool()). Diagrams are returned in the same order as {@link #export(Workspace)}.
+     *
+     * @param workspace     the workspace containing the views to be written
+     * @param executor      the executor used to render views
+     * @return  a collection of diagram definitions, one per view
+     */
+    public final Collection<Diagram> export(Workspace workspace, Executor executor) {
+        Collection<Diagram> diagrams = new ArrayList<>();
+        exportTo(workspace, executor, diagrams::add);
+
+        return diagrams;
+    }
+
+    /**
+     * Exports all views in the workspace, rendering the views concurrently using the specified executor
+     * (e.g. ForkJoinPool.commonPool()), and passing each diagram to the consumer on the calling thread, in the same
+     * order as {@link #export(Workspace)}, as soon as it and the diagrams before it have been rendered.
+     *
+     * @param workspace     the workspace containing the views to be written
+     * @param executor      the executor used to render views
+     * @param consumer      the consumer that receives each diagram
+     */
+    public final void exportTo(Workspace workspace, Executor executor, Consumer<Diagram> consumer) {
+        if (workspace == null) {
+            throw new IllegalArgumentException("A workspace must be provided.");
+        }
+
+        if (executor == null) {
+            throw new IllegalArgumentException("An executor must be provided.");
+        }
+
+        if (consumer == null) {
+            throw new IllegalArgumentException("A consumer must be provided.");
+        }
+
+        List<CompletableFuture<Diagram>> futures = new ArrayList<>();
+        for (Supplier<Diagram> task : createExportTasks(workspace, new StyleResolver(workspace.getViews().getConfiguration().getStyles()))) {
+            futures.add(CompletableFuture.supplyAsync(task, executor));
+        }
+
+        for (CompletableFuture<Diagram> future : futures) {
+            Diagram diagram = join(future);
             if (diagram != null) {
-                diagrams.add(diagram);
+                consumer.accept(diagram);
             }
         }
+    }
 
-        for (SystemContextView view : workspace.getViews().getSystemContextViews()) {
-            Diagram diagram = export(view);
-            if (diagram != null) {
-                diagrams.add(diagram);
+    /**
+     * Exports the views in the workspace whose inputs have changed since the previous export recorded in the manifest.
+     * A fingerprint is calculated for every view (see {@link #fingerprint(View, Fingerprint)}), and views with
+     * the same fingerprint as last time are skipped; their keys are available from
+     * {@link ExportManifest#getReusedViewKeys()}. The manifest is updated with the new fingerprints, and views that
+     * no longer exist are removed from it.
+     *
+     * @param workspace     the workspace containing the views to be written
+     * @param manifest      the manifest from the previous export (empty for the first export)
+     * @return  a collection of diagram definitions, one per changed view
+     */
+    public final Collection<Diagram> export(Workspace workspace, ExportManifest manifest) {
+        if (workspace == null) {
+            throw new IllegalArgumentException("A workspace must be provided.");
+        }
+
+        if (manifest == null) {
+            throw new IllegalArgumentException("A manifest must be provided.");
+        }
+
+        StyleResolver styleResolver = new StyleResolver(workspace.getViews().getConfiguration().getStyles());
+        Map<String, String> fingerprints = new TreeMap<>();
+        Set<String> reusedViewKeys = new TreeSet<>();
+        List<View> changedViews = new ArrayList<>();
+
+        for (View view : getViewsToExport(workspace)) {
+            Fingerprint fingerprint = new Fingerprint();
+            fingerprint(view, fingerprint);
+            fingerprints.put(view.getKey(), fingerprint.getValue());
+
+            if (fingerprint.getValue().equals(manifest.getFingerprint(view.getKey()))) {
+                reusedViewKeys.add(view.getKey());
+            } else {
+                changedViews.add(view);
             }
         }
 
-        for (ContainerView view : workspace.getViews().getContainerViews()) {
-            Diagram diagram = export(view);
+        prepareExport(changedViews, styleResolver);
+
+        Collection<Diagram> diagrams = new ArrayList<>();
+        for (View view : changedViews) {
+            Diagram diagram = export(view, styleResolver);
             if (diagram != null) {
                 diagrams.add(diagram);
             }
         }
 
-        for (ComponentView view : workspace.getViews().getComponentViews()) {
-            Diagram diagram = export(view);
-            if (diagram != null) {
-                diagrams.add(diagram);
+        manifest.update(fingerprints, reusedViewKeys);
+
+        return diagrams;
+    }
+
+    private List<Supplier<Diagram>> createExportTasks(Workspace workspace, StyleResolver styleResolver) {
+        List<View> views = getViewsToExport(workspace);
+        prepareExport(views, styleResolver);
+
+        List<Supplier<Diagram>> tasks = new ArrayList<>();
+        for (View view : views) {
+            tasks.add(() -> export(view, styleResolver));
+        }
+
+        return tasks;
+    }
+
+    /**
+     * Called before the views in a workspace are rendered (by the methods that export a workspace),
+     * so that subclasses can load anything that rendering the views needs in one go; this does nothing by default.
+     *
+     * @param views             the views that are about to be rendered
+     * @param styleResolver     the style resolver used to render the views
+     */
+    protected void prepareExport(List<View> views, StyleResolver styleResolver) {
+    }
+
+    /**
+     * Gets the views in a workspace that are exported by the methods that export a workspace, in the order that
+     * they are exported.
+     *
+     * @param workspace     a Workspace
+     * @return  a List of views
+     */
+    public static List<View> getViewsToExport(Workspace workspace) {
+        List<View> views = new ArrayList<>();
+
+        views.addAll(workspace.getViews().getCustomViews());
+        views.addAll(workspace.getViews().getSystemLandscapeViews());
+        views.addAll(workspace.getViews().getSystemContextViews());
+        views.addAll(workspace.getViews().getContainerViews());
+        views.addAll(workspace.getViews().getComponentViews());
+        views.addAll(workspace.getViews().getDynamicViews());
+        views.addAll(workspace.getViews().getDeploymentViews());
+
+        return views;
+    }
+
+    // the style resolver reaches every render of the view (and its legend) via the view index
+    private Diagram export(View view, StyleResolver styleResolver) {
+        ViewIndex viewIndex = new ViewIndex(view, styleResolver);
+
+        if (view instanceof CustomView) {
+            return export((CustomView)view, viewIndex);
+        } else if (view instanceof SystemLandscapeView) {
+            return export((SystemLandscapeView)view, viewIndex);
+        } else if (view instanceof SystemContextView) {
+            return export((SystemContextView)view, viewIndex);
+        } else if (view instanceof ContainerView) {
+            return export((ContainerView)view, viewIndex);
+        } else if (view instanceof ComponentView) {
+            return export((ComponentView)view, viewIndex);
+        } else if (view instanceof DynamicView) {
+            return export((DynamicView)view, viewIndex);
+        } else if (view instanceof DeploymentView) {
+            return export((DeploymentView)view, viewIndex);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Adds everything that affects the diagram definitions for a view to its fingerprint; the view and its
+     * animations, the elements and relationships (including the parents of elements) with their resolved styles
+     * and terminology, the styles of the groups they are in, the view set configuration, and the type of exporter. Subclasses with additional settings
+     * should override this method to add them.
+     *
+     * @param view          the view being exported
+     * @param fingerprint   the fingerprint to add to
+     */
+    protected void fingerprint(View view, Fingerprint fingerprint) {
+        fingerprint.add("exporter", getClass().getName());
+
+        fingerprint.add("view.type", view.getClass().getName());
+        fingerprint.add("view.key", view.getKey());
+        fingerprint.add("view.name", view.getName());
+        fingerprint.add("view.title", view.getTitle());
+        fingerprint.add("view.description", view.getDescription());
+        fingerprint.add("view.properties", view.getProperties());
+
+        if (view.getAutomaticLayout() != null) {
+            fingerprint.add("view.automaticLayout.rankDirection", view.getAutomaticLayout().getRankDirection());
+            fingerprint.add("view.automaticLayout.rankSeparation", view.getAutomaticLayout().getRankSeparation());
+            fingerprint.add("view.automaticLayout.nodeSeparation", view.getAutomaticLayout().getNodeSeparation());
+            fingerprint.add("view.automaticLayout.edgeSeparation", view.getAutomaticLayout().getEdgeSeparation());
+            fingerprint.add("view.automaticLayout.vertices", view.getAutomaticLayout().isVertices());
+        }
+
+        if (view instanceof SystemLandscapeView) {
+            fingerprint.add("view.enterpriseBoundaryVisible", ((SystemLandscapeView)view).isEnterpriseBoundaryVisible());
+        } else if (view instanceof SystemContextView) {
+            fingerprint.add("view.enterpriseBoundaryVisible", ((SystemContextView)view).isEnterpriseBoundaryVisible());
+        } else if (view instanceof ContainerView) {
+            fingerprint.add("view.externalBoundariesVisible", ((ContainerView)view).getExternalSoftwareSystemBoundariesVisible());
+        } else if (view instanceof ComponentView) {
+            fingerprint.add("view.externalBoundariesVisible", ((ComponentView)view).getExternalContainerBoundariesVisible());
+        } else if (view instanceof DynamicView) {
+            fingerprint.add("view.externalBoundariesVisible", ((DynamicView)view).getExternalBoundariesVisible());
+            fingerprint.add("view.element", ((DynamicView)view).getElement() != null ? ((DynamicView)view).getElement().getId() : null);
+        }
+
+        if (view instanceof StaticView) {
+            for (Animation animation : ((StaticView)view).getAnimations()) {
+                fingerprint(animation, fingerprint);
+            }
+        } else if (view instanceof DeploymentView) {
+            for (Animation animation : ((DeploymentView)view).getAnimations()) {
+                fingerprint(animation, fingerprint);
             }
         }
 
-        for (DynamicView view : workspace.getViews().getDynamicViews()) {
-            Diagram diagram = export(view);
-            if (diagram != null) {
-                diagrams.add(diagram);
+        Configuration configuration = view.getViewSet().getConfiguration();
+        fingerprint.add("configuration.properties", configuration.getProperties());
+        fingerprint.add("configuration.metadataSymbols", configuration.getMetadataSymbols());
+        if (configuration.getBranding() != null && configuration.getBranding().getFont() != null) {
+            fingerprint.add("configuration.branding.font.name", configuration.getBranding().getFont().getName());
+            fingerprint.add("configuration.branding.font.url", configuration.getBranding().getFont().getUrl());
+        }
+
+        if (view.getModel().getEnterprise() != null) {
+            fingerprint.add("model.enterprise", view.getModel().getEnterprise().getName());
+        }
+
+        String groupSeparator = view.getModel().getProperties().get(GROUP_SEPARATOR_PROPERTY_NAME);
+        fingerprint.add("model.groupSeparator", groupSeparator);
+
+        // elements are sorted by ID, so the fingerprint doesn't depend on set iteration order
+        Map<String, Element> elements = new TreeMap<>();
+        for (ElementView elementView : view.getElements()) {
+            Element element = elementView.getElement();
+            while (element != null && !elements.containsKey(element.getId())) {
+                elements.put(element.getId(), element);
+
+                if (element instanceof StaticStructureElementInstance) {
+                    Element instanceOf = ((StaticStructureElementInstance)element).getElement();
+                    elements.put(instanceOf.getId(), instanceOf);
+                }
+
+                element = element.getParent();
             }
         }
 
-        for (DeploymentView view : workspace.getViews().getDeploymentViews()) {
-            Diagram diagram = export(view);
-            if (diagram != null) {
-                diagrams.add(diagram);
+        for (Element element : elements.values()) {
+            fingerprint(view, element, fingerprint);
+        }
+
+        // group boundaries are drawn with the "Group:<name>" style, falling back to the "Group" style (see startGroupBoundary)
+        Set<String> groups = new TreeSet<>();
+        for (Element element : elements.values()) {
+            if (element instanceof GroupableElement && !StringUtils.isNullOrEmpty(((GroupableElement)element).getGroup())) {
+                String group = ((GroupableElement)element).getGroup();
+                groups.add(group);
+
+                // and the groups that a nested group is drawn inside (e.g. "Team" for "Team/Subteam"), as per writeElements
+                if (!StringUtils.isNullOrEmpty(groupSeparator)) {
+                    int to = group.indexOf(groupSeparator);
+                    while (to > -1) {
+                        groups.add(group.substring(0, to));
+                        to = group.indexOf(groupSeparator, to + groupSeparator.length());
+                    }
+                }
             }
         }
 
-        return diagrams;
+        if (!groups.isEmpty()) {
+            Styles styles = configuration.getStyles();
+            fingerprint("Group", styles.findElementStyle("Group"), fingerprint);
+            for (String group : groups) {
+                fingerprint("Group:" + group, styles.findElementStyle("Group:" + group), fingerprint);
+            }
+        }
+
+        List<RelationshipView> relationshipViews = new ArrayList<>(view.getRelationships());
+        relationshipViews.sort(Comparator.comparing(RelationshipView::getId).thenComparing(rv -> String.valueOf(rv.getOrder())));
+        for (RelationshipView relationshipView : relationshipViews) {
+            fingerprint(view, relationshipView, fingerprint);
+        }
     }
 
-    public Diagram export(CustomView view) {
-        Diagram diagram = export(view, null);
+    private void fingerprint(Animation animation, Fingerprint fingerprint) {
+        fingerprint.add("animation.order", animation.getOrder());
+        fingerprint.add("animation.elements", new TreeSet<>(animation.getElements()));
+        fingerprint.add("animation.relationships", new TreeSet<>(animation.getRelationships()));
+    }
 
-        if (isAnimationSupported(view) && !view.getAnimations().isEmpty()) {
-            for (Animation animation : view.getAnimations()) {
-                Diagram frame = export(view, animation.getOrder());
-                diagram.addFrame(frame);
+    private void fingerprint(View view, Element element, Fingerprint fingerprint) {
+        fingerprint.add("element.type", element.getClass().getName());
+        fingerprint.add("element.id", element.getId());
+        fingerprint.add("element.name", element.getName());
+        fingerprint.add("element.canonicalName", element.getCanonicalName());
+        fingerprint.add("element.description", element.getDescription());
+        fingerprint.add("element.metadata", typeOf(view, element, true));
+        fingerprint.add("element.tags", element.getTags());
+        fingerprint.add("element.url", element.getUrl());
+        fingerprint.add("element.properties", element.getProperties());
+        fingerprint.add("element.parent", element.getParent() != null ? element.getParent().getId() : null);
+
+        if (element instanceof GroupableElement) {
+            fingerprint.add("element.group", ((GroupableElement)element).getGroup());
+        }
+
+        if (element instanceof Person) {
+            fingerprint.add("element.location", ((Person)element).getLocation());
+        } else if (element instanceof SoftwareSystem) {
+            fingerprint.add("element.location", ((SoftwareSystem)element).getLocation());
+        } else if (element instanceof DeploymentNode) {
+            fingerprint.add("element.instances", ((DeploymentNode)element).getInstances());
+        } else if (element instanceof StaticStructureElementInstance) {
+            fingerprint.add("element.instanceId", ((StaticStructureElementInstance)element).getInstanceId());
+        }
+
+        if (element instanceof DeploymentElement) {
+            fingerprint.add("element.environment", ((DeploymentElement)element).getEnvironment());
+        }
+
+        ElementStyle style = findElementStyle(view, element);
+        fingerprint.add("element.style.tag", style.getTag());
+        fingerprint.add("element.style.width", style.getWidth());
+        fingerprint.add("element.style.height", style.getHeight());
+        fingerprint.add("element.style.background", style.getBackground());
+        fingerprint.add("element.style.color", style.getColor());
+        fingerprint.add("element.style.stroke", style.getStroke());
+        fingerprint.add("element.style.shape", style.getShape());
+        fingerprint.add("element.style.icon", style.getIcon());
+        fingerprint.add("element.style.fontSize", style.getFontSize());
+        fingerprint.add("element.style.metadata", style.getMetadata());
+        fingerprint.add("element.style.description", style.getDescription());
+        fingerprint.add("element.style.properties", style.getProperties());
+    }
+
+    private void fingerprint(String tag, ElementStyle style, Fingerprint fingerprint) {
+        fingerprint.add("group.style.tag", tag);
+        if (style != null) {
+            fingerprint.add("group.style.color", style.getColor());
+            fingerprint.add("group.style.background", style.getBackground());
+            fingerprint.add("group.style.stroke", style.getStroke());
+            fingerprint.add("group.style.properties", style.getProperties());
+        }
+    }
+
+    private void fingerprint(View view, RelationshipView relationshipView, Fingerprint fingerprint) {
+        Relationship relationship = relationshipView.getRelationship();
+
+        fingerprint.add("relationship.id", relationship.getId());
+        fingerprint.add("relationship.source", relationship.getSourceId());
+        fingerprint.add("relationship.destination", relationship.getDestinationId());
+        fingerprint.add("relationship.description", relationship.getDescription());
+        fingerprint.add("relationship.technology", relationship.getTechnology());
+        fingerprint.add("relationship.interactionStyle", relationship.getInteractionStyle());
+        fingerprint.add("relationship.tags", relationship.getTags());
+        fingerprint.add("relationship.url", relationship.getUrl());
+        fingerprint.add("relationship.properties", relationship.getProperties());
+
+        fingerprint.add("relationshipView.description", relationshipView.getDescription());
+        fingerprint.add("relationshipView.order", relationshipView.getOrder());
+        fingerprint.add("relationshipView.response", relationshipView.isResponse());
+
+        RelationshipStyle style = findRelationshipStyle(view, relationship);
+        fingerprint.add("relationship.style.tag", style.getTag());
+        fingerprint.add("relationship.style.thickness", style.getThickness());
+        fingerprint.add("relationship.style.color", style.getColor());
+        fingerprint.add("relationship.style.style", style.getStyle());
+        fingerprint.add("relationship.style.dashed", style.getDashed());
+        fingerprint.add("relationship.style.fontSize", style.getFontSize());
+        fingerprint.add("relationship.style.width", style.getWidth());
+        fingerprint.add("relationship.style.properties", style.getProperties());
+    }
+
+    private <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // rethrow the original exception, as it would have been thrown by the sequential export
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error)e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Sets the executor used to render the animation frames of a single view concurrently
+     * (e.g. ForkJoinPool.commonPool()). By default, frames are rendered sequentially by the calling thread.
+     * The same executor can safely be passed to {@link #export(Workspace, Executor)}, because the calling
+     * thread renders any frames that the executor hasn't yet started.
+     *
+     * @param frameExecutor     an Executor, or null to render frames sequentially
+     */
+    public void setFrameExecutor(Executor frameExecutor) {
+        this.frameExecutor = frameExecutor;
+    }
+
+    public Executor getFrameExecutor() {
+        return frameExecutor;
+    }
+
+    /**
+     * Sets the listener that is notified as views are rendered (e.g. for tracing or profiling).
+     *
+     * @param exportListener    an ExportListener, or null to remove the listener
+     */
+    public void setExportListener(ExportListener exportListener) {
+        this.exportListener = exportListener;
+    }
+
+    public ExportListener getExportListener() {
+        return exportListener;
+    }
+
+    /**
+     * Renders the entire view, without animation frames or a legend.
+     *
+     * @param view      the view to be rendered
+     * @return  a Diagram
+     */
+    protected final Diagram exportWithoutAnimation(View view) {
+        return exportWithoutAnimation(view, new ViewIndex(view));
+    }
+
+    /**
+     * Renders the entire view, without animation frames or a legend, using an existing view index.
+     *
+     * @param view          the view to be rendered
+     * @param viewIndex     the index for the view
+     * @return  a Diagram
+     */
+    protected final Diagram exportWithoutAnimation(View view, ViewIndex viewIndex) {
+        return export(view, () -> render(new RenderContext(viewIndex, null), view), Collections.emptyList());
+    }
+
+    private Diagram export(View view, Supplier<Diagram> diagramTask, List<Supplier<Diagram>> frameTasks) {
+        ExportListener listener = exportListener;
+        if (listener == null) {
+            return export(diagramTask, frameTasks);
+        }
+
+        long start = System.nanoTime();
+        listener.viewStarted(view);
+        Diagram diagram = export(diagramTask, frameTasks);
+        listener.viewFinished(view, System.nanoTime() - start);
+
+        return diagram;
+    }
+
+    private Diagram export(Supplier<Diagram> diagramTask, List<Supplier<Diagram>> frameTasks) {
+        Executor executor = frameExecutor;
+
+        if (executor == null || frameTasks.isEmpty()) {
+            Diagram diagram = diagramTask.get();
+            for (Supplier<Diagram> frameTask : frameTasks) {
+                diagram.addFrame(frameTask.get());
+            }
+
+            return diagram;
+        }
+
+        List<FutureTask<Diagram>> futures = new ArrayList<>();
+        for (Supplier<Diagram> frameTask : frameTasks) {
+            FutureTask<Diagram> future = new FutureTask<>(frameTask::get);
+            futures.add(future);
+
+            try {
+                executor.execute(future);
+            } catch (RejectedExecutionException e) {
+                // the frame will be rendered by this thread instead
             }
         }
 
-        diagram.setLegend(createLegend(view));
+        Diagram diagram = diagramTask.get();
+
+        // frames are attached in order; running a frame here is a no-op if another thread has already started it
+        for (FutureTask<Diagram> future : futures) {
+            future.run();
+            diagram.addFrame(get(future));
+        }
+
         return diagram;
     }
 
-    private Diagram export(CustomView view, Integer animationStep) {
-        this.frame = animationStep;
+    private <T> T get(FutureTask<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an animation frame to be rendered.", e);
+        } catch (ExecutionException e) {
+            // rethrow the original exception, as it would have been thrown by the sequential export
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error)e.getCause();
+            }
+
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Writes the definition of a single view straight to the given sink (e.g. a Writer, or a StringBuilder),
+     * rather than materialising it as a String. Animation frames and legends are not written.
+     *
+     * @param view      the view to be written
+     * @param out       the Appendable to write the diagram definition to
+     * @throws IllegalArgumentException     if this exporter doesn't support the type of view
+     * @throws java.io.UncheckedIOException     if the sink throws an IOException
+     */
+    public void export(View view, Appendable out) {
+        if (view == null) {
+            throw new IllegalArgumentException("A view must be provided.");
+        }
+
+        if (out == null) {
+            throw new IllegalArgumentException("An Appendable must be provided.");
+        }
+
+        if (!isSupported(view)) {
+            throw new IllegalArgumentException("Views of type " + view.getClass().getSimpleName() + " are not supported by this exporter.");
+        }
+
+        write(new RenderContext(view), view, new IndentingWriter(out));
+    }
+
+    /**
+     * Writes the definition of a single view straight to the given channel (e.g. a FileChannel), encoded as UTF-8,
+     * without materialising it as a String. Animation frames and legends are not written.
+     *
+     * @param view      the view to be written
+     * @param channel   the WritableByteChannel to write the diagram definition to
+     * @return  the number of bytes written
+     * @throws IllegalArgumentException     if this exporter doesn't support the type of view
+     * @throws java.io.UncheckedIOException     if the channel throws an IOException
+     */
+    public long export(View view, WritableByteChannel channel) {
+        if (channel == null) {
+            throw new IllegalArgumentException("A channel must be provided.");
+        }
+
+        Utf8ByteSink sink = new Utf8ByteSink(channel);
+        export(view, sink);
+
+        try {
+            sink.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return sink.size();
+    }
+
+    /**
+     * Determines whether this exporter can export the given type of view.
+     *
+     * @param view      a View
+     * @return  true if the view can be exported, false otherwise
+     */
+    protected boolean isSupported(View view) {
+        return view instanceof CustomView ||
+                view instanceof SystemLandscapeView ||
+                view instanceof SystemContextView ||
+                view instanceof ContainerView ||
+                view instanceof ComponentView ||
+                view instanceof DynamicView ||
+                view instanceof DeploymentView;
+    }
+
+    private Diagram render(RenderContext context, View view) {
+        ExportListener listener = exportListener;
+        long start = listener != null ? System.nanoTime() : 0;
 
         IndentingWriter writer = new IndentingWriter();
-        writeHeader(view, writer);
+        write(context, view, writer);
+        Diagram diagram = createDiagram(view, writer.toString());
+
+        if (listener != null) {
+            listener.frameRendered(view, context.getFrame(), System.nanoTime() - start);
+        }
+
+        return diagram;
+    }
+
+    private void write(RenderContext context, View view, IndentingWriter writer) {
+        if (view instanceof CustomView) {
+            writeView(context, (CustomView)view, writer);
+        } else if (view instanceof SystemLandscapeView) {
+            writeView(context, (SystemLandscapeView)view, writer);
+        } else if (view instanceof SystemContextView) {
+            writeView(context, (SystemContextView)view, writer);
+        } else if (view instanceof ContainerView) {
+            writeView(context, (ContainerView)view, writer);
+        } else if (view instanceof ComponentView) {
+            writeView(context, (ComponentView)view, writer);
+        } else if (view instanceof DynamicView) {
+            writeView(context, (DynamicView)view, writer);
+        } else if (view instanceof DeploymentView) {
+            writeView(context, (DeploymentView)view, writer);
+        } else {
+            throw new IllegalArgumentException("Views of type " + view.getClass().getSimpleName() + " are not supported by this exporter.");
+        }
+    }
+
+    public Diagram export(CustomView view) {
+        return export(view, new ViewIndex(view));
+    }
+
+    /**
+     * Exports the view, its animation frames and legend, using the given view index (which determines, for example,
+     * the style resolver); this is the method called when exporting a workspace, so subclasses should override it
+     * rather than {@link #export(CustomView)}.
+     *
+     * @param view          the view to be exported
+     * @param viewIndex     the index for the view
+     * @return  a Diagram, or null if the view isn't supported
+     */
+    protected Diagram export(CustomView view, ViewIndex viewIndex) {
+
+        List<Supplier<Diagram>> frames = new ArrayList<>();
+        if (isAnimationSupported(view)) {
+            for (Animation animation : view.getAnimations()) {
+                frames.add(() -> render(new RenderContext(viewIndex, animation.getOrder()), view));
+            }
+        }
+
+        Diagram diagram = export(view, () -> render(new RenderContext(viewIndex, null), view), frames);
+        diagram.setLegend(createLegend(new RenderContext(viewIndex, null), view));
+        return diagram;
+    }
+
+    protected void writeView(RenderContext context, CustomView view, IndentingWriter writer) {
+        writeHeader(context, view, writer);
 
         List<GroupableElement> elements = new ArrayList<>();
         for (ElementView elementView : view.getElements()) {
             elements.add((CustomElement)elementView.getElement());
         }
 
-        writeElements(view, elements, writer);
+        writeElements(context, view, elements, writer);
 
         writer.writeLine();
-        writeRelationships(view, writer);
-        writeFooter(view, writer);
-
-        return createDiagram(view, writer.toString());
+        writeRelationships(context, view, writer);
+        writeFooter(context, view, writer);
     }
 
     public Diagram export(SystemLandscapeView view) {
-        Diagram diagram = export(view, null);
+        return export(view, new ViewIndex(view));
+    }
+
+    /**
+     * Exports the view, its animation frames and legend, using the given view index (which determines, for example,
+     * the style resolver); this is the method called when exporting a workspace, so subclasses should override it
+     * rather than {@link #export(SystemLandscapeView)}.
+     *
+     * @param view          the view to be exported
+     * @param viewIndex     the index for the view
+     * @return  a Diagram, or null if the view isn't supported
+     */
+    protected Diagram export(SystemLandscapeView view, ViewIndex viewIndex) {
 
-        if (isAnimationSupported(view) && !view.getAnimations().isEmpty()) {
+        List<Supplier<Diagram>> frames = new ArrayList<>();
+        if (isAnimationSupported(view)) {
             for (Animation animation : view.getAnimations()) {
-                Diagram frame = export(view, animation.getOrder());
-                diagram.addFrame(frame);
+                frames.add(() -> render(new RenderContext(viewIndex, animation.getOrder()), view));
             }
         }
 
-        diagram.setLegend(createLegend(view));
+        Diagram diagram = export(view, () -> render(new RenderContext(viewIndex, null), view), frames);
+        diagram.setLegend(createLegend(new RenderContext(viewIndex, null), view));
         return diagram;
     }
 
-    private Diagram export(SystemLandscapeView view, Integer animationStep) {
-        this.frame = animationStep;
-        return export(view, view.isEnterpriseBoundaryVisible());
+    protected void writeView(RenderContext context, SystemLandscapeView view, IndentingWriter writer) {
+        writeView(context, view, view.isEnterpriseBoundaryVisible(), writer);
     }
 
     public Diagram export(SystemContextView view) {
-        Diagram diagram = export(view, null);
+        return export(view, new ViewIndex(view));
+    }
+
+    /**
+     * Exports the view, its animation frames and legend, using the given view index (which determines, for example,
+     * the style resolver); this is the method called when exporting a workspace, so subclasses should override it
+     * rather than {@link #export(SystemContextView)}.
+     *
+     * @param view          the view to be exported
+     * @param viewIndex     the index for the view
+     * @return  a Diagram, or null if the view isn't supported
+     */
+    protected Diagram export(SystemContextView view, ViewIndex viewIndex) {
 
-        if (isAnimationSupported(view) && !view.getAnimations().isEmpty()) {
+        List<Supplier<Diagram>> frames = new ArrayList<>();
+        if (isAnimationSupported(view)) {
             for (Animation animation : view.getAnimations()) {
-                Diagram frame = export(view, animation.getOrder());
-                diagram.addFrame(frame);
+                frames.add(() -> render(new RenderContext(viewIndex, animation.getOrder()), view));
             }
         }
 
-        diagram.setLegend(createLegend(view));
+        Diagram diagram = export(view, () -> render(new RenderContext(viewIndex, null), view), frames);
+        diagram.setLegend(createLegend(new RenderContext(viewIndex, null), view));
         return diagram;
     }
 
-    private Diagram export(SystemContextView view, Integer animationStep) {
-        this.frame = animationStep;
-        return export(view, view.isEnterpriseBoundaryVisible());
+    protected void writeView(RenderContext context, SystemContextView view, IndentingWriter writer) {
+        writeView(context, view, view.isEnterpriseBoundaryVisible(), writer);
     }
 
-    private Diagram export(View view, boolean enterpriseBoundaryIsVisible) {
-        IndentingWriter writer = new IndentingWriter();
-        writeHeader(view, writer);
+    private void writeView(RenderContext context, View view, boolean enterpriseBoundaryIsVisible, IndentingWriter writer) {
+        writeHeader(context, view, writer);
 
         boolean showEnterpriseBoundary =
                 enterpriseBoundaryIsVisible &&
@@ -164,7 +833,7 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
                 enterpriseName = view.getModel().getEnterprise().getName();
             }
 
-            startEnterpriseBoundary(view, enterpriseName, writer);
+            startEnterpriseBoundary(context, view, enterpriseName, writer);
 
             List<GroupableElement> elementsInsideEnterpriseBoundary = new ArrayList<>();
             for (ElementView elementView : view.getElements()) {
@@ -175,9 +844,9 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
                     elementsInsideEnterpriseBoundary.add((StaticStructureElement)elementView.getElement());
                 }
             }
-            writeElements(view, elementsInsideEnterpriseBoundary, writer);
+            writeElements(context, view, elementsInsideEnterpriseBoundary, writer);
 
-            endEnterpriseBoundary(view, writer);
+            endEnterpriseBoundary(context, view, writer);
 
             List<GroupableElement> elementsOutsideEnterpriseBoundary = new ArrayList<>();
             for (ElementView elementView : view.getElements()) {
@@ -191,45 +860,58 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
                     elementsOutsideEnterpriseBoundary.add((CustomElement)elementView.getElement());
                 }
             }
-            writeElements(view, elementsOutsideEnterpriseBoundary, writer);
+            writeElements(context, view, elementsOutsideEnterpriseBoundary, writer);
         } else {
             List<GroupableElement> elements = new ArrayList<>();
             for (ElementView elementView : view.getElements()) {
                 elements.add((GroupableElement)elementView.getElement());
             }
-            writeElements(view, elements, writer);
+            writeElements(context, view, elements, writer);
         }
 
         writer.writeLine();
-        writeRelationships(view, writer);
-        writeFooter(view, writer);
-
-        return createDiagram(view, writer.toString());
+        writeRelationships(context, view, writer);
+        writeFooter(context, view, writer);
     }
 
     public Diagram export(ContainerView view) {
-        Diagram diagram = export(view, null);
+        return export(view, new ViewIndex(view));
+    }
 
-        if (isAnimationSupported(view) && !view.getAnimations().isEmpty()) {
+    /**
+     * Exports the view, its animation frames and legend, using the given view index (which determines, for example,
+     * the style resolver); this is the method called when exporting a workspace, so subclasses should override it
+     * rather than {@link #export(ContainerView)}.
+     *
+     * @param view          the view to be exported
+     * @param viewIndex     the index for the view
+     * @return  a Diagram, or null if the view isn't supported
+     */
+    protected Diagram export(ContainerView view, ViewIndex viewIndex) {
+
+        List<Supplier<Diagram>> frames = new ArrayList<>();
+        if (isAnimationSupported(view)) {
             for (Animation animation : view.getAnimations()) {
-                Diagram frame = export(view, animation.getOrder());
-                diagram.addFrame(frame);
+                frames.add(() -> render(new RenderContext(viewIndex, animation.getOrder()), view));
             }
         }
 
-        diagram.setLegend(createLegend(view));
+        Diagram diagram = export(view, () -> render(new RenderContext(viewIndex, null), view), frames);
+        diagram.setLegend(createLegend(new RenderContext(viewIndex, null), view));
         return diagram;
     }
 
     public Diagram export(ContainerView view, Integer animationStep) {
-        this.frame = animationStep;
-        IndentingWriter writer = new IndentingWriter();
-        writeHeader(view, writer);
+        return render(new RenderContext(new ViewIndex(view), animationStep), view);
+    }
+
+    protected void writeView(RenderContext context, ContainerView view, IndentingWriter writer) {
+        writeHeader(context, view, writer);
 
         boolean elementsWritten = false;
         for (ElementView elementView : view.getElements()) {
             if (!(elementView.getElement() instanceof Container)) {
-                writeElement(view, elementView.getElement(), writer);
+                renderElement(context, view, elementView.getElement(), writer);
                 elementsWritten = true;
             }
         }
@@ -242,30 +924,26 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
         for (SoftwareSystem softwareSystem : softwareSystems) {
             boolean showSoftwareSystemBoundary = softwareSystem.equals(view.getSoftwareSystem()) || view.getExternalSoftwareSystemBoundariesVisible();
             if (showSoftwareSystemBoundary) {
-                startSoftwareSystemBoundary(view, softwareSystem, writer);
+                startSoftwareSystemBoundary(context, view, softwareSystem, writer);
             }
 
             List<GroupableElement> scopedElements = new ArrayList<>();
-            for (ElementView elementView : view.getElements()) {
-                if (elementView.getElement().getParent() == softwareSystem) {
-                    scopedElements.add((StaticStructureElement) elementView.getElement());
-                }
+            for (Element element : context.getViewIndex().getElementsWithParent(softwareSystem)) {
+                scopedElements.add((StaticStructureElement)element);
             }
 
-            writeElements(view, scopedElements, writer);
+            writeElements(context, view, scopedElements, writer);
 
             if (showSoftwareSystemBoundary) {
-                endSoftwareSystemBoundary(view, writer);
+                endSoftwareSystemBoundary(context, view, writer);
             } else {
                 writer.writeLine();
             }
         }
 
-        writeRelationships(view, writer);
-
-        writeFooter(view, writer);
+        writeRelationships(context, view, writer);
 
-        return createDiagram(view, writer.toString());
+        writeFooter(context, view, writer);
     }
 
     protected List<SoftwareSystem> getBoundarySoftwareSystems(View view) {
@@ -276,28 +954,43 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
     }
 
     public Diagram export(ComponentView view) {
-        Diagram diagram = export(view, null);
+        return export(view, new ViewIndex(view));
+    }
+
+    /**
+     * Exports the view, its animation frames and legend, using the given view index (which determines, for example,
+     * the style resolver); this is the method called when exporting a workspace, so subclasses should override it
+     * rather than {@link #export(ComponentView)}.
+     *
+     * @param view          the view to be exported
+     * @param viewIndex     the index for the view
+     * @return  a Diagram, or null if the view isn't supported
+     */
+    protected Diagram export(ComponentView view, ViewIndex viewIndex) {
 
-        if (isAnimationSupported(view) && !view.getAnimations().isEmpty()) {
+        List<Supplier<Diagram>> frames = new ArrayList<>();
+        if (isAnimationSupported(view)) {
             for (Animation animation : view.getAnimations()) {
-                Diagram frame = export(view, animation.getOrder());
-                diagram.addFrame(frame);
+                frames.add(() -> render(new RenderContext(viewIndex, animation.getOrder()), view));
             }
         }
 
-        diagram.setLegend(createLegend(view));
+        Diagram diagram = export(view, () -> render(new RenderContext(viewIndex, null), view), frames);
+        diagram.setLegend(createLegend(new RenderContext(viewIndex, null), view));
         return diagram;
     }
 
     public Diagram export(ComponentView view, Integer animationStep) {
-        this.frame = animationStep;
-        IndentingWriter writer = new IndentingWriter();
-        writeHeader(view, writer);
+        return render(new RenderContext(new ViewIndex(view), animationStep), view);
+    }
+
+    protected void writeView(RenderContext context, ComponentView view, IndentingWriter writer) {
+        writeHeader(context, view, writer);
 
         boolean elementsWritten = false;
         for (ElementView elementView : view.getElements()) {
             if (!(elementView.getElement() instanceof Component)) {
-                writeElement(view, elementView.getElement(), writer);
+                renderElement(context, view, elementView.getElement(), writer);
                 elementsWritten = true;
             }
         }
@@ -310,29 +1003,25 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
         for (Container container : containers) {
             boolean showContainerBoundary = container.equals(view.getContainer()) || view.getExternalContainerBoundariesVisible();
             if (showContainerBoundary) {
-                startContainerBoundary(view, container, writer);
+                startContainerBoundary(context, view, container, writer);
             }
 
             List<GroupableElement> scopedElements = new ArrayList<>();
-            for (ElementView elementView : view.getElements()) {
-                if (elementView.getElement().getParent() == container) {
-                    scopedElements.add((StaticStructureElement) elementView.getElement());
-                }
+            for (Element element : context.getViewIndex().getElementsWithParent(container)) {
+                scopedElements.add((StaticStructureElement)element);
             }
-            writeElements(view, scopedElements, writer);
+            writeElements(context, view, scopedElements, writer);
 
             if (showContainerBoundary) {
-                endContainerBoundary(view, writer);
+                endContainerBoundary(context, view, writer);
             } else {
                 writer.writeLine();
             }
         }
 
-        writeRelationships(view, writer);
-
-        writeFooter(view, writer);
+        writeRelationships(context, view, writer);
 
-        return createDiagram(view, writer.toString());
+        writeFooter(context, view, writer);
     }
 
     protected List<Container> getBoundaryContainers(View view) {
@@ -343,8 +1032,21 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
     }
 
     public Diagram export(DynamicView view) {
-        Diagram diagram = export(view, null);
+        return export(view, new ViewIndex(view));
+    }
+
+    /**
+     * Exports the view, its animation frames and legend, using the given view index (which determines, for example,
+     * the style resolver); this is the method called when exporting a workspace, so subclasses should override it
+     * rather than {@link #export(DynamicView)}.
+     *
+     * @param view          the view to be exported
+     * @param viewIndex     the index for the view
+     * @return  a Diagram, or null if the view isn't supported
+     */
+    protected Diagram export(DynamicView view, ViewIndex viewIndex) {
 
+        List<Supplier<Diagram>> frames = new ArrayList<>();
         if (isAnimationSupported(view)) {
             LinkedHashSet<String> orders = new LinkedHashSet<>();
             for (RelationshipView relationshipView : view.getRelationships()) {
@@ -352,19 +1054,21 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
             }
 
             for (String order : orders) {
-                Diagram frame = export(view, order);
-                diagram.addFrame(frame);
+                frames.add(() -> render(new RenderContext(viewIndex, order), view));
             }
         }
 
-        diagram.setLegend(createLegend(view));
+        Diagram diagram = export(view, () -> render(new RenderContext(viewIndex, null), view), frames);
+        diagram.setLegend(createLegend(new RenderContext(viewIndex, null), view));
         return diagram;
     }
 
     public Diagram export(DynamicView view, String order) {
-        this.frame = order;
-        IndentingWriter writer = new IndentingWriter();
-        writeHeader(view, writer);
+        return render(new RenderContext(new ViewIndex(view), order), view);
+    }
+
+    protected void writeView(RenderContext context, DynamicView view, IndentingWriter writer) {
+        writeHeader(context, view, writer);
 
         boolean elementsWritten = false;
 
@@ -372,7 +1076,7 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
 
         if (element == null) {
             for (ElementView elementView : view.getElements()) {
-                writeElement(view, elementView.getElement(), writer);
+                renderElement(context, view, elementView.getElement(), writer);
                 elementsWritten = true;
             }
         } else {
@@ -383,27 +1087,23 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
                     boolean showSoftwareSystemBoundary = softwareSystem.equals(view.getElement()) || view.getExternalBoundariesVisible();
 
                     if (showSoftwareSystemBoundary) {
-                        startSoftwareSystemBoundary(view, softwareSystem, writer);
+                        startSoftwareSystemBoundary(context, view, softwareSystem, writer);
                     }
 
-                    for (ElementView elementView : view.getElements()) {
-                        if (elementView.getElement().getParent() == softwareSystem) {
-                            writeElement(view, elementView.getElement(), writer);
-                        }
+                    for (Element scopedElement : context.getViewIndex().getElementsWithParent(softwareSystem)) {
+                        renderElement(context, view, scopedElement, writer);
                     }
 
                     if (showSoftwareSystemBoundary) {
-                        endSoftwareSystemBoundary(view, writer);
+                        endSoftwareSystemBoundary(context, view, writer);
                     } else {
                         writer.writeLine();
                     }
                 }
 
-                for (ElementView elementView : view.getElements()) {
-                    if (elementView.getElement().getParent() == null) {
-                        writeElement(view, elementView.getElement(), writer);
-                        elementsWritten = true;
-                    }
+                for (Element topLevelElement : context.getViewIndex().getElementsWithParent(null)) {
+                    renderElement(context, view, topLevelElement, writer);
+                    elementsWritten = true;
                 }
             } else if (element instanceof Container) {
                 List<Container> containers = getBoundaryContainers(view);
@@ -412,17 +1112,15 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
                     boolean showContainerBoundary = container.equals(view.getElement()) || view.getExternalBoundariesVisible();
 
                     if (showContainerBoundary) {
-                        startContainerBoundary(view, container, writer);
+                        startContainerBoundary(context, view, container, writer);
                     }
 
-                    for (ElementView elementView : view.getElements()) {
-                        if (elementView.getElement().getParent() == container) {
-                            writeElement(view, elementView.getElement(), writer);
-                        }
+                    for (Element scopedElement : context.getViewIndex().getElementsWithParent(container)) {
+                        renderElement(context, view, scopedElement, writer);
                     }
 
                     if (showContainerBoundary) {
-                        endContainerBoundary(view, writer);
+                        endContainerBoundary(context, view, writer);
                     } else {
                         writer.writeLine();
                     }
@@ -430,7 +1128,7 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
 
                 for (ElementView elementView : view.getElements()) {
                     if (!(elementView.getElement().getParent() instanceof Container)) {
-                        writeElement(view, elementView.getElement(), writer);
+                        renderElement(context, view, elementView.getElement(), writer);
                         elementsWritten = true;
                     }
                 }
@@ -441,119 +1139,141 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
             writer.writeLine();
         }
 
-        writeRelationships(view, writer);
-        writeFooter(view, writer);
-
-        return createDiagram(view, writer.toString());
+        writeRelationships(context, view, writer);
+        writeFooter(context, view, writer);
     }
 
     public Diagram export(DeploymentView view) {
-        Diagram diagram = export(view, null);
+        return export(view, new ViewIndex(view));
+    }
+
+    /**
+     * Exports the view, its animation frames and legend, using the given view index (which determines, for example,
+     * the style resolver); this is the method called when exporting a workspace, so subclasses should override it
+     * rather than {@link #export(DeploymentView)}.
+     *
+     * @param view          the view to be exported
+     * @param viewIndex     the index for the view
+     * @return  a Diagram, or null if the view isn't supported
+     */
+    protected Diagram export(DeploymentView view, ViewIndex viewIndex) {
 
-        if (isAnimationSupported(view) && !view.getAnimations().isEmpty()) {
+        List<Supplier<Diagram>> frames = new ArrayList<>();
+        if (isAnimationSupported(view)) {
             for (Animation animation : view.getAnimations()) {
-                Diagram frame = export(view, animation.getOrder());
-                diagram.addFrame(frame);
+                frames.add(() -> render(new RenderContext(viewIndex, animation.getOrder()), view));
             }
         }
 
-        diagram.setLegend(createLegend(view));
+        Diagram diagram = export(view, () -> render(new RenderContext(viewIndex, null), view), frames);
+        diagram.setLegend(createLegend(new RenderContext(viewIndex, null), view));
         return diagram;
     }
 
     public Diagram export(DeploymentView view, Integer animationStep) {
-        this.frame = animationStep;
-        IndentingWriter writer = new IndentingWriter();
-        writeHeader(view, writer);
+        return render(new RenderContext(new ViewIndex(view), animationStep), view);
+    }
 
-        for (ElementView elementView : view.getElements()) {
-            if (elementView.getElement() instanceof DeploymentNode && elementView.getElement().getParent() == null) {
-                write(view, (DeploymentNode)elementView.getElement(), writer);
-            }
-        }
+    protected void writeView(RenderContext context, DeploymentView view, IndentingWriter writer) {
+        writeHeader(context, view, writer);
 
-        writeRelationships(view, writer);
-        writeFooter(view, writer);
+        for (ViewIndex.DeploymentTreeNode deploymentNode : context.getViewIndex().getDeploymentTree()) {
+            write(context, view, deploymentNode, writer);
+        }
 
-        return createDiagram(view, writer.toString());
+        writeRelationships(context, view, writer);
+        writeFooter(context, view, writer);
     }
 
-    private void write(DeploymentView view, DeploymentNode deploymentNode, IndentingWriter writer) {
-        startDeploymentNodeBoundary(view, deploymentNode, writer);
+    private void write(RenderContext context, DeploymentView view, ViewIndex.DeploymentTreeNode deploymentNode, IndentingWriter writer) {
+        startDeploymentNodeBoundary(context, view, deploymentNode.getDeploymentNode(), writer);
 
-        List<DeploymentNode> children = new ArrayList<>(deploymentNode.getChildren());
-        children.sort(Comparator.comparing(DeploymentNode::getName));
-        for (DeploymentNode child : children) {
-            if (view.isElementInView(child)) {
-                write(view, child, writer);
-
-            }
+        for (ViewIndex.DeploymentTreeNode child : deploymentNode.getChildren()) {
+            write(context, view, child, writer);
         }
 
-        List<InfrastructureNode> infrastructureNodes = new ArrayList<>(deploymentNode.getInfrastructureNodes());
-        infrastructureNodes.sort(Comparator.comparing(InfrastructureNode::getName));
-        for (InfrastructureNode infrastructureNode : infrastructureNodes) {
-            if (view.isElementInView(infrastructureNode)) {
-                writeElement(view, infrastructureNode, writer);
-            }
+        for (InfrastructureNode infrastructureNode : deploymentNode.getInfrastructureNodes()) {
+            renderElement(context, view, infrastructureNode, writer);
         }
 
-        List<SoftwareSystemInstance> softwareSystemInstances = new ArrayList<>(deploymentNode.getSoftwareSystemInstances());
-        softwareSystemInstances.sort(Comparator.comparing(SoftwareSystemInstance::getName));
-        for (SoftwareSystemInstance softwareSystemInstance : softwareSystemInstances) {
-            if (view.isElementInView(softwareSystemInstance)) {
-                writeElement(view, softwareSystemInstance, writer);
-            }
+        for (SoftwareSystemInstance softwareSystemInstance : deploymentNode.getSoftwareSystemInstances()) {
+            renderElement(context, view, softwareSystemInstance, writer);
         }
 
-        List<ContainerInstance> containerInstances = new ArrayList<>(deploymentNode.getContainerInstances());
-        containerInstances.sort(Comparator.comparing(ContainerInstance::getName));
-        for (ContainerInstance containerInstance : containerInstances) {
-            if (view.isElementInView(containerInstance)) {
-                writeElement(view, containerInstance, writer);
-            }
+        for (ContainerInstance containerInstance : deploymentNode.getContainerInstances()) {
+            renderElement(context, view, containerInstance, writer);
         }
 
-        endDeploymentNodeBoundary(view, writer);
+        endDeploymentNodeBoundary(context, view, writer);
     }
 
-    protected void writeElements(View view, List<GroupableElement> elements, IndentingWriter writer) {
+    protected void writeElements(RenderContext context, View view, List<GroupableElement> elements, IndentingWriter writer) {
         elements.sort(Comparator.comparing(Element::getId));
 
-        Set<String> groupsAsSet = new HashSet<>();
+        String groupSeparator = view.getModel().getProperties().get(GROUP_SEPARATOR_PROPERTY_NAME);
+        if (StringUtils.isNullOrEmpty(groupSeparator)) {
+            groupSeparator = null;
+        }
+
+        // partition the (sorted) elements into groups in a single pass; nested groups hang off their parent group
+        GroupNode root = new GroupNode(null);
         for (GroupableElement element : elements) {
             String group = element.getGroup();
 
-            if (!StringUtils.isNullOrEmpty(group)) {
-                groupsAsSet.add(group);
+            if (StringUtils.isNullOrEmpty(group)) {
+                root.elements.add(element);
+            } else if (groupSeparator == null) {
+                root.child(group).elements.add(element);
+            } else {
+                GroupNode node = root;
+                int from = 0;
+                int to = group.indexOf(groupSeparator);
+                while (to > -1) {
+                    node = node.child(group.substring(0, to));
+                    from = to + groupSeparator.length();
+                    to = group.indexOf(groupSeparator, from);
+                }
+                node.child(group).elements.add(element);
             }
         }
 
-        List<String> groupsAsList = new ArrayList<>(groupsAsSet);
-        Collections.sort(groupsAsList);
+        writeGroup(context, view, root, writer);
+    }
 
+    private void writeGroup(RenderContext context, View view, GroupNode group, IndentingWriter writer) {
         // first render grouped elements
-        for (String group : groupsAsList) {
-            startGroupBoundary(view, group, writer);
+        for (GroupNode child : group.children.values()) {
+            startGroupBoundary(context, view, child.name, writer);
+            writeGroup(context, view, child, writer);
+            endGroupBoundary(context, view, writer);
+        }
 
-            for (GroupableElement element : elements) {
-                if (group.equals(element.getGroup())) {
-                    writeElement(view, element, writer);
-                }
-            }
+        // then render ungrouped elements
+        for (GroupableElement element : group.elements) {
+            renderElement(context, view, element, writer);
+        }
+    }
+
+    /**
+     * A group of elements, and the groups nested inside it; the name is the full group name (e.g. "Team/Subteam").
+     */
+    private static final class GroupNode {
+
+        private final String name;
+        private final TreeMap<String, GroupNode> children = new TreeMap<>();
+        private final List<GroupableElement> elements = new ArrayList<>();
 
-            endGroupBoundary(view, writer);
+        GroupNode(String name) {
+            this.name = name;
         }
 
-        // then render ungrouped elements
-        for (GroupableElement element : elements) {
-            if (StringUtils.isNullOrEmpty(element.getGroup())) {
-                writeElement(view, element, writer);
-            }
+        GroupNode child(String name) {
+            return children.computeIfAbsent(name, GroupNode::new);
         }
+
     }
 
-    protected void writeRelationships(View view, IndentingWriter writer) {
+    protected void writeRelationships(RenderContext context, View view, IndentingWriter writer) {
         Collection<RelationshipView> relationshipList;
 
         if (view instanceof DynamicView) {
@@ -563,85 +1283,115 @@ public abstract class AbstractDiagramExporter extends AbstractExporter implement
         }
 
         for (RelationshipView relationshipView : relationshipList) {
-            System.out.println(relationshipView);
-            writeRelationship(view, relationshipView, writer);
+            renderRelationship(context, view, relationshipView, writer);
+        }
+    }
+
+    /**
+     * Writes an element using {@link #writeElement(RenderContext, View, Element, IndentingWriter)},
+     * and notifies the export listener (if any).
+     *
+     * @param context   the render context
+     * @param view      the view being rendered
+     * @param element   the element to be written
+     * @param writer    the writer to write to
+     */
+    protected final void renderElement(RenderContext context, View view, Element element, IndentingWriter writer) {
+        writeElement(context, view, element, writer);
+
+        ExportListener listener = exportListener;
+        if (listener != null) {
+            listener.elementWritten(view, context.getFrame(), element);
+        }
+    }
+
+    /**
+     * Writes a relationship using {@link #writeRelationship(RenderContext, View, RelationshipView, IndentingWriter)},
+     * and notifies the export listener (if any).
+     *
+     * @param context           the render context
+     * @param view              the view being rendered
+     * @param relationshipView  the relationship to be written
+     * @param writer            the writer to write to
+     */
+    protected final void renderRelationship(RenderContext context, View view, RelationshipView relationshipView, IndentingWriter writer) {
+        writeRelationship(context, view, relationshipView, writer);
+
+        ExportListener listener = exportListener;
+        if (listener != null) {
+            listener.relationshipWritten(view, context.getFrame(), relationshipView);
         }
     }
 
-    protected abstract void writeHeader(View view, IndentingWriter writer);
-    protected abstract void writeFooter(View view, IndentingWriter writer);
+    protected abstract void writeHeader(RenderContext context, View view, IndentingWriter writer);
+    protected abstract void writeFooter(RenderContext context, View view, IndentingWriter writer);
 
-    protected abstract void startEnterpriseBoundary(View view, String enterpriseName, IndentingWriter writer);
-    protected abstract void endEnterpriseBoundary(View view, IndentingWriter writer);
+    protected abstract void startEnterpriseBoundary(RenderContext context, View view, String enterpriseName, IndentingWriter writer);
+    protected abstract void endEnterpriseBoundary(RenderContext context, View view, IndentingWriter writer);
 
-    protected abstract void startGroupBoundary(View view, String group, IndentingWriter writer);
-    protected abstract void endGroupBoundary(View view, IndentingWriter writer);
+    protected abstract void startGroupBoundary(RenderContext context, View view, String group, IndentingWriter writer);
+    protected abstract void endGroupBoundary(RenderContext context, View view, IndentingWriter writer);
 
-    protected abstract void startSoftwareSystemBoundary(View view, SoftwareSystem softwareSystem, IndentingWriter writer);
-    protected abstract void endSoftwareSystemBoundary(View view, IndentingWriter writer);
+    protected abstract void startSoftwareSystemBoundary(RenderContext context, View view, SoftwareSystem softwareSystem, IndentingWriter writer);
+    protected abstract void endSoftwareSystemBoundary(RenderContext context, View view, IndentingWriter writer);
 
-    protected abstract void startContainerBoundary(View view, Container container, IndentingWriter writer);
-    protected abstract void endContainerBoundary(View view, IndentingWriter writer);
+    protected abstract void startContainerBoundary(RenderContext context, View view, Container container, IndentingWriter writer);
+    protected abstract void endContainerBoundary(RenderContext context, View view, IndentingWriter writer);
 
-    protected abstract void startDeploymentNodeBoundary(DeploymentView view, DeploymentNode deploymentNode, IndentingWriter writer);
-    protected abstract void endDeploymentNodeBoundary(View view, IndentingWriter writer);
+    protected abstract void startDeploymentNodeBoundary(RenderContext context, DeploymentView view, DeploymentNode deploymentNode, IndentingWriter writer);
+    protected abstract void endDeploymentNodeBoundary(RenderContext context, View view, IndentingWriter writer);
 
-    protected abstract void writeElement(View view, Element element, IndentingWriter writer);
-    protected abstract void writeRelationship(View view, RelationshipView relationshipView, IndentingWriter writer);
+    protected abstract void writeElement(RenderContext context, View view, Element element, IndentingWriter writer);
+    protected abstract void writeRelationship(RenderContext context, View view, RelationshipView relationshipView, IndentingWriter writer);
 
     protected boolean isAnimationSupported(View view) {
         return false;
     }
 
-    protected boolean isVisible(View view, Element element) {
-        if (frame != null) {
-            Set<String> elementIds = new HashSet<>();
-
-            if (view instanceof StaticView) {
-                int step = (int)frame;
-                if (step > 0) {
-                    StaticView staticView = (StaticView) view;
-                    staticView.getAnimations().stream().filter(a -> a.getOrder() <= step).forEach(a -> {
-                        elementIds.addAll(a.getElements());
-                    });
-
-                    return elementIds.contains(element.getId());
-                }
-            } else if (view instanceof DeploymentView) {
-                int step = (int)frame;
-                if (step > 0) {
-                    DeploymentView deploymentView = (DeploymentView) view;
-                    deploymentView.getAnimations().stream().filter(a -> a.getOrder() <= step).forEach(a -> {
-                        elementIds.addAll(a.getElements());
-                    });
-
-                    return elementIds.contains(element.getId());
-                }
-            } else if (view instanceof DynamicView) {
-                String order = (String)frame;
-                view.getRelationships().stream().filter(rv -> order.equals(rv.getOrder())).forEach(rv -> {
-                    elementIds.add(rv.getRelationship().getSourceId());
-                    elementIds.add(rv.getRelationship().getDestinationId());
-                });
+    protected boolean isVisible(RenderContext context, View view, Element element) {
+        return context.isVisible(element);
+    }
 
-                return elementIds.contains(element.getId());
-            }
-        }
+    protected boolean isVisible(RenderContext context, View view, RelationshipView relationshipView) {
+        return context.isVisible(relationshipView);
+    }
 
-        return true;
+    /**
+     * Finds the style for an element, using the style resolver shared by all renders of the view.
+     *
+     * @param context   the render context
+     * @param element   an Element
+     * @return  an ElementStyle, which must not be modified
+     */
+    protected ElementStyle findElementStyle(RenderContext context, Element element) {
+        return context.getViewIndex().getStyleResolver().findElementStyle(element);
     }
 
-    protected boolean isVisible(View view, RelationshipView relationshipView) {
-        if (view instanceof DynamicView && frame != null) {
-            return frame.equals(relationshipView.getOrder());
-        }
+    /**
+     * Finds the element style defined for a single tag (e.g. "Group:Name"), using the style resolver shared by all renders of the view.
+     *
+     * @param context   the render context
+     * @param tag       a tag
+     * @return  an ElementStyle (which must not be modified), or null if there isn't one
+     */
+    protected ElementStyle findElementStyle(RenderContext context, String tag) {
+        return context.getViewIndex().getStyleResolver().findElementStyle(tag);
+    }
 
-        return true;
+    /**
+     * Finds the style for a relationship, using the style resolver shared by all renders of the view.
+     *
+     * @param context       the render context
+     * @param relationship  a Relationship
+     * @return  a RelationshipStyle, which must not be modified
+     */
+    protected RelationshipStyle findRelationshipStyle(RenderContext context, Relationship relationship) {
+        return context.getViewIndex().getStyleResolver().findRelationshipStyle(relationship);
     }
 
     protected abstract Diagram createDiagram(View view, String definition);
 
-    protected Legend createLegend(View view) {
+    protected Legend createLegend(RenderContext context, View view) {
         return null;
     }
 
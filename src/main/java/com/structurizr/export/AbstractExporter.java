@@ -81,11 +81,13 @@ public abstract class AbstractExporter {
         }
 
         if (includeMetadataSymbols) {
-            if (configuration.getMetadataSymbols() == null) {
-                configuration.setMetadataSymbols(MetadataSymbols.SquareBrackets);
+            // don't modify the configuration, as it may be shared by concurrent renders
+            MetadataSymbols metadataSymbols = configuration.getMetadataSymbols();
+            if (metadataSymbols == null) {
+                metadataSymbols = MetadataSymbols.SquareBrackets;
             }
 
-            switch (configuration.getMetadataSymbols()) {
+            switch (metadataSymbols) {
                 case RoundBrackets:
                     return "(" + type + ")";
                 case CurlyBrackets:
@@ -0,0 +1,9 @@
+package com.structurizr.export;
+
+public enum ArchiveFormat {
+
+    Zip,
+    Tar,
+    TarGz
+
+}
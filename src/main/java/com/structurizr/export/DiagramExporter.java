@@ -3,6 +3,8 @@ package com.structurizr.export;
 import com.structurizr.Workspace;
 
 import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 public interface DiagramExporter extends Exporter {
 
@@ -14,4 +16,42 @@ public interface DiagramExporter extends Exporter {
      */
     Collection<Diagram> export(Workspace workspace);
 
-}
\ No newline at end of file
+    /**
+     * Exports all views in the workspace, using the specified executor to render views concurrently.
+     * Implementations that don't support concurrent rendering export the views on the calling thread.
+     *
+     * @param workspace     the workspace containing the views to be written
+     * @param executor      the executor used to render views
+     * @return  a collection of diagram definitions, one per view, in the same order as {@link #export(Workspace)}
+     */
+    default Collection<Diagram> export(Workspace workspace, Executor executor) {
+        return export(workspace);
+    }
+
+    /**
+     * Exports all views in the workspace, passing each diagram to the consumer in the same order as
+     * {@link #export(Workspace)}. Implementations that render diagrams one at a time pass each diagram on
+     * as soon as it has been rendered, so it can be written and then garbage collected.
+     *
+     * @param workspace     the workspace containing the views to be written
+     * @param consumer      the consumer that receives each diagram
+     */
+    default void exportTo(Workspace workspace, Consumer<Diagram> consumer) {
+        export(workspace).forEach(consumer);
+    }
+
+    /**
+     * Exports all views in the workspace, using the specified executor to render views concurrently, and passing
+     * each diagram to the consumer (on the calling thread) in the same order as {@link #export(Workspace)}.
+     * Implementations that support concurrent rendering pass each diagram on as soon as it, and the diagrams
+     * before it, have been rendered, while the remaining views are still being rendered.
+     *
+     * @param workspace     the workspace containing the views to be written
+     * @param executor      the executor used to render views
+     * @param consumer      the consumer that receives each diagram
+     */
+    default void exportTo(Workspace workspace, Executor executor, Consumer<Diagram> consumer) {
+        export(workspace, executor).forEach(consumer);
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.structurizr.export;
+
+/**
+ * The names of the files that exports are written to, by {@link WorkspaceExportRunner} and {@link WorkspaceArchiveWriter}.
+ * Diagram file names start with the view key, so keys that could name a file in another directory
+ * (i.e. those containing a path separator or "..") are rejected.
+ */
+final class ExportFileNames {
+
+    private static final String WORKSPACE_EXPORT_NAME = "workspace";
+    private static final String FRAME_SEPARATOR = "-";
+    private static final String LEGEND_SUFFIX = "-key";
+
+    private ExportFileNames() {
+    }
+
+    static String of(WorkspaceExport export) {
+        return WORKSPACE_EXPORT_NAME + "." + export.getFileExtension();
+    }
+
+    static String of(Diagram diagram) {
+        return keyOf(diagram) + "." + diagram.getFileExtension();
+    }
+
+    static String ofFrame(Diagram diagram, int frame) {
+        return keyOf(diagram) + FRAME_SEPARATOR + frame + "." + diagram.getFileExtension();
+    }
+
+    static String ofLegend(Diagram diagram) {
+        return keyOf(diagram) + LEGEND_SUFFIX + "." + diagram.getFileExtension();
+    }
+
+    private static String keyOf(Diagram diagram) {
+        String key = diagram.getKey();
+        if (key != null && (key.contains("/") || key.contains("\\") || key.contains("..") || key.indexOf('\0') != -1)) {
+            throw new IllegalArgumentException("The view key \"" + key + "\" can't be used in a file name.");
+        }
+
+        return key;
+    }
+
+}
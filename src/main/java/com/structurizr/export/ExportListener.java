@@ -0,0 +1,64 @@
+package com.structurizr.export;
+
+import com.structurizr.model.Element;
+import com.structurizr.view.RelationshipView;
+import com.structurizr.view.View;
+
+/**
+ * Receives callbacks as a diagram exporter renders views, for tracing and profiling exports.
+ * Register a listener with {@link AbstractDiagramExporter#setExportListener(ExportListener)}; when no listener
+ * is registered, no callbacks are made and no timings are taken.
+ *
+ * Views (and the animation frames of a single view) may be rendered on multiple threads, so implementations
+ * must be thread-safe. Callbacks are made on the thread performing the render, and should return quickly.
+ */
+public interface ExportListener {
+
+    /**
+     * Called before a view (and its animation frames) is rendered.
+     *
+     * @param view      the view
+     */
+    default void viewStarted(View view) {
+    }
+
+    /**
+     * Called after a view and all of its animation frames have been rendered.
+     *
+     * @param view              the view
+     * @param durationNanos     the time taken to render the view and its animation frames, in nanoseconds
+     */
+    default void viewFinished(View view, long durationNanos) {
+    }
+
+    /**
+     * Called after a single diagram definition has been rendered; either the entire view, or one of its animation frames.
+     *
+     * @param view              the view
+     * @param frame             the animation frame (see {@link RenderContext#getFrame()}), or null for the entire view
+     * @param durationNanos     the time taken to render the diagram definition, in nanoseconds
+     */
+    default void frameRendered(View view, Object frame, long durationNanos) {
+    }
+
+    /**
+     * Called after an element has been written to a diagram definition.
+     *
+     * @param view      the view
+     * @param frame     the animation frame being rendered, or null for the entire view
+     * @param element   the element
+     */
+    default void elementWritten(View view, Object frame, Element element) {
+    }
+
+    /**
+     * Called after a relationship has been written to a diagram definition.
+     *
+     * @param view              the view
+     * @param frame             the animation frame being rendered, or null for the entire view
+     * @param relationshipView  the relationship
+     */
+    default void relationshipWritten(View view, Object frame, RelationshipView relationshipView) {
+    }
+
+}
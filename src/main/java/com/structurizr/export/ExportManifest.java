@@ -0,0 +1,97 @@
+package com.structurizr.export;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Records the fingerprint of every view exported by an incremental export
+ * (see {@link AbstractDiagramExporter#export(com.structurizr.Workspace, ExportManifest)}),
+ * so that views whose inputs haven't changed can be skipped next time.
+ *
+ * Use a separate manifest for each exporter, as the fingerprints include the exporter and its settings.
+ */
+public final class ExportManifest {
+
+    private final Map<String, String> fingerprints = new TreeMap<>();
+    private final Set<String> reusedViewKeys = new TreeSet<>();
+
+    public ExportManifest() {
+    }
+
+    /**
+     * Loads a manifest from a file written by {@link #save(File)}.
+     *
+     * @param file      the manifest file
+     * @return  the manifest, which is empty if the file doesn't exist
+     * @throws IOException  if the file can't be read
+     */
+    public static ExportManifest load(File file) throws IOException {
+        ExportManifest manifest = new ExportManifest();
+
+        if (file.exists()) {
+            Properties properties = new Properties();
+            try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+
+            for (String key : properties.stringPropertyNames()) {
+                manifest.fingerprints.put(key, properties.getProperty(key));
+            }
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Saves this manifest to a file.
+     *
+     * @param file      the manifest file
+     * @throws IOException  if the file can't be written
+     */
+    public void save(File file) throws IOException {
+        Properties properties = new Properties();
+        properties.putAll(fingerprints);
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+    }
+
+    /**
+     * Gets the fingerprint recorded for a view.
+     *
+     * @param viewKey   the view key
+     * @return  the fingerprint, or null if the view hasn't been exported
+     */
+    public String getFingerprint(String viewKey) {
+        return fingerprints.get(viewKey);
+    }
+
+    /**
+     * Gets the keys of all views recorded in this manifest.
+     *
+     * @return  a sorted set of view keys
+     */
+    public Set<String> getViewKeys() {
+        return Collections.unmodifiableSet(fingerprints.keySet());
+    }
+
+    /**
+     * Gets the keys of the views that were skipped by the most recent export, because their inputs hadn't changed.
+     *
+     * @return  a sorted set of view keys
+     */
+    public Set<String> getReusedViewKeys() {
+        return Collections.unmodifiableSet(reusedViewKeys);
+    }
+
+    void update(Map<String, String> fingerprints, Set<String> reusedViewKeys) {
+        this.fingerprints.clear();
+        this.fingerprints.putAll(fingerprints);
+
+        this.reusedViewKeys.clear();
+        this.reusedViewKeys.addAll(reusedViewKeys);
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.structurizr.export;
+
+import java.nio.file.Path;
+
+/**
+ * A file written by a {@link WorkspaceExportRunner}.
+ */
+public final class ExportedFile {
+
+    private final Path path;
+    private final long size;
+    private final long durationNanos;
+
+    ExportedFile(Path path, long size, long durationNanos) {
+        this.path = path;
+        this.size = size;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Gets the path of the file.
+     *
+     * @return  a Path, within the output directory
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the size of the file.
+     *
+     * @return  the number of bytes written
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the time taken to write the file, including moving it into place.
+     *
+     * @return  a duration, in nanoseconds
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return path + " (" + size + " bytes)";
+    }
+
+}
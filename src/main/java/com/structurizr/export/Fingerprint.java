@@ -0,0 +1,94 @@
+package com.structurizr.export;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds a stable SHA-256 fingerprint from a sequence of named values, used to detect whether
+ * the inputs to a diagram have changed between exports.
+ */
+public final class Fingerprint {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final MessageDigest digest;
+    private String value;
+
+    public Fingerprint() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    /**
+     * Adds a named value to the fingerprint. Maps are added in key order, so that their iteration order doesn't matter.
+     *
+     * @param name      the name of the value
+     * @param value     the value (may be null)
+     * @return  this fingerprint
+     */
+    public Fingerprint add(String name, Object value) {
+        if (this.value != null) {
+            throw new IllegalStateException("The fingerprint has already been calculated.");
+        }
+
+        if (value instanceof Map) {
+            update(name + "{");
+            for (Map.Entry<?, ?> entry : new TreeMap<>((Map<?, ?>)value).entrySet()) {
+                add(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            update("}");
+        } else {
+            update(name);
+            update(value == null ? null : String.valueOf(value));
+        }
+
+        return this;
+    }
+
+    private void update(String s) {
+        if (s == null) {
+            digest.update((byte)0);
+        } else {
+            // length-prefixed, so that adjacent values can't run into each other
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            digest.update((byte)1);
+            digest.update((byte)(bytes.length >>> 24));
+            digest.update((byte)(bytes.length >>> 16));
+            digest.update((byte)(bytes.length >>> 8));
+            digest.update((byte)bytes.length);
+            digest.update(bytes);
+        }
+    }
+
+    /**
+     * Gets the fingerprint as a hex string; no further values can be added after this has been called.
+     *
+     * @return  a 64 character hex string
+     */
+    public String getValue() {
+        if (value == null) {
+            byte[] bytes = digest.digest();
+            char[] chars = new char[bytes.length * 2];
+            for (int i = 0; i < bytes.length; i++) {
+                chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+                chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+            }
+
+            value = new String(chars);
+        }
+
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return getValue();
+    }
+
+}
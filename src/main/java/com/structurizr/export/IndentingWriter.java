@@ -1,22 +1,64 @@
 package com.structurizr.export;
 
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Writes indented lines of text to an Appendable; either an internal buffer (see {@link #toString()}),
+ * or a caller-supplied sink such as a Writer, or a {@link Utf8ByteSink} for UTF-8 bytes.
+ *
+ * Line separators are written lazily, before the next line, so the output never ends with a trailing newline.
+ */
 public final class IndentingWriter {
 
     private int indent = 0;
     private IndentType indentType = IndentType.Spaces;
     private int indentQuantity = 2;
 
-    private StringBuilder buf = new StringBuilder();
+    private static final String[] NO_PADDINGS = new String[0];
+    private String[] paddings = NO_PADDINGS;
+
+    private final Appendable out;
+    private boolean newlinePending = false;
 
     public IndentingWriter() {
+        this(new StringBuilder());
+    }
+
+    /**
+     * Creates a writer that writes straight to the given sink.
+     *
+     * @param out   an Appendable (e.g. a Writer, or a StringBuilder)
+     */
+    public IndentingWriter(Appendable out) {
+        if (out == null) {
+            throw new IllegalArgumentException("An Appendable must be provided.");
+        }
+
+        this.out = out;
+    }
+
+    /**
+     * Creates a writer that encodes its output as UTF-8 straight into a buffer, which is written to the given channel
+     * (e.g. a FileChannel) as it fills up; call {@link #flush()} once all lines have been written.
+     *
+     * @param channel   a WritableByteChannel
+     */
+    public IndentingWriter(WritableByteChannel channel) {
+        this(new Utf8ByteSink(channel));
     }
 
     public void setIndentType(IndentType indentType) {
         this.indentType = indentType;
+        this.paddings = NO_PADDINGS;
     }
 
     public void setIndentQuantity(int indentQuantity) {
         this.indentQuantity = indentQuantity;
+        this.paddings = NO_PADDINGS;
     }
 
     public void indent() {
@@ -27,36 +69,89 @@ public final class IndentingWriter {
         indent--;
     }
 
+    // the padding for each depth is only built once
     private String padding() {
-        StringBuilder buf = new StringBuilder();
+        if (indent <= 0 || indentQuantity <= 0) {
+            return "";
+        }
 
-        for (int i = 0; i < indent * indentQuantity; i++) {
-            if (indentType == IndentType.Spaces) {
-                buf.append(" ");
-            } else {
-                buf.append("\t");
+        if (indent >= paddings.length) {
+            String[] newPaddings = Arrays.copyOf(paddings, Math.max(indent + 1, paddings.length * 2));
+            String unit = indentType == IndentType.Spaces ? " " : "\t";
+            for (int depth = 0; depth < newPaddings.length; depth++) {
+                if (newPaddings[depth] == null) {
+                    newPaddings[depth] = repeat(unit, depth * indentQuantity);
+                }
             }
+            paddings = newPaddings;
+        }
+
+        return paddings[indent];
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder buf = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            buf.append(s);
         }
 
         return buf.toString();
     }
 
     public void writeLine() {
-        buf.append("\n");
+        try {
+            startLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     public void writeLine(String content) {
-        buf.append(String.format("%s%s\n", padding(), content.replace("\n", "\\n")));
+        try {
+            startLine();
+            out.append(padding());
+
+            // newlines are escaped as "\n" in a single pass, appending the content between them directly
+            int from = 0;
+            int newline = content.indexOf('\n');
+            while (newline > -1) {
+                out.append(content, from, newline);
+                out.append("\\n");
+                from = newline + 1;
+                newline = content.indexOf('\n', from);
+            }
+            out.append(content, from, content.length());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-    @Override
-    public String toString() {
-        String s = buf.toString();
-        if (s.endsWith("\n")) {
-            s = s.substring(0, s.length()-1);
+    private void startLine() throws IOException {
+        if (newlinePending) {
+            out.append('\n');
+        }
+
+        newlinePending = true;
+    }
+
+    /**
+     * Flushes the sink, if it is Flushable (e.g. a Writer, or a {@link Utf8ByteSink}).
+     *
+     * @throws UncheckedIOException     if the sink throws an IOException
+     */
+    public void flush() {
+        if (out instanceof Flushable) {
+            try {
+                ((Flushable)out).flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
+    }
 
-        return s;
+    @Override
+    public String toString() {
+        return out.toString();
     }
 
-}
\ No newline at end of file
+}
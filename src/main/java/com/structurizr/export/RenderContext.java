@@ -0,0 +1,124 @@
+package com.structurizr.export;
+
+import com.structurizr.model.Element;
+import com.structurizr.view.RelationshipView;
+import com.structurizr.view.View;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Holds the state associated with rendering a single diagram definition; either a view, or one of its
+ * animation frames. A new context is created for every render, so exporters don't need to keep
+ * per-render state in instance fields, and a single exporter instance can be used by multiple threads.
+ *
+ * A context is only ever used by the thread performing the render, so it is not thread-safe.
+ */
+public final class RenderContext {
+
+    private final ViewIndex viewIndex;
+    private final Object frame;
+
+    private Predicate<Element> visibleElements;
+    private Predicate<RelationshipView> visibleRelationships;
+    private int groupId = 0;
+    private final Map<Object, Object> cache = new HashMap<>();
+
+    /**
+     * Creates a context to render the entire view.
+     *
+     * @param view      the view being rendered
+     */
+    public RenderContext(View view) {
+        this(new ViewIndex(view), null);
+    }
+
+    /**
+     * Creates a context to render a view, or one of its animation frames.
+     *
+     * @param viewIndex     the index for the view being rendered, which may be shared between renders
+     * @param frame         the animation frame (see {@link #getFrame()}), or null to render the entire view
+     */
+    public RenderContext(ViewIndex viewIndex, Object frame) {
+        if (viewIndex == null) {
+            throw new IllegalArgumentException("A view index must be provided.");
+        }
+
+        this.viewIndex = viewIndex;
+        this.frame = frame;
+    }
+
+    public ViewIndex getViewIndex() {
+        return viewIndex;
+    }
+
+    /**
+     * Gets the animation frame being rendered.
+     *
+     * @return  an animation step (Integer) for static and deployment views, an order (String) for dynamic views,
+     *          or null if the entire view is being rendered
+     */
+    public Object getFrame() {
+        return frame;
+    }
+
+    /**
+     * Determines whether an element is visible in the animation frame being rendered.
+     *
+     * @param element   an Element
+     * @return  true if the element is visible, false otherwise
+     */
+    public boolean isVisible(Element element) {
+        if (visibleElements == null) {
+            visibleElements = viewIndex.getVisibleElements(frame);
+        }
+
+        return visibleElements.test(element);
+    }
+
+    /**
+     * Determines whether a relationship is visible in the animation frame being rendered.
+     *
+     * @param relationshipView  a RelationshipView
+     * @return  true if the relationship is visible, false otherwise
+     */
+    public boolean isVisible(RelationshipView relationshipView) {
+        if (visibleRelationships == null) {
+            visibleRelationships = viewIndex.getVisibleRelationships(frame);
+        }
+
+        return visibleRelationships.test(relationshipView);
+    }
+
+    /**
+     * Gets the next group ID for this render; group IDs start at 0 for every diagram definition.
+     *
+     * @return  a group ID
+     */
+    public int nextGroupId() {
+        return groupId++;
+    }
+
+    /**
+     * Gets a value that is cached for the duration of this render, computing it if it's not yet present.
+     *
+     * @param key       the cache key
+     * @param supplier  used to compute the value if it's not cached
+     * @param <T>       the type of value
+     * @return  the cached value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T computeIfAbsent(Object key, Supplier<T> supplier) {
+        // not using Map.computeIfAbsent, as the supplier may itself use the cache
+        Object value = cache.get(key);
+        if (value == null) {
+            value = supplier.get();
+            cache.put(key, value);
+        }
+
+        return (T)value;
+    }
+
+}
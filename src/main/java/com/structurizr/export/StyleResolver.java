@@ -0,0 +1,127 @@
+package com.structurizr.export;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.DeploymentElement;
+import com.structurizr.model.Element;
+import com.structurizr.model.Relationship;
+import com.structurizr.view.ElementStyle;
+import com.structurizr.view.RelationshipStyle;
+import com.structurizr.view.Styles;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves (and remembers) the styles for elements and relationships. The style of a relationship, or of an element
+ * in the static model, only depends on its tags, so it is resolved once per distinct (ordered) set of tags, and then
+ * shared by every element or relationship with the same tags, however many times and by however many exporters it is needed.
+ * The styles of deployment elements are resolved per element, as they can also depend on other elements
+ * (e.g. a container instance is styled with the tags of its container).
+ * The resolved styles are shared, so they must not be modified. A style resolver is thread-safe.
+ */
+public final class StyleResolver {
+
+    private final Styles styles;
+
+    // tags (e.g. "Element,Software System") -> resolved style
+    private final Map<String, ElementStyle> elementStylesByTags = new ConcurrentHashMap<>();
+    private final Map<String, RelationshipStyle> relationshipStylesByTags = new ConcurrentHashMap<>();
+
+    // element/relationship ID -> resolved style; keyed by ID, as Element.hashCode() is based upon the (computed) canonical name
+    private final Map<String, ElementStyle> elementStyles = new ConcurrentHashMap<>();
+    private final Map<String, RelationshipStyle> relationshipStyles = new ConcurrentHashMap<>();
+
+    private final Map<String, Optional<ElementStyle>> elementStylesByTag = new ConcurrentHashMap<>();
+
+    public StyleResolver(Styles styles) {
+        if (styles == null) {
+            throw new IllegalArgumentException("Styles must be provided.");
+        }
+
+        this.styles = styles;
+    }
+
+    /**
+     * Creates a style resolver for the given workspace, resolving the styles for every element and relationship
+     * in the model up front. The resolver can be shared by any number of exporters, for as long as the styles
+     * and tags in the workspace don't change.
+     *
+     * @param workspace     a Workspace
+     * @return  a StyleResolver
+     */
+    public static StyleResolver forWorkspace(Workspace workspace) {
+        if (workspace == null) {
+            throw new IllegalArgumentException("A workspace must be provided.");
+        }
+
+        StyleResolver styleResolver = new StyleResolver(workspace.getViews().getConfiguration().getStyles());
+
+        for (Element element : workspace.getModel().getElements()) {
+            styleResolver.findElementStyle(element);
+        }
+
+        for (Relationship relationship : workspace.getModel().getRelationships()) {
+            styleResolver.findRelationshipStyle(relationship);
+        }
+
+        return styleResolver;
+    }
+
+    /**
+     * Determines whether this style resolver resolves the given styles.
+     *
+     * @param styles    a Styles instance
+     * @return  true if this resolver was created for the given styles, false otherwise
+     */
+    public boolean isFor(Styles styles) {
+        return this.styles == styles;
+    }
+
+    /**
+     * Finds the style for an element, as per {@link Styles#findElementStyle(Element)}.
+     *
+     * @param element   an Element
+     * @return  an ElementStyle (not null)
+     */
+    public ElementStyle findElementStyle(Element element) {
+        ElementStyle elementStyle = elementStyles.get(element.getId());
+        if (elementStyle == null) {
+            if (element instanceof DeploymentElement) {
+                elementStyle = styles.findElementStyle(element);
+            } else {
+                elementStyle = elementStylesByTags.computeIfAbsent(element.getTags(), tags -> styles.findElementStyle(element));
+            }
+            elementStyles.put(element.getId(), elementStyle);
+        }
+
+        return elementStyle;
+    }
+
+    /**
+     * Finds the element style defined for a single tag (e.g. "Group:Name"), as per {@link Styles#findElementStyle(String)}.
+     *
+     * @param tag   a tag
+     * @return  an ElementStyle, or null if no style is defined for the tag
+     */
+    public ElementStyle findElementStyle(String tag) {
+        return elementStylesByTag.computeIfAbsent(tag, t -> Optional.ofNullable(styles.findElementStyle(t))).orElse(null);
+    }
+
+    /**
+     * Finds the style for a relationship, as per {@link Styles#findRelationshipStyle(Relationship)}.
+     *
+     * @param relationship  a Relationship
+     * @return  a RelationshipStyle (not null)
+     */
+    public RelationshipStyle findRelationshipStyle(Relationship relationship) {
+        RelationshipStyle relationshipStyle = relationshipStyles.get(relationship.getId());
+        if (relationshipStyle == null) {
+            relationshipStyle = relationshipStylesByTags.computeIfAbsent(relationship.getTags(), tags -> styles.findRelationshipStyle(relationship));
+            relationshipStyles.put(relationship.getId(), relationshipStyle);
+        }
+
+        return relationshipStyle;
+    }
+
+}
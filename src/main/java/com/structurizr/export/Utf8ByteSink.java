@@ -0,0 +1,272 @@
+package com.structurizr.export;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An Appendable that encodes text as UTF-8 straight into a reusable ByteBuffer, so that diagram definitions
+ * can be written as bytes without first being built (and then encoded) as a String.
+ *
+ * Without a channel, the bytes are kept in a buffer that grows as needed (see {@link #getBytes()}), and the sink
+ * can be reused via {@link #reset()}. With a channel (e.g. a FileChannel), the bytes are written to the channel
+ * whenever the buffer fills up, and when the sink is flushed. Only blocking channels are supported, because the sink
+ * has no way of waiting for a non-blocking channel to become writable.
+ *
+ * Unpaired surrogates are encoded as '?', as they are by String.getBytes(StandardCharsets.UTF_8); a high surrogate
+ * at the end of the text is encoded when the sink is flushed, or its bytes are read. A sink is not thread-safe.
+ */
+public final class Utf8ByteSink implements Appendable, Flushable {
+
+    public static final int DEFAULT_CAPACITY = 8 * 1024;
+
+    private final WritableByteChannel channel;
+    private ByteBuffer buffer;
+
+    private char highSurrogate = 0;
+    private long bytesWritten = 0;
+
+    /**
+     * Creates a sink that keeps the encoded bytes in memory.
+     */
+    public Utf8ByteSink() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a sink that keeps the encoded bytes in memory.
+     *
+     * @param capacity  the initial capacity of the buffer, in bytes
+     */
+    public Utf8ByteSink(int capacity) {
+        if (capacity < 4) {
+            throw new IllegalArgumentException("The capacity must be at least 4 bytes.");
+        }
+
+        this.channel = null;
+        this.buffer = ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Creates a sink that writes the encoded bytes to the given channel.
+     *
+     * @param channel   a blocking WritableByteChannel (e.g. a FileChannel)
+     */
+    public Utf8ByteSink(WritableByteChannel channel) {
+        this(channel, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a sink that writes the encoded bytes to the given channel.
+     *
+     * @param channel   a blocking WritableByteChannel (e.g. a FileChannel)
+     * @param capacity  the capacity of the buffer, in bytes
+     */
+    public Utf8ByteSink(WritableByteChannel channel, int capacity) {
+        if (channel == null) {
+            throw new IllegalArgumentException("A channel must be provided.");
+        }
+
+        if (isNonBlocking(channel)) {
+            throw new IllegalArgumentException("The channel must be in blocking mode.");
+        }
+
+        if (capacity < 4) {
+            throw new IllegalArgumentException("The capacity must be at least 4 bytes.");
+        }
+
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    @Override
+    public Utf8ByteSink append(CharSequence csq) throws IOException {
+        if (csq == null) {
+            csq = "null";
+        }
+
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Utf8ByteSink append(CharSequence csq, int start, int end) throws IOException {
+        if (csq == null) {
+            csq = "null";
+        }
+
+        for (int i = start; i < end; i++) {
+            write(csq.charAt(i));
+        }
+
+        return this;
+    }
+
+    @Override
+    public Utf8ByteSink append(char c) throws IOException {
+        write(c);
+
+        return this;
+    }
+
+    private void write(char c) throws IOException {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                ensureRemaining(4);
+                buffer.put((byte)(0xF0 | (codePoint >> 18)));
+                buffer.put((byte)(0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte)(0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte)(0x80 | (codePoint & 0x3F)));
+                return;
+            }
+
+            ensureRemaining(1);
+            buffer.put((byte)'?');
+        }
+
+        if (c < 0x80) {
+            ensureRemaining(1);
+            buffer.put((byte)c);
+        } else if (c < 0x800) {
+            ensureRemaining(2);
+            buffer.put((byte)(0xC0 | (c >> 6)));
+            buffer.put((byte)(0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c)) {
+            // wait for the low surrogate, which may be appended separately
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            ensureRemaining(1);
+            buffer.put((byte)'?');
+        } else {
+            ensureRemaining(3);
+            buffer.put((byte)(0xE0 | (c >> 12)));
+            buffer.put((byte)(0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte)(0x80 | (c & 0x3F)));
+        }
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+
+        if (channel != null) {
+            drain();
+        } else {
+            grow(bytes);
+        }
+    }
+
+    private void grow(int bytes) {
+        ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        ((Buffer)buffer).flip();
+        newBuffer.put(buffer);
+        buffer = newBuffer;
+    }
+
+    // a high surrogate at the end of the text is unpaired
+    private void writeTrailingHighSurrogate() throws IOException {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            ensureRemaining(1);
+            buffer.put((byte)'?');
+        }
+    }
+
+    // buffers are flipped and cleared via Buffer, so that the Java 8 methods are linked when built with a newer JDK
+    private void drain() throws IOException {
+        ((Buffer)buffer).flip();
+        while (buffer.hasRemaining()) {
+            int written = channel.write(buffer);
+            if (written == 0 && isNonBlocking(channel)) {
+                // rather than spinning until the channel becomes writable
+                throw new IOException("The channel is no longer in blocking mode.");
+            }
+
+            bytesWritten += written;
+        }
+        ((Buffer)buffer).clear();
+    }
+
+    private static boolean isNonBlocking(WritableByteChannel channel) {
+        return channel instanceof SelectableChannel && !((SelectableChannel)channel).isBlocking();
+    }
+
+    /**
+     * Writes any buffered bytes to the channel; this does nothing else for a sink without a channel.
+     * The text appended so far is treated as complete, so an unpaired high surrogate at the end is written as '?'.
+     *
+     * @throws IOException  if the channel throws an IOException, or is no longer in blocking mode
+     */
+    @Override
+    public void flush() throws IOException {
+        writeTrailingHighSurrogate();
+
+        if (channel != null) {
+            drain();
+        }
+    }
+
+    /**
+     * Gets the bytes encoded so far, by a sink without a channel. The returned buffer is a read-only view,
+     * which is only valid until more text is appended, or the sink is reset.
+     * As with {@link #flush()}, an unpaired high surrogate at the end of the text is written as '?'.
+     *
+     * @return  a read-only ByteBuffer, positioned at the first byte
+     * @throws IllegalStateException    if this sink writes to a channel
+     */
+    public ByteBuffer getBytes() {
+        if (channel != null) {
+            throw new IllegalStateException("The bytes have been written to a channel.");
+        }
+
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            if (!buffer.hasRemaining()) {
+                grow(1);
+            }
+            buffer.put((byte)'?');
+        }
+
+        ByteBuffer bytes = buffer.asReadOnlyBuffer();
+        ((Buffer)bytes).flip();
+
+        return bytes;
+    }
+
+    /**
+     * Gets the number of bytes encoded so far, including those that have already been written to the channel,
+     * and the '?' for a trailing unpaired high surrogate.
+     *
+     * @return  a number of bytes
+     */
+    public long size() {
+        return bytesWritten + buffer.position() + (highSurrogate != 0 ? 1 : 0);
+    }
+
+    /**
+     * Discards the bytes encoded so far (without writing them to the channel), so that the buffer can be reused.
+     */
+    public void reset() {
+        ((Buffer)buffer).clear();
+        highSurrogate = 0;
+        bytesWritten = 0;
+    }
+
+    @Override
+    public String toString() {
+        if (channel != null) {
+            return super.toString();
+        }
+
+        return StandardCharsets.UTF_8.decode(getBytes()).toString();
+    }
+
+}
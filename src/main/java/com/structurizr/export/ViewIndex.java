@@ -0,0 +1,354 @@
+package com.structurizr.export;
+
+import com.structurizr.model.*;
+import com.structurizr.view.*;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Lookups that are computed once for a view, and then shared by every render of that view (i.e. the
+ * diagram definition and its animation frames). A view index is read-only once built, so it can be
+ * used by renders running on different threads.
+ */
+public final class ViewIndex {
+
+    private static final Predicate<Element> ALL_ELEMENTS = element -> true;
+    private static final Predicate<RelationshipView> ALL_RELATIONSHIPS = relationshipView -> true;
+
+    private final View view;
+
+    private volatile AnimationIndex animationIndex;
+    private volatile Map<Element, List<Element>> elementsByParent;
+    private volatile List<DeploymentTreeNode> deploymentTree;
+    private volatile StyleResolver styleResolver;
+
+    public ViewIndex(View view) {
+        if (view == null) {
+            throw new IllegalArgumentException("A view must be provided.");
+        }
+
+        this.view = view;
+    }
+
+    /**
+     * Creates a view index that uses an existing style resolver (e.g. one shared by all views in a workspace).
+     *
+     * @param view              the view
+     * @param styleResolver     a style resolver for the styles of the workspace containing the view
+     */
+    public ViewIndex(View view, StyleResolver styleResolver) {
+        this(view);
+
+        if (styleResolver == null) {
+            throw new IllegalArgumentException("A style resolver must be provided.");
+        }
+
+        this.styleResolver = styleResolver;
+    }
+
+    public View getView() {
+        return view;
+    }
+
+    /**
+     * Gets the style resolver for the view, which is shared by every render of the view (including its legend),
+     * and possibly by other views in the same workspace.
+     *
+     * @return  a StyleResolver
+     */
+    public StyleResolver getStyleResolver() {
+        StyleResolver resolver = styleResolver;
+        if (resolver == null) {
+            synchronized (this) {
+                resolver = styleResolver;
+                if (resolver == null) {
+                    resolver = new StyleResolver(view.getViewSet().getConfiguration().getStyles());
+                    styleResolver = resolver;
+                }
+            }
+        }
+
+        return resolver;
+    }
+
+    /**
+     * Gets the elements that are visible in the given animation frame.
+     *
+     * @param frame     an animation step (Integer) for static and deployment views, an order (String) for dynamic views,
+     *                  or null for the entire view
+     * @return  a predicate that determines whether an element is visible
+     */
+    public Predicate<Element> getVisibleElements(Object frame) {
+        if (frame == null) {
+            return ALL_ELEMENTS;
+        }
+
+        AnimationIndex index;
+        BitSet visibleElements;
+        if (view instanceof StaticView || view instanceof DeploymentView) {
+            int step = (int)frame;
+            if (step <= 0) {
+                return ALL_ELEMENTS;
+            }
+
+            index = getAnimationIndex();
+            visibleElements = index.getVisibleElements(step);
+        } else if (view instanceof DynamicView) {
+            index = getAnimationIndex();
+            visibleElements = index.getVisibleElements((String)frame);
+        } else {
+            return ALL_ELEMENTS;
+        }
+
+        return element -> index.contains(visibleElements, element);
+    }
+
+    /**
+     * Gets the relationships that are visible in the given animation frame; in a dynamic view, these are the
+     * relationships with the given order, and in other views, every relationship is visible in every frame
+     * (relationships between elements that aren't yet visible are omitted by the elements being hidden).
+     *
+     * @param frame     an animation step (Integer) for static and deployment views, an order (String) for dynamic views,
+     *                  or null for the entire view
+     * @return  a predicate that determines whether a relationship is visible
+     */
+    public Predicate<RelationshipView> getVisibleRelationships(Object frame) {
+        if (frame == null || !(view instanceof DynamicView)) {
+            return ALL_RELATIONSHIPS;
+        }
+
+        Set<RelationshipView> visibleRelationships = getAnimationIndex().getVisibleRelationships((String)frame);
+
+        return visibleRelationships::contains;
+    }
+
+    /**
+     * Gets the elements in the view that have the given parent, in the order they appear in the view.
+     *
+     * @param parent    the parent element (e.g. a software system or container), or null for top-level elements
+     * @return  a (possibly empty) unmodifiable list of elements
+     */
+    public List<Element> getElementsWithParent(Element parent) {
+        return getElementsByParent().getOrDefault(parent, Collections.emptyList());
+    }
+
+    private Map<Element, List<Element>> getElementsByParent() {
+        Map<Element, List<Element>> index = elementsByParent;
+        if (index == null) {
+            synchronized (this) {
+                index = elementsByParent;
+                if (index == null) {
+                    // parents are compared by identity, as Element.equals/hashCode use the (computed) canonical name
+                    index = new IdentityHashMap<>();
+                    for (ElementView elementView : view.getElements()) {
+                        Element element = elementView.getElement();
+                        index.computeIfAbsent(element.getParent(), parent -> new ArrayList<>()).add(element);
+                    }
+                    for (Map.Entry<Element, List<Element>> entry : index.entrySet()) {
+                        entry.setValue(Collections.unmodifiableList(entry.getValue()));
+                    }
+                    elementsByParent = index;
+                }
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Gets the top-level deployment nodes in a deployment view, in the order they appear in the view,
+     * pruned to only include the deployment nodes, infrastructure nodes and instances that are in the view.
+     *
+     * @return  an unmodifiable list of deployment tree nodes (empty if this isn't a deployment view)
+     */
+    public List<DeploymentTreeNode> getDeploymentTree() {
+        List<DeploymentTreeNode> tree = deploymentTree;
+        if (tree == null) {
+            synchronized (this) {
+                tree = deploymentTree;
+                if (tree == null) {
+                    tree = buildDeploymentTree();
+                    deploymentTree = tree;
+                }
+            }
+        }
+
+        return tree;
+    }
+
+    private List<DeploymentTreeNode> buildDeploymentTree() {
+        if (!(view instanceof DeploymentView)) {
+            return Collections.emptyList();
+        }
+
+        Set<String> elementsInView = new HashSet<>();
+        for (ElementView elementView : view.getElements()) {
+            elementsInView.add(elementView.getElement().getId());
+        }
+
+        List<DeploymentTreeNode> tree = new ArrayList<>();
+        for (ElementView elementView : view.getElements()) {
+            if (elementView.getElement() instanceof DeploymentNode && elementView.getElement().getParent() == null) {
+                tree.add(new DeploymentTreeNode((DeploymentNode)elementView.getElement(), elementsInView));
+            }
+        }
+
+        return Collections.unmodifiableList(tree);
+    }
+
+    private AnimationIndex getAnimationIndex() {
+        AnimationIndex index = animationIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = animationIndex;
+                if (index == null) {
+                    index = new AnimationIndex(view);
+                    animationIndex = index;
+                }
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Maps every animation step (static and deployment views) or order (dynamic views)
+     * to the set of elements that are visible in it.
+     */
+    private static final class AnimationIndex {
+
+        private static final BitSet NO_ELEMENTS = new BitSet();
+
+        private final Map<String, Integer> elementIndexes = new HashMap<>();
+
+        // animation step -> elements visible at that step, including those introduced by earlier steps
+        private final TreeMap<Integer, BitSet> steps = new TreeMap<>();
+
+        // dynamic view order -> source and destination elements of the relationships with that order
+        private final Map<String, BitSet> orders = new HashMap<>();
+
+        // dynamic view order -> the relationships with that order (compared by identity, as a relationship may appear with several orders)
+        private final Map<String, Set<RelationshipView>> relationshipsByOrder = new HashMap<>();
+
+        AnimationIndex(View view) {
+            for (ElementView elementView : view.getElements()) {
+                indexOf(elementView.getElement().getId());
+            }
+
+            List<Animation> animations = null;
+            if (view instanceof StaticView) {
+                animations = new ArrayList<>(((StaticView)view).getAnimations());
+            } else if (view instanceof DeploymentView) {
+                animations = new ArrayList<>(((DeploymentView)view).getAnimations());
+            }
+
+            if (animations != null) {
+                animations.sort(Comparator.comparingInt(Animation::getOrder));
+
+                BitSet visibleElements = new BitSet();
+                for (Animation animation : animations) {
+                    for (String elementId : animation.getElements()) {
+                        visibleElements.set(indexOf(elementId));
+                    }
+                    steps.put(animation.getOrder(), (BitSet)visibleElements.clone());
+                }
+            } else if (view instanceof DynamicView) {
+                for (RelationshipView relationshipView : view.getRelationships()) {
+                    if (relationshipView.getOrder() != null) {
+                        BitSet visibleElements = orders.computeIfAbsent(relationshipView.getOrder(), order -> new BitSet());
+                        visibleElements.set(indexOf(relationshipView.getRelationship().getSourceId()));
+                        visibleElements.set(indexOf(relationshipView.getRelationship().getDestinationId()));
+
+                        relationshipsByOrder.computeIfAbsent(relationshipView.getOrder(), order -> Collections.newSetFromMap(new IdentityHashMap<>())).add(relationshipView);
+                    }
+                }
+            }
+        }
+
+        private int indexOf(String elementId) {
+            return elementIndexes.computeIfAbsent(elementId, id -> elementIndexes.size());
+        }
+
+        BitSet getVisibleElements(int step) {
+            Map.Entry<Integer, BitSet> entry = steps.floorEntry(step);
+            return entry != null ? entry.getValue() : NO_ELEMENTS;
+        }
+
+        BitSet getVisibleElements(String order) {
+            return orders.getOrDefault(order, NO_ELEMENTS);
+        }
+
+        Set<RelationshipView> getVisibleRelationships(String order) {
+            return relationshipsByOrder.getOrDefault(order, Collections.emptySet());
+        }
+
+        boolean contains(BitSet elements, Element element) {
+            Integer index = elementIndexes.get(element.getId());
+            return index != null && elements.get(index);
+        }
+
+    }
+
+    /**
+     * A deployment node in a deployment view, along with its children that are also in the view, sorted by name.
+     */
+    public static final class DeploymentTreeNode {
+
+        private final DeploymentNode deploymentNode;
+        private final List<DeploymentTreeNode> children;
+        private final List<InfrastructureNode> infrastructureNodes;
+        private final List<SoftwareSystemInstance> softwareSystemInstances;
+        private final List<ContainerInstance> containerInstances;
+
+        private DeploymentTreeNode(DeploymentNode deploymentNode, Set<String> elementsInView) {
+            this.deploymentNode = deploymentNode;
+
+            List<DeploymentNode> childNodes = inView(deploymentNode.getChildren(), elementsInView, DeploymentNode::getName);
+            List<DeploymentTreeNode> children = new ArrayList<>(childNodes.size());
+            for (DeploymentNode child : childNodes) {
+                children.add(new DeploymentTreeNode(child, elementsInView));
+            }
+            this.children = Collections.unmodifiableList(children);
+
+            this.infrastructureNodes = inView(deploymentNode.getInfrastructureNodes(), elementsInView, InfrastructureNode::getName);
+            this.softwareSystemInstances = inView(deploymentNode.getSoftwareSystemInstances(), elementsInView, SoftwareSystemInstance::getName);
+            this.containerInstances = inView(deploymentNode.getContainerInstances(), elementsInView, ContainerInstance::getName);
+        }
+
+        private static <T extends Element> List<T> inView(Collection<T> elements, Set<String> elementsInView, Function<T, String> sortKey) {
+            if (elements.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            List<T> list = new ArrayList<>(elements);
+            list.sort(Comparator.comparing(sortKey));
+            list.removeIf(element -> !elementsInView.contains(element.getId()));
+
+            return Collections.unmodifiableList(list);
+        }
+
+        public DeploymentNode getDeploymentNode() {
+            return deploymentNode;
+        }
+
+        public List<DeploymentTreeNode> getChildren() {
+            return children;
+        }
+
+        public List<InfrastructureNode> getInfrastructureNodes() {
+            return infrastructureNodes;
+        }
+
+        public List<SoftwareSystemInstance> getSoftwareSystemInstances() {
+            return softwareSystemInstances;
+        }
+
+        public List<ContainerInstance> getContainerInstances() {
+            return containerInstances;
+        }
+
+    }
+
+}
@@ -0,0 +1,452 @@
+package com.structurizr.export;
+
+import com.structurizr.Workspace;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports a workspace with a number of diagram and workspace exporters, streaming the results into a single
+ * ZIP or tar archive. Each diagram (with its animation frames and legend) is written to the archive as soon as
+ * it has been rendered (see {@link DiagramExporter#exportTo(Workspace, java.util.function.Consumer)}), so only
+ * one diagram is held in memory at a time.
+ *
+ * Entries are named in the same way as the files written by {@link WorkspaceExportRunner}
+ * (e.g. "SystemContext.puml", "SystemContext-1.puml" and "SystemContext-key.puml"), and entries that wouldn't be
+ * extracted within the archive's directory (e.g. from view keys containing "..") are rejected.
+ * If an export fails, the archive is abandoned without being finished. By default, every entry has the time at which the archive was written; set a fixed entry time for reproducible archives.
+ */
+public final class WorkspaceArchiveWriter {
+
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final long EARLIEST_ZIP_TIME = 315532800000L; // 1980-01-01T00:00:00Z
+
+    private final ArchiveFormat format;
+    private final List<Registration<DiagramExporter>> diagramExporters = new ArrayList<>();
+    private final List<Registration<WorkspaceExporter>> workspaceExporters = new ArrayList<>();
+
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private Long entryTime = null;
+
+    public WorkspaceArchiveWriter(ArchiveFormat format) {
+        if (format == null) {
+            throw new IllegalArgumentException("An archive format must be provided.");
+        }
+
+        this.format = format;
+    }
+
+    /**
+     * Adds a diagram exporter, whose diagrams are written to the root of the archive.
+     *
+     * @param exporter      a DiagramExporter
+     */
+    public void addExporter(DiagramExporter exporter) {
+        addExporter(exporter, "");
+    }
+
+    /**
+     * Adds a diagram exporter, whose diagrams are written to a directory within the archive.
+     *
+     * @param exporter      a DiagramExporter
+     * @param directory     the directory (e.g. "plantuml")
+     */
+    public void addExporter(DiagramExporter exporter, String directory) {
+        if (exporter == null) {
+            throw new IllegalArgumentException("An exporter must be provided.");
+        }
+
+        diagramExporters.add(new Registration<>(exporter, toPrefix(directory)));
+    }
+
+    /**
+     * Adds a workspace exporter, whose export is written to the root of the archive.
+     *
+     * @param exporter      a WorkspaceExporter
+     */
+    public void addExporter(WorkspaceExporter exporter) {
+        addExporter(exporter, "");
+    }
+
+    /**
+     * Adds a workspace exporter, whose export is written to a directory within the archive.
+     *
+     * @param exporter      a WorkspaceExporter
+     * @param directory     the directory (e.g. "ilograph")
+     */
+    public void addExporter(WorkspaceExporter exporter, String directory) {
+        if (exporter == null) {
+            throw new IllegalArgumentException("An exporter must be provided.");
+        }
+
+        workspaceExporters.add(new Registration<>(exporter, toPrefix(directory)));
+    }
+
+    private String toPrefix(String directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("A directory must be provided.");
+        }
+
+        String prefix = directory.replace('\\', '/');
+        while (prefix.endsWith("/")) {
+            prefix = prefix.substring(0, prefix.length() - 1);
+        }
+
+        if (prefix.startsWith("/") || prefix.equals("..") || prefix.startsWith("../") || prefix.contains("/../") || prefix.endsWith("/..")) {
+            throw new IllegalArgumentException("The directory " + directory + " is not within the archive.");
+        }
+
+        return prefix.isEmpty() ? "" : prefix + "/";
+    }
+
+    /**
+     * Sets the compression level, as per {@link Deflater}; from 0 (no compression) to 9 (best compression).
+     * This has no effect on uncompressed tar archives.
+     *
+     * @param compressionLevel      a compression level, or Deflater.DEFAULT_COMPRESSION
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("The compression level must be between 0 and 9.");
+        }
+
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Sets the modification time of every entry in the archive, so that archives of the same workspace are identical.
+     *
+     * @param entryTime     a time, in milliseconds since the epoch (in ZIP archives, this is rounded down to
+     *                      the nearest 2 seconds, and times before 1980 are recorded as 1980-01-01)
+     */
+    public void setEntryTime(long entryTime) {
+        if (entryTime < 0) {
+            throw new IllegalArgumentException("The entry time must not be before the epoch.");
+        }
+
+        this.entryTime = entryTime;
+    }
+
+    /**
+     * Exports the workspace with every exporter, and writes the results to an archive. The stream is not closed.
+     *
+     * @param workspace     the workspace to be exported
+     * @param out           the stream to write the archive to
+     * @throws IOException  if the archive can't be written
+     * @throws IllegalStateException    if two exports would be written to the same entry
+     * @throws IllegalArgumentException if a view key can't be used in an entry name
+     */
+    public void write(Workspace workspace, OutputStream out) throws IOException {
+        if (workspace == null) {
+            throw new IllegalArgumentException("A workspace must be provided.");
+        }
+
+        if (out == null) {
+            throw new IllegalArgumentException("An output stream must be provided.");
+        }
+
+        long time = entryTime != null ? entryTime : System.currentTimeMillis();
+        ArchiveOutput archive = createArchiveOutput(new NonClosingOutputStream(out), time);
+        boolean finished = false;
+
+        try {
+            for (Registration<WorkspaceExporter> registration : workspaceExporters) {
+                WorkspaceExport export = registration.exporter.export(workspace);
+                archive.write(registration.prefix + ExportFileNames.of(export), export.getDefinition());
+            }
+
+            for (Registration<DiagramExporter> registration : diagramExporters) {
+                registration.exporter.exportTo(workspace, diagram -> {
+                    try {
+                        archive.write(registration.prefix + ExportFileNames.of(diagram), diagram.getDefinition());
+
+                        int frame = 1;
+                        for (Diagram frameDiagram : diagram.getFrames()) {
+                            archive.write(registration.prefix + ExportFileNames.ofFrame(diagram, frame), frameDiagram.getDefinition());
+                            frame++;
+                        }
+
+                        if (diagram.getLegend() != null) {
+                            archive.write(registration.prefix + ExportFileNames.ofLegend(diagram), diagram.getLegend().getDefinition());
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+
+            archive.finish();
+            finished = true;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (!finished) {
+                archive.abort();
+            }
+        }
+    }
+
+    private ArchiveOutput createArchiveOutput(OutputStream out, long time) throws IOException {
+        switch (format) {
+            case Zip:
+                return new ZipArchiveOutput(out, compressionLevel, time);
+            case TarGz:
+                return new TarArchiveOutput(new AbortableGZIPOutputStream(out, compressionLevel), time);
+            default:
+                return new TarArchiveOutput(out, time);
+        }
+    }
+
+    private abstract static class ArchiveOutput {
+
+        private final Set<String> names = new HashSet<>();
+
+        void write(String name, String definition) throws IOException {
+            String path = "/" + name + "/";
+            if (name.startsWith("/") || name.contains("\\") || path.contains("/../") || path.contains("/./")) {
+                throw new IllegalArgumentException("The entry " + name + " is not within the archive.");
+            }
+
+            if (!names.add(name)) {
+                throw new IllegalStateException("More than one export would be written to " + name + "; use a separate directory for each exporter.");
+            }
+
+            writeEntry(name, definition.getBytes(StandardCharsets.UTF_8));
+        }
+
+        abstract void writeEntry(String name, byte[] bytes) throws IOException;
+
+        abstract void finish() throws IOException;
+
+        // releases the compressor (if any) without writing the rest of the archive
+        abstract void abort();
+
+    }
+
+    private static final class ZipArchiveOutput extends ArchiveOutput {
+
+        private final AbortableZipOutputStream zip;
+        private final long time;
+
+        ZipArchiveOutput(OutputStream out, int compressionLevel, long time) {
+            this.zip = new AbortableZipOutputStream(out);
+            this.zip.setLevel(compressionLevel);
+
+            // ZIP entries hold a local (MS-DOS) date and time from 1980 onwards, so the time is adjusted for
+            // the default time zone, to record the same UTC date and time wherever the archive is written
+            time = Math.max(time, EARLIEST_ZIP_TIME);
+            this.time = time - TimeZone.getDefault().getOffset(time);
+        }
+
+        @Override
+        void writeEntry(String name, byte[] bytes) throws IOException {
+            ZipEntry entry = new ZipEntry(name);
+            entry.setTime(time);
+
+            zip.putNextEntry(entry);
+            zip.write(bytes);
+            zip.closeEntry();
+        }
+
+        @Override
+        void finish() throws IOException {
+            zip.close();
+        }
+
+        @Override
+        void abort() {
+            zip.abort();
+        }
+
+    }
+
+    // a POSIX (ustar) tar archive, with regular file entries only
+    private static final class TarArchiveOutput extends ArchiveOutput {
+
+        private final OutputStream out;
+        private final long time;
+
+        TarArchiveOutput(OutputStream out, long time) {
+            this.out = out;
+            this.time = time / 1000;
+        }
+
+        @Override
+        void writeEntry(String name, byte[] bytes) throws IOException {
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            if (nameBytes.length > 100 || nameBytes.length != name.length()) {
+                // long and non-ASCII names are recorded in a PAX extended header, which precedes the entry
+                byte[] record = paxRecord("path", name);
+                out.write(header("PaxHeaders/" + truncate(name), record.length, 'x'));
+                out.write(record);
+                pad(record.length);
+
+                name = truncate(name);
+            }
+
+            out.write(header(name, bytes.length, '0'));
+            out.write(bytes);
+            pad(bytes.length);
+        }
+
+        private byte[] header(String name, long size, char type) {
+            byte[] header = new byte[TAR_BLOCK_SIZE];
+
+            writeAscii(header, 0, name);
+            writeOctal(header, 100, 8, 0644);   // mode
+            writeOctal(header, 108, 8, 0);      // uid
+            writeOctal(header, 116, 8, 0);      // gid
+            writeOctal(header, 124, 12, size);
+            writeOctal(header, 136, 12, time);
+            header[156] = (byte)type;
+            writeAscii(header, 257, "ustar\0" + "00");
+
+            // the checksum is calculated with the checksum field set to spaces
+            writeAscii(header, 148, "        ");
+            long checksum = 0;
+            for (byte b : header) {
+                checksum += b & 0xFF;
+            }
+            writeOctal(header, 148, 7, checksum);
+            header[155] = ' ';
+
+            return header;
+        }
+
+        // an ASCII name of up to 100 characters, for the header of an entry with a PAX path
+        private static String truncate(String name) {
+            StringBuilder buf = new StringBuilder();
+            for (int i = 0; i < name.length() && buf.length() < 90; i++) {
+                char c = name.charAt(i);
+                buf.append(c < 0x80 ? c : '_');
+            }
+
+            return buf.toString();
+        }
+
+        // a PAX record is "<length> <key>=<value>\n", where the length includes its own digits
+        private static byte[] paxRecord(String key, String value) {
+            int length = (" " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8).length;
+            int digits = String.valueOf(length).length();
+            if (String.valueOf(length + digits).length() > digits) {
+                digits++;
+            }
+
+            return ((length + digits) + " " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+
+        private void pad(long length) throws IOException {
+            int remainder = (int)(length % TAR_BLOCK_SIZE);
+            if (remainder > 0) {
+                out.write(new byte[TAR_BLOCK_SIZE - remainder]);
+            }
+        }
+
+        // writes a zero-padded octal number, followed by a NUL
+        private static void writeOctal(byte[] header, int offset, int length, long value) {
+            String octal = Long.toOctalString(value);
+            int digits = length - 1;
+            if (octal.length() > digits) {
+                throw new IllegalArgumentException("The value " + value + " is too large for a tar header.");
+            }
+
+            for (int i = 0; i < digits - octal.length(); i++) {
+                header[offset + i] = '0';
+            }
+            writeAscii(header, offset + digits - octal.length(), octal);
+            header[offset + digits] = 0;
+        }
+
+        private static void writeAscii(byte[] header, int offset, String s) {
+            for (int i = 0; i < s.length(); i++) {
+                header[offset + i] = (byte)s.charAt(i);
+            }
+        }
+
+        @Override
+        void finish() throws IOException {
+            // the end of the archive is marked by two empty blocks
+            out.write(new byte[TAR_BLOCK_SIZE * 2]);
+            out.close();
+        }
+
+        @Override
+        void abort() {
+            if (out instanceof AbortableGZIPOutputStream) {
+                ((AbortableGZIPOutputStream)out).abort();
+            }
+        }
+
+    }
+
+    // the Deflater of a ZipOutputStream or GZIPOutputStream is only ended when the stream is closed,
+    // which would also finish the archive
+    private static final class AbortableZipOutputStream extends ZipOutputStream {
+
+        AbortableZipOutputStream(OutputStream out) {
+            super(out, StandardCharsets.UTF_8);
+        }
+
+        void abort() {
+            def.end();
+        }
+
+    }
+
+    private static final class AbortableGZIPOutputStream extends GZIPOutputStream {
+
+        AbortableGZIPOutputStream(OutputStream out, int compressionLevel) throws IOException {
+            super(out);
+            def.setLevel(compressionLevel);
+        }
+
+        void abort() {
+            def.end();
+        }
+
+    }
+
+    // lets the archive streams be closed (to finish them) without closing the caller's stream
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+    }
+
+    private static final class Registration<T> {
+
+        private final T exporter;
+        private final String prefix;
+
+        private Registration(T exporter, String prefix) {
+            this.exporter = exporter;
+            this.prefix = prefix;
+        }
+
+    }
+
+}
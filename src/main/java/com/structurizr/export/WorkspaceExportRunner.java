@@ -0,0 +1,270 @@
+package com.structurizr.export;
+
+import com.structurizr.Workspace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exports a workspace with a number of diagram and workspace exporters, and writes the results to files in an
+ * output directory. Views are rendered and files are written concurrently, using the executor
+ * (by default, ForkJoinPool.commonPool()); each diagram is written as soon as it has been rendered
+ * (see {@link DiagramExporter#exportTo(Workspace, Executor, java.util.function.Consumer)}).
+ *
+ * Each diagram is written to a file named after the view key and file extension (e.g. "SystemContext.puml"),
+ * with a file per animation frame (e.g. "SystemContext-1.puml") and for the legend (e.g. "SystemContext-key.puml").
+ * Each workspace export is written to a file named "workspace" (e.g. "workspace.idl").
+ * Files are written to a temporary file (with the same default permissions as any other new file) and then renamed,
+ * so on file systems that support atomic moves, a file is either absent, or complete; on other file systems,
+ * an existing file is replaced, and a file may be incomplete while it is being replaced.
+ * Use a separate directory for exporters that produce the same file names (e.g. the PlantUML exporters).
+ * View keys containing a path separator or ".." are rejected, so that every file is written to its exporter's directory.
+ */
+public final class WorkspaceExportRunner {
+
+    private final Path outputDirectory;
+    private final List<Registration<DiagramExporter>> diagramExporters = new ArrayList<>();
+    private final List<Registration<WorkspaceExporter>> workspaceExporters = new ArrayList<>();
+
+    private Executor executor = ForkJoinPool.commonPool();
+
+    /**
+     * Creates a runner that writes files to the given directory, which is created if it doesn't exist.
+     *
+     * @param outputDirectory   the output directory
+     */
+    public WorkspaceExportRunner(Path outputDirectory) {
+        if (outputDirectory == null) {
+            throw new IllegalArgumentException("An output directory must be provided.");
+        }
+
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * Adds a diagram exporter, whose files are written to the output directory.
+     *
+     * @param exporter      a DiagramExporter
+     */
+    public void addExporter(DiagramExporter exporter) {
+        addExporter(exporter, "");
+    }
+
+    /**
+     * Adds a diagram exporter, whose files are written to a directory within the output directory.
+     *
+     * @param exporter      a DiagramExporter
+     * @param directory     the directory, relative to the output directory (e.g. "plantuml")
+     */
+    public void addExporter(DiagramExporter exporter, String directory) {
+        if (exporter == null) {
+            throw new IllegalArgumentException("An exporter must be provided.");
+        }
+
+        diagramExporters.add(new Registration<>(exporter, resolve(directory)));
+    }
+
+    /**
+     * Adds a workspace exporter, whose file is written to the output directory.
+     *
+     * @param exporter      a WorkspaceExporter
+     */
+    public void addExporter(WorkspaceExporter exporter) {
+        addExporter(exporter, "");
+    }
+
+    /**
+     * Adds a workspace exporter, whose file is written to a directory within the output directory.
+     *
+     * @param exporter      a WorkspaceExporter
+     * @param directory     the directory, relative to the output directory (e.g. "ilograph")
+     */
+    public void addExporter(WorkspaceExporter exporter, String directory) {
+        if (exporter == null) {
+            throw new IllegalArgumentException("An exporter must be provided.");
+        }
+
+        workspaceExporters.add(new Registration<>(exporter, resolve(directory)));
+    }
+
+    private Path resolve(String directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("A directory must be provided.");
+        }
+
+        Path path = outputDirectory.resolve(directory).normalize();
+        if (!path.startsWith(outputDirectory.normalize())) {
+            throw new IllegalArgumentException("The directory " + directory + " is not within the output directory.");
+        }
+
+        return path;
+    }
+
+    /**
+     * Sets the executor used to render views and write files.
+     *
+     * @param executor      an Executor
+     */
+    public void setExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("An executor must be provided.");
+        }
+
+        this.executor = executor;
+    }
+
+    /**
+     * Exports the workspace with every exporter, and writes the results to files.
+     *
+     * @param workspace     the workspace to be exported
+     * @return  the files that were written; workspace exports first, and then the diagrams from each exporter in turn
+     * @throws IOException  if a file can't be written
+     * @throws IllegalStateException    if two exports would be written to the same file
+     * @throws IllegalArgumentException if a view key can't be used in a file name
+     */
+    public List<ExportedFile> run(Workspace workspace) throws IOException {
+        if (workspace == null) {
+            throw new IllegalArgumentException("A workspace must be provided.");
+        }
+
+        Files.createDirectories(outputDirectory);
+        for (Registration<WorkspaceExporter> registration : workspaceExporters) {
+            Files.createDirectories(registration.directory);
+        }
+        for (Registration<DiagramExporter> registration : diagramExporters) {
+            Files.createDirectories(registration.directory);
+        }
+
+        Set<Path> paths = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<ExportedFile>> files = new ArrayList<>();
+
+        try {
+            // workspace exports are rendered on the executor, while the views are being rendered
+            for (Registration<WorkspaceExporter> registration : workspaceExporters) {
+                files.add(CompletableFuture.supplyAsync(() -> {
+                    WorkspaceExport export = registration.exporter.export(workspace);
+                    return write(paths, registration.directory, ExportFileNames.of(export), export.getDefinition());
+                }, executor));
+            }
+
+            // diagrams are passed on (in order) as they are rendered, so they're written while later views are rendered
+            for (Registration<DiagramExporter> registration : diagramExporters) {
+                registration.exporter.exportTo(workspace, executor, diagram -> {
+                    files.add(writeAsync(paths, registration.directory, ExportFileNames.of(diagram), diagram.getDefinition()));
+
+                    int frame = 1;
+                    for (Diagram frameDiagram : diagram.getFrames()) {
+                        files.add(writeAsync(paths, registration.directory, ExportFileNames.ofFrame(diagram, frame), frameDiagram.getDefinition()));
+                        frame++;
+                    }
+
+                    if (diagram.getLegend() != null) {
+                        files.add(writeAsync(paths, registration.directory, ExportFileNames.ofLegend(diagram), diagram.getLegend().getDefinition()));
+                    }
+                });
+            }
+        } catch (RuntimeException | Error e) {
+            // don't throw while files are still being written
+            CompletableFuture.allOf(files.toArray(new CompletableFuture[0])).handle((result, throwable) -> null).join();
+            throw e;
+        }
+
+        await(files);
+
+        List<ExportedFile> exportedFiles = new ArrayList<>();
+        for (CompletableFuture<ExportedFile> file : files) {
+            exportedFiles.add(file.join());
+        }
+
+        return exportedFiles;
+    }
+
+    private CompletableFuture<ExportedFile> writeAsync(Set<Path> paths, Path directory, String name, String definition) {
+        return CompletableFuture.supplyAsync(() -> write(paths, directory, name, definition), executor);
+    }
+
+    private ExportedFile write(Set<Path> paths, Path directory, String name, String definition) {
+        long start = System.nanoTime();
+        Path path = directory.resolve(name).normalize();
+        if (!directory.equals(path.getParent())) {
+            throw new IllegalArgumentException("The file " + name + " is not within the directory " + directory + ".");
+        }
+
+        if (!paths.add(path)) {
+            throw new IllegalStateException("More than one export would be written to " + path + "; use a separate directory for each exporter.");
+        }
+
+        try {
+            // not Files.createTempFile, which creates files that only the owner can read (and renaming keeps them that way)
+            Path temporaryFile = directory.resolve("." + name + "-" + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+            FileChannel temporaryChannel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            try {
+                long size;
+                try (FileChannel channel = temporaryChannel) {
+                    Utf8ByteSink sink = new Utf8ByteSink(channel);
+                    sink.append(definition);
+                    sink.flush();
+                    size = sink.size();
+                }
+
+                try {
+                    Files.move(temporaryFile, path, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    // so the file may be incomplete while it's being replaced (see the class comment)
+                    Files.move(temporaryFile, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                return new ExportedFile(path, size, System.nanoTime() - start);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void await(List<CompletableFuture<ExportedFile>> files) throws IOException {
+        try {
+            CompletableFuture.allOf(files.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException)cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static final class Registration<T> {
+
+        private final T exporter;
+        private final Path directory;
+
+        private Registration(T exporter, Path directory) {
+            this.exporter = exporter;
+            this.directory = directory;
+        }
+
+    }
+
+}
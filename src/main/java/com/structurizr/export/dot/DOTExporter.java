@@ -2,7 +2,9 @@ package com.structurizr.export.dot;
 
 import com.structurizr.export.AbstractDiagramExporter;
 import com.structurizr.export.Diagram;
+import com.structurizr.export.Fingerprint;
 import com.structurizr.export.IndentingWriter;
+import com.structurizr.export.RenderContext;
 import com.structurizr.model.*;
 import com.structurizr.util.StringUtils;
 import com.structurizr.view.*;
@@ -13,6 +15,7 @@ import com.structurizr.view.*;
 public class DOTExporter extends AbstractDiagramExporter {
 
     private static final String DEFAULT_FONT = "Arial";
+    private static final int RELATIONSHIP_DESCRIPTION_WIDTH = 400;
 
     private int clusterInternalMargin = 25;
 
@@ -24,7 +27,14 @@ public class DOTExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void writeHeader(View view, IndentingWriter writer) {
+    protected void fingerprint(View view, Fingerprint fingerprint) {
+        super.fingerprint(view, fingerprint);
+
+        fingerprint.add("clusterInternalMargin", clusterInternalMargin);
+    }
+
+    @Override
+    protected void writeHeader(RenderContext context, View view, IndentingWriter writer) {
         String title = view.getTitle();
         if (StringUtils.isNullOrEmpty(title)) {
             title = view.getName();
@@ -73,13 +83,13 @@ public class DOTExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void writeFooter(View view, IndentingWriter writer) {
+    protected void writeFooter(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("}");
     }
 
     @Override
-    protected void startEnterpriseBoundary(View view, String enterpriseName, IndentingWriter writer) {
+    protected void startEnterpriseBoundary(RenderContext context, View view, String enterpriseName, IndentingWriter writer) {
         writer.writeLine("subgraph cluster_enterprise {");
 
         writer.indent();
@@ -93,22 +103,22 @@ public class DOTExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void endEnterpriseBoundary(View view, IndentingWriter writer) {
+    protected void endEnterpriseBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("}");
         writer.writeLine();
     }
 
     @Override
-    protected void startGroupBoundary(View view, String group, IndentingWriter writer) {
+    protected void startGroupBoundary(RenderContext context, View view, String group, IndentingWriter writer) {
         String color = "#cccccc";
 
         // is there a style for the group?
-        ElementStyle elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle("Group:" + group);
+        ElementStyle elementStyle = findElementStyle(context, "Group:" + group);
 
         if (elementStyle == null || StringUtils.isNullOrEmpty(elementStyle.getColor())) {
             // no, so is there a default group style?
-            elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle("Group");
+            elementStyle = findElementStyle(context, "Group");
         }
 
         if (elementStyle != null && !StringUtils.isNullOrEmpty(elementStyle.getColor())) {
@@ -128,14 +138,14 @@ public class DOTExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void endGroupBoundary(View view, IndentingWriter writer) {
+    protected void endGroupBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("}");
         writer.writeLine();
     }
 
     @Override
-    protected void startSoftwareSystemBoundary(View view, SoftwareSystem softwareSystem, IndentingWriter writer) {
+    protected void startSoftwareSystemBoundary(RenderContext context, View view, SoftwareSystem softwareSystem, IndentingWriter writer) {
         String color;
         if (softwareSystem.equals(view.getSoftwareSystem())) {
             color = "#444444";
@@ -155,14 +165,14 @@ public class DOTExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void endSoftwareSystemBoundary(View view, IndentingWriter writer) {
+    protected void endSoftwareSystemBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("}");
         writer.writeLine();
     }
 
     @Override
-    protected void startContainerBoundary(View view, Container container, IndentingWriter writer) {
+    protected void startContainerBoundary(RenderContext context, View view, Container container, IndentingWriter writer) {
         String color = "#444444";
         if (view instanceof ComponentView) {
             if (container.equals(((ComponentView)view).getContainer())) {
@@ -190,15 +200,15 @@ public class DOTExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void endContainerBoundary(View view, IndentingWriter writer) {
+    protected void endContainerBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("}");
         writer.writeLine();
     }
 
     @Override
-    protected void startDeploymentNodeBoundary(DeploymentView view, DeploymentNode deploymentNode, IndentingWriter writer) {
-        ElementStyle elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle(deploymentNode);
+    protected void startDeploymentNodeBoundary(RenderContext context, DeploymentView view, DeploymentNode deploymentNode, IndentingWriter writer) {
+        ElementStyle elementStyle = findElementStyle(context, deploymentNode);
 
         writer.writeLine(String.format("subgraph cluster_%s {", deploymentNode.getId()));
         writer.indent();
@@ -212,22 +222,22 @@ public class DOTExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void endDeploymentNodeBoundary(View view, IndentingWriter writer) {
+    protected void endDeploymentNodeBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("}");
         writer.writeLine();
     }
 
     @Override
-    protected void writeElement(View view, Element element, IndentingWriter writer) {
-        ElementStyle elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle(element);
+    protected void writeElement(RenderContext context, View view, Element element, IndentingWriter writer) {
+        ElementStyle elementStyle = findElementStyle(context, element);
 
         int nameFontSize = elementStyle.getFontSize() + 10;
         int metadataFontSize = elementStyle.getFontSize() - 5;
         int descriptionFontSize = elementStyle.getFontSize();
 
 
-        String shape = shapeOf(view, element);
+        String shape = shapeOf(context, element);
         String name = element.getName();
         String description = element.getDescription();
         String type = typeOf(view, element, true);
@@ -237,7 +247,7 @@ public class DOTExporter extends AbstractDiagramExporter {
             name = elementInstance.getElement().getName();
             description = elementInstance.getElement().getDescription();
             type = typeOf(view, elementInstance.getElement(), true);
-            shape = shapeOf(view, elementInstance.getElement());
+            shape = shapeOf(context, elementInstance.getElement());
         }
 
         if (StringUtils.isNullOrEmpty(name)) {
@@ -272,12 +282,11 @@ public class DOTExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void writeRelationship(View view, RelationshipView relationshipView, IndentingWriter writer) {
+    protected void writeRelationship(RenderContext context, View view, RelationshipView relationshipView, IndentingWriter writer) {
         Element source;
         Element destination;
 
-        RelationshipStyle relationshipStyle = view.getViewSet().getConfiguration().getStyles().findRelationshipStyle(relationshipView.getRelationship());
-        relationshipStyle.setWidth(400);
+        RelationshipStyle relationshipStyle = findRelationshipStyle(context, relationshipView.getRelationship());
         int descriptionFontSize = relationshipStyle.getFontSize();
         int metadataFontSize = relationshipStyle.getFontSize() - 5;
 
@@ -293,7 +302,7 @@ public class DOTExporter extends AbstractDiagramExporter {
         if (StringUtils.isNullOrEmpty(description)) {
             description = "";
         } else {
-            description = breakText(relationshipStyle.getWidth(), descriptionFontSize, description);
+            description = breakText(RELATIONSHIP_DESCRIPTION_WIDTH, descriptionFontSize, description);
             description = String.format("<font point-size=\"%s\">%s</font>", descriptionFontSize, description);
         }
 
@@ -360,12 +369,12 @@ public class DOTExporter extends AbstractDiagramExporter {
         }
     }
 
-    private String shapeOf(View view, Element element) {
+    private String shapeOf(RenderContext context, Element element) {
         if (element instanceof DeploymentNode) {
             return "node";
         }
 
-        Shape shape = view.getViewSet().getConfiguration().getStyles().findElementStyle(element).getShape();
+        Shape shape = findElementStyle(context, element).getShape();
         switch(shape) {
             case Circle:
                 return "circle";
@@ -3,6 +3,7 @@ package com.structurizr.export.ilograph;
 import com.structurizr.Workspace;
 import com.structurizr.export.AbstractWorkspaceExporter;
 import com.structurizr.export.IndentingWriter;
+import com.structurizr.export.StyleResolver;
 import com.structurizr.export.WorkspaceExport;
 import com.structurizr.model.*;
 import com.structurizr.util.StringUtils;
@@ -18,6 +19,7 @@ public class IlographExporter extends AbstractWorkspaceExporter {
 
     public WorkspaceExport export(Workspace workspace) {
         IndentingWriter writer = new IndentingWriter();
+        StyleResolver styles = new StyleResolver(workspace.getViews().getConfiguration().getStyles());
         writer.writeLine("resources:");
         writer.writeLine();
         writer.indent();
@@ -28,21 +30,21 @@ public class IlographExporter extends AbstractWorkspaceExporter {
         List<CustomElement> customElements = new ArrayList<>(model.getCustomElements());
         customElements.sort(Comparator.comparing(CustomElement::getId));
         for (CustomElement customElement : customElements) {
-            writeElement(writer, workspace, customElement);
+            writeElement(writer, workspace, styles, customElement);
             elements.add(customElement);
         }
 
         List<Person> people = new ArrayList<>(model.getPeople());
         people.sort(Comparator.comparing(Person::getId));
         for (Person person : people) {
-            writeElement(writer, workspace, person);
+            writeElement(writer, workspace, styles, person);
             elements.add(person);
         }
 
         List<SoftwareSystem> softwareSystems = new ArrayList<>(model.getSoftwareSystems());
         softwareSystems.sort(Comparator.comparing(SoftwareSystem::getId));
         for (SoftwareSystem softwareSystem : softwareSystems) {
-            writeElement(writer, workspace, softwareSystem);
+            writeElement(writer, workspace, styles, softwareSystem);
             elements.add(softwareSystem);
 
             if (!softwareSystem.getContainers().isEmpty()) {
@@ -53,7 +55,7 @@ public class IlographExporter extends AbstractWorkspaceExporter {
                 List<Container> containers = new ArrayList<>(softwareSystem.getContainers());
                 containers.sort(Comparator.comparing(Container::getId));
                 for (Container container : containers) {
-                    writeElement(writer, workspace, container);
+                    writeElement(writer, workspace, styles, container);
                     elements.add(container);
 
                     if (!container.getComponents().isEmpty()) {
@@ -64,7 +66,7 @@ public class IlographExporter extends AbstractWorkspaceExporter {
                         List<Component> components = new ArrayList<>(container.getComponents());
                         components.sort(Comparator.comparing(Component::getId));
                         for (Component component : components) {
-                            writeElement(writer, workspace, component);
+                            writeElement(writer, workspace, styles, component);
                             elements.add(component);
                         }
 
@@ -82,7 +84,7 @@ public class IlographExporter extends AbstractWorkspaceExporter {
         List<DeploymentNode> deploymentNodes = new ArrayList<>(model.getDeploymentNodes());
         deploymentNodes.sort(Comparator.comparing(DeploymentNode::getId));
         for (DeploymentNode deploymentNode : deploymentNodes) {
-            writeDeploymentNode(workspace, deploymentNode, writer);
+            writeDeploymentNode(workspace, styles, deploymentNode, writer);
         }
 
         Set<Relationship> relationships = new LinkedHashSet<>();
@@ -125,10 +127,10 @@ public class IlographExporter extends AbstractWorkspaceExporter {
 
         writer.outdent();
 
-        writeRelationshipsForStaticStructurePerspective(workspace.getViews().getConfiguration(), relationships, writer);
+        writeRelationshipsForStaticStructurePerspective(styles, relationships, writer);
 
         for (DynamicView dynamicView : workspace.getViews().getDynamicViews()) {
-            writeDynamicView(dynamicView, writer);
+            writeDynamicView(dynamicView, styles, writer);
         }
 
         Set<String> deploymentEnvironments = new HashSet<>();
@@ -138,14 +140,14 @@ public class IlographExporter extends AbstractWorkspaceExporter {
         List<String> sortedDeploymentEnvironments = new ArrayList<>(deploymentEnvironments);
         sortedDeploymentEnvironments.sort(Comparator.comparing(String::toString));
         for (String deploymentEnvironment : sortedDeploymentEnvironments) {
-            writeDeploymentEnvironment(workspace, deploymentEnvironment, writer);
+            writeDeploymentEnvironment(workspace, styles, deploymentEnvironment, writer);
         }
 
         return new IlographWorkspaceExport(writer.toString());
     }
 
-    private void writeDeploymentNode(Workspace workspace, DeploymentNode deploymentNode, IndentingWriter writer) {
-        writeElement(writer, workspace, deploymentNode);
+    private void writeDeploymentNode(Workspace workspace, StyleResolver styles, DeploymentNode deploymentNode, IndentingWriter writer) {
+        writeElement(writer, workspace, styles, deploymentNode);
 
         boolean hasChildren = !deploymentNode.getChildren().isEmpty() || !deploymentNode.getInfrastructureNodes().isEmpty() || !deploymentNode.getSoftwareSystemInstances().isEmpty() || !deploymentNode.getContainerInstances().isEmpty();
 
@@ -158,38 +160,38 @@ public class IlographExporter extends AbstractWorkspaceExporter {
         List<DeploymentNode> deploymentNodes = new ArrayList<>(deploymentNode.getChildren());
         deploymentNodes.sort(Comparator.comparing(DeploymentNode::getId));
         for (DeploymentNode child : deploymentNodes) {
-            writeDeploymentNode(workspace, child, writer);
+            writeDeploymentNode(workspace, styles, child, writer);
         }
 
         List<InfrastructureNode> infrastructureNodes = new ArrayList<>(deploymentNode.getInfrastructureNodes());
         infrastructureNodes.sort(Comparator.comparing(InfrastructureNode::getId));
         for (InfrastructureNode infrastructureNode : infrastructureNodes) {
-            writeElement(writer, workspace, infrastructureNode);
+            writeElement(writer, workspace, styles, infrastructureNode);
         }
 
         List<SoftwareSystemInstance> softwareSystemInstances = new ArrayList<>(deploymentNode.getSoftwareSystemInstances());
         softwareSystemInstances.sort(Comparator.comparing(SoftwareSystemInstance::getId));
         for (SoftwareSystemInstance softwareSystemInstance : softwareSystemInstances) {
-            writeElement(writer, workspace, softwareSystemInstance);
+            writeElement(writer, workspace, styles, softwareSystemInstance);
         }
 
         List<ContainerInstance> containerInstances = new ArrayList<>(deploymentNode.getContainerInstances());
         containerInstances.sort(Comparator.comparing(ContainerInstance::getId));
         for (ContainerInstance containerInstance : containerInstances) {
-            writeElement(writer, workspace, containerInstance);
+            writeElement(writer, workspace, styles, containerInstance);
         }
 
         writer.outdent();
         writer.outdent();
     }
 
-    private void writeElement(IndentingWriter writer, Workspace workspace, Element element) {
+    private void writeElement(IndentingWriter writer, Workspace workspace, StyleResolver styles, Element element) {
         writer.writeLine(String.format("- id: \"%s\"", element.getId()));
 
         String name;
         String type;
         String description;
-        ElementStyle elementStyle = workspace.getViews().getConfiguration().getStyles().findElementStyle(element);
+        ElementStyle elementStyle = styles.findElementStyle(element);
 
         if (element instanceof StaticStructureElementInstance) {
             StaticStructureElementInstance elementInstance = (StaticStructureElementInstance)element;
@@ -220,7 +222,7 @@ public class IlographExporter extends AbstractWorkspaceExporter {
         writer.outdent();
     }
 
-    private void writeRelationshipsForStaticStructurePerspective(Configuration configuration, Collection<Relationship> relationships, IndentingWriter writer) {
+    private void writeRelationshipsForStaticStructurePerspective(StyleResolver styles, Collection<Relationship> relationships, IndentingWriter writer) {
         writer.writeLine("perspectives:");
         writer.indent();
         writer.writeLine("- name: Static Structure");
@@ -229,7 +231,7 @@ public class IlographExporter extends AbstractWorkspaceExporter {
         writer.indent();
 
         for (Relationship relationship : relationships) {
-            RelationshipStyle relationshipStyle = configuration.getStyles().findRelationshipStyle(relationship);
+            RelationshipStyle relationshipStyle = styles.findRelationshipStyle(relationship);
 
             writer.writeLine(String.format("- from: \"%s\"", relationship.getSourceId()));
             writer.indent();
@@ -256,7 +258,7 @@ public class IlographExporter extends AbstractWorkspaceExporter {
         writer.outdent();
     }
 
-    private void writeDynamicView(DynamicView dynamicView, IndentingWriter writer) {
+    private void writeDynamicView(DynamicView dynamicView, StyleResolver styles, IndentingWriter writer) {
         writer.indent();
         writer.writeLine("- name: Dynamic - " + dynamicView.getName());
         writer.indent();
@@ -265,7 +267,7 @@ public class IlographExporter extends AbstractWorkspaceExporter {
         int count = 0;
         for (RelationshipView relationshipView : dynamicView.getRelationships()) {
             Relationship relationship = relationshipView.getRelationship();
-            RelationshipStyle relationshipStyle = dynamicView.getViewSet().getConfiguration().getStyles().findRelationshipStyle(relationship);
+            RelationshipStyle relationshipStyle = styles.findRelationshipStyle(relationship);
 
             if (count == 0) {
                 writer.indent();
@@ -307,7 +309,7 @@ public class IlographExporter extends AbstractWorkspaceExporter {
         writer.outdent();
     }
 
-    private void writeDeploymentEnvironment(Workspace workspace, String deploymentEnvironment, IndentingWriter writer) {
+    private void writeDeploymentEnvironment(Workspace workspace, StyleResolver styles, String deploymentEnvironment, IndentingWriter writer) {
         writer.indent();
         writer.writeLine("- name: Deployment - " + deploymentEnvironment);
         writer.indent();
@@ -323,7 +325,7 @@ public class IlographExporter extends AbstractWorkspaceExporter {
         writer.indent();
 
         for (Relationship relationship : relationships) {
-            RelationshipStyle relationshipStyle = workspace.getViews().getConfiguration().getStyles().findRelationshipStyle(relationship);
+            RelationshipStyle relationshipStyle = styles.findRelationshipStyle(relationship);
 
             writer.writeLine(String.format("- from: \"%s\"", relationship.getSourceId()));
             writer.indent();
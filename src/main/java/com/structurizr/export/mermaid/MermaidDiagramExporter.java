@@ -3,6 +3,8 @@ package com.structurizr.export.mermaid;
 import com.structurizr.export.AbstractDiagramExporter;
 import com.structurizr.export.Diagram;
 import com.structurizr.export.IndentingWriter;
+import com.structurizr.export.RenderContext;
+import com.structurizr.export.ViewIndex;
 import com.structurizr.model.*;
 import com.structurizr.util.StringUtils;
 import com.structurizr.view.*;
@@ -24,13 +26,11 @@ public class MermaidDiagramExporter extends AbstractDiagramExporter {
     public static final String MERMAID_TITLE_PROPERTY = "mermaid.title";
     public static final String MERMAID_SEQUENCE_DIAGRAM_PROPERTY = "mermaid.sequenceDiagram";
 
-    private int groupId = 0;
-
     public MermaidDiagramExporter() {
     }
 
     @Override
-    protected void writeHeader(View view, IndentingWriter writer) {
+    protected void writeHeader(RenderContext context, View view, IndentingWriter writer) {
         String direction = "TB";
 
         if (view.getAutomaticLayout() != null) {
@@ -70,14 +70,14 @@ public class MermaidDiagramExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void writeFooter(View view, IndentingWriter writer) {
+    protected void writeFooter(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("end");
         writer.outdent();
     }
 
     @Override
-    protected void startEnterpriseBoundary(View view, String enterpriseName, IndentingWriter writer) {
+    protected void startEnterpriseBoundary(RenderContext context, View view, String enterpriseName, IndentingWriter writer) {
         writer.writeLine("subgraph enterprise [" + enterpriseName + "]");
         writer.indent();
         writer.writeLine("style enterprise fill:#ffffff,stroke:#444444,color:#444444");
@@ -85,24 +85,25 @@ public class MermaidDiagramExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void endEnterpriseBoundary(View view, IndentingWriter writer) {
+    protected void endEnterpriseBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("end");
         writer.writeLine();
     }
 
     @Override
-    protected void startGroupBoundary(View view, String group, IndentingWriter writer) {
-        groupId++;
+    protected void startGroupBoundary(RenderContext context, View view, String group, IndentingWriter writer) {
+        // Mermaid group IDs start at 1
+        int groupId = context.nextGroupId() + 1;
 
         String color = "#cccccc";
 
         // is there a style for the group?
-        ElementStyle elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle("Group:" + group);
+        ElementStyle elementStyle = findElementStyle(context, "Group:" + group);
 
         if (elementStyle == null || StringUtils.isNullOrEmpty(elementStyle.getColor())) {
             // no, so is there a default group style?
-            elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle("Group");
+            elementStyle = findElementStyle(context, "Group");
         }
 
         if (elementStyle != null && !StringUtils.isNullOrEmpty(elementStyle.getColor())) {
@@ -116,14 +117,14 @@ public class MermaidDiagramExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void endGroupBoundary(View view, IndentingWriter writer) {
+    protected void endGroupBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("end");
         writer.writeLine();
     }
 
     @Override
-    protected void startSoftwareSystemBoundary(View view, SoftwareSystem softwareSystem, IndentingWriter writer) {
+    protected void startSoftwareSystemBoundary(RenderContext context, View view, SoftwareSystem softwareSystem, IndentingWriter writer) {
         String color;
         if (softwareSystem.equals(view.getSoftwareSystem())) {
             color = "#444444";
@@ -138,14 +139,14 @@ public class MermaidDiagramExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void endSoftwareSystemBoundary(View view, IndentingWriter writer) {
+    protected void endSoftwareSystemBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("end");
         writer.writeLine();
     }
 
     @Override
-    protected void startContainerBoundary(View view, Container container, IndentingWriter writer) {
+    protected void startContainerBoundary(RenderContext context, View view, Container container, IndentingWriter writer) {
         String color = "#444444";
         if (view instanceof ComponentView) {
             if (container.equals(((ComponentView)view).getContainer())) {
@@ -168,15 +169,15 @@ public class MermaidDiagramExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void endContainerBoundary(View view, IndentingWriter writer) {
+    protected void endContainerBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("end");
         writer.writeLine();
     }
 
     @Override
-    protected void startDeploymentNodeBoundary(DeploymentView view, DeploymentNode deploymentNode, IndentingWriter writer) {
-        ElementStyle elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle(deploymentNode);
+    protected void startDeploymentNodeBoundary(RenderContext context, DeploymentView view, DeploymentNode deploymentNode, IndentingWriter writer) {
+        ElementStyle elementStyle = findElementStyle(context, deploymentNode);
 
         writer.writeLine(String.format("subgraph %s [%s]", deploymentNode.getId(), deploymentNode.getName()));
         writer.indent();
@@ -185,16 +186,24 @@ public class MermaidDiagramExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void endDeploymentNodeBoundary(View view, IndentingWriter writer) {
+    protected void endDeploymentNodeBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("end");
         writer.writeLine();
     }
 
     @Override
-    public Diagram export(DynamicView view) {
+    protected Diagram export(DynamicView view, ViewIndex viewIndex) {
+        if (renderAsSequenceDiagram(view)) {
+            return exportWithoutAnimation(view, viewIndex);
+        } else {
+            return super.export(view, viewIndex);
+        }
+    }
+
+    @Override
+    protected void writeView(RenderContext context, DynamicView view, IndentingWriter writer) {
         if (renderAsSequenceDiagram(view)) {
-            IndentingWriter writer = new IndentingWriter();
             writer.writeLine("sequenceDiagram");
             writer.writeLine();
             writer.indent();
@@ -206,7 +215,7 @@ public class MermaidDiagramExporter extends AbstractDiagramExporter {
             }
 
             for (Element element : elements) {
-                ElementStyle elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle(element);
+                ElementStyle elementStyle = findElementStyle(context, element);
                 String shape = "participant";
                 if (elementStyle.getShape() == Shape.Person) {
                     shape = "actor";
@@ -227,7 +236,7 @@ public class MermaidDiagramExporter extends AbstractDiagramExporter {
 
             for (RelationshipView relationshipView : view.getRelationships()) {
                 Relationship relationship = relationshipView.getRelationship();
-                RelationshipStyle style = view.getViewSet().getConfiguration().getStyles().findRelationshipStyle(relationship);
+                RelationshipStyle style = findRelationshipStyle(context, relationship);
 
                 String description = relationshipView.getDescription();
                 if (StringUtils.isNullOrEmpty(description)) {
@@ -259,16 +268,14 @@ public class MermaidDiagramExporter extends AbstractDiagramExporter {
                         description,
                         technology));
             }
-
-            return createDiagram(view, writer.toString());
         } else {
-            return super.export(view);
+            super.writeView(context, view, writer);
         }
     }
 
     @Override
-    protected void writeElement(View view, Element element, IndentingWriter writer) {
-        ElementStyle elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle(element);
+    protected void writeElement(RenderContext context, View view, Element element, IndentingWriter writer) {
+        ElementStyle elementStyle = findElementStyle(context, element);
 
         String name = element.getName();
         String description = element.getDescription();
@@ -326,9 +333,9 @@ public class MermaidDiagramExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void writeRelationship(View view, RelationshipView relationshipView, IndentingWriter writer) {
+    protected void writeRelationship(RenderContext context, View view, RelationshipView relationshipView, IndentingWriter writer) {
         Relationship relationship = relationshipView.getRelationship();
-        RelationshipStyle style = view.getViewSet().getConfiguration().getStyles().findRelationshipStyle(relationship);
+        RelationshipStyle style = findRelationshipStyle(context, relationship);
 
         Element source = relationship.getSource();
         Element destination = relationship.getDestination();
@@ -1,5 +1,6 @@
 package com.structurizr.export.mermaid;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
@@ -8,11 +9,50 @@ import java.util.Base64;
  */
 public class MermaidEncoder {
 
-    private static final String TEMPLATE = "{ \"code\":\"%s\", \"mermaid\":{\"theme\":\"default\", \"securityLevel\": \"loose\"}}";
+    private static final byte[] PREFIX = "{ \"code\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SUFFIX = "\", \"mermaid\":{\"theme\":\"default\", \"securityLevel\": \"loose\"}}".getBytes(StandardCharsets.UTF_8);
 
     public String encode(String mermaidDefinition) {
-        String s = String.format(TEMPLATE, mermaidDefinition.replaceAll("\n", "\\\\n").replaceAll("\"", "\\\\\""));
-        return Base64.getEncoder().encodeToString(s.getBytes(StandardCharsets.UTF_8));
+        return encode(ByteBuffer.wrap(mermaidDefinition.getBytes(StandardCharsets.UTF_8)));
     }
 
-}
\ No newline at end of file
+    /**
+     * Encodes a Mermaid definition that has already been encoded as UTF-8 (e.g. by a {@link com.structurizr.export.Utf8ByteSink}),
+     * so that it doesn't need to be decoded into, and re-encoded from, a String.
+     *
+     * @param utf8MermaidDefinition     the remaining bytes of the buffer (its position is not changed)
+     * @return  the encoded definition
+     */
+    public String encode(ByteBuffer utf8MermaidDefinition) {
+        ByteBuffer definition = utf8MermaidDefinition.duplicate();
+
+        // newlines and quotes are escaped as \n and \"; these are single bytes in UTF-8, and never part of a multi-byte sequence
+        int escapes = 0;
+        for (int i = definition.position(); i < definition.limit(); i++) {
+            byte b = definition.get(i);
+            if (b == '\n' || b == '"') {
+                escapes++;
+            }
+        }
+
+        byte[] json = new byte[PREFIX.length + definition.remaining() + escapes + SUFFIX.length];
+        System.arraycopy(PREFIX, 0, json, 0, PREFIX.length);
+        int j = PREFIX.length;
+        while (definition.hasRemaining()) {
+            byte b = definition.get();
+            if (b == '\n') {
+                json[j++] = '\\';
+                json[j++] = 'n';
+            } else if (b == '"') {
+                json[j++] = '\\';
+                json[j++] = '"';
+            } else {
+                json[j++] = b;
+            }
+        }
+        System.arraycopy(SUFFIX, 0, json, j, SUFFIX.length);
+
+        return Base64.getEncoder().encodeToString(json);
+    }
+
+}
@@ -2,13 +2,18 @@ package com.structurizr.export.plantuml;
 
 import com.structurizr.export.AbstractDiagramExporter;
 import com.structurizr.export.Diagram;
+import com.structurizr.export.Fingerprint;
 import com.structurizr.export.IndentingWriter;
+import com.structurizr.export.RenderContext;
 import com.structurizr.model.*;
 import com.structurizr.util.StringUtils;
 import com.structurizr.view.DynamicView;
 import com.structurizr.view.Shape;
 import com.structurizr.view.View;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -20,22 +25,35 @@ public abstract class AbstractPlantUMLExporter extends AbstractDiagramExporter {
     public static final String PLANTUML_INCLUDES_PROPERTY = "plantuml.includes";
     public static final String PLANTUML_ANIMATION_PROPERTY = "plantuml.animation";
 
-    private final Map<String, String> skinParams = new LinkedHashMap<>();
+    private static final Object IDS_CACHE_KEY = new Object();
+
+    // copy-on-write, so that skin params can be read by concurrent renders without locking
+    private volatile Map<String, String> skinParams = Collections.emptyMap();
 
     protected Map<String, String> getSkinParams() {
         return skinParams;
     }
 
-    public void addSkinParam(String name, String value) {
-        skinParams.put(name, value);
+    public synchronized void addSkinParam(String name, String value) {
+        Map<String, String> map = new LinkedHashMap<>(skinParams);
+        map.put(name, value);
+        skinParams = Collections.unmodifiableMap(map);
     }
 
-    public void clearSkinParams() {
-        skinParams.clear();
+    public synchronized void clearSkinParams() {
+        skinParams = Collections.emptyMap();
     }
 
-    String plantUMLShapeOf(View view, Element element) {
-        Shape shape = findElementStyle(view, element).getShape();
+    @Override
+    protected void fingerprint(View view, Fingerprint fingerprint) {
+        super.fingerprint(view, fingerprint);
+
+        // skin params are written in the order they were added
+        fingerprint.add("skinParams", new ArrayList<>(getSkinParams().entrySet()));
+    }
+
+    String plantUMLShapeOf(RenderContext context, Element element) {
+        Shape shape = findElementStyle(context, element).getShape();
 
         return plantUMLShapeOf(shape);
     }
@@ -63,8 +81,8 @@ public abstract class AbstractPlantUMLExporter extends AbstractDiagramExporter {
         }
     }
 
-    String plantumlSequenceType(View view, Element element) {
-        Shape shape = findElementStyle(view, element).getShape();
+    String plantumlSequenceType(RenderContext context, Element element) {
+        Shape shape = findElementStyle(context, element).getShape();
 
         switch(shape) {
             case Box:
@@ -83,7 +101,20 @@ public abstract class AbstractPlantUMLExporter extends AbstractDiagramExporter {
         }
     }
 
-    String idOf(ModelItem modelItem) {
+    String idOf(RenderContext context, ModelItem modelItem) {
+        // IDs are requested several times per element and relationship, so they're cached for the duration of the render
+        Map<ModelItem, String> ids = context.computeIfAbsent(IDS_CACHE_KEY, IdentityHashMap::new);
+
+        String id = ids.get(modelItem);
+        if (id == null) {
+            id = calculateIdOf(context, modelItem);
+            ids.put(modelItem, id);
+        }
+
+        return id;
+    }
+
+    private String calculateIdOf(RenderContext context, ModelItem modelItem) {
         if (modelItem instanceof Element) {
             Element element = (Element)modelItem;
             if (element.getParent() == null) {
@@ -94,7 +125,7 @@ public abstract class AbstractPlantUMLExporter extends AbstractDiagramExporter {
                     return id(element);
                 }
             } else {
-                return idOf(element.getParent()) + "." + id(modelItem);
+                return idOf(context, element.getParent()) + "." + id(modelItem);
             }
         }
 
@@ -155,8 +186,58 @@ public abstract class AbstractPlantUMLExporter extends AbstractDiagramExporter {
         return filter(containerInstance.getName()) + "_" + containerInstance.getInstanceId();
     }
 
-    private String filter(String s) {
-        return s.replaceAll("(?U)\\W", "");
+    /**
+     * Removes non-word characters, with the same result as s.replaceAll("(?U)\\W", ""), but without using a regex.
+     */
+    static String filter(String s) {
+        int length = s.length();
+
+        int i = 0;
+        while (i < length) {
+            int codePoint = s.codePointAt(i);
+            if (!isWordCharacter(codePoint)) {
+                break;
+            }
+            i += Character.charCount(codePoint);
+        }
+
+        if (i == length) {
+            return s;
+        }
+
+        StringBuilder buf = new StringBuilder(length);
+        buf.append(s, 0, i);
+        while (i < length) {
+            int codePoint = s.codePointAt(i);
+            if (isWordCharacter(codePoint)) {
+                buf.appendCodePoint(codePoint);
+            }
+            i += Character.charCount(codePoint);
+        }
+
+        return buf.toString();
+    }
+
+    // \w with Pattern.UNICODE_CHARACTER_CLASS: [\p{Alpha}\p{gc=Mn}\p{gc=Me}\p{gc=Mc}\p{Digit}\p{gc=Pc}\p{IsJoin_Control}]
+    private static boolean isWordCharacter(int codePoint) {
+        if (codePoint < 128) {
+            return (codePoint >= 'a' && codePoint <= 'z') || (codePoint >= 'A' && codePoint <= 'Z') || (codePoint >= '0' && codePoint <= '9') || codePoint == '_';
+        }
+
+        if (Character.isAlphabetic(codePoint)) {
+            return true;
+        }
+
+        switch (Character.getType(codePoint)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+            case Character.DECIMAL_DIGIT_NUMBER:
+            case Character.CONNECTOR_PUNCTUATION:
+                return true;
+            default:
+                return codePoint == 0x200C || codePoint == 0x200D;
+        }
     }
 
     protected boolean includeTitle(View view) {
@@ -169,7 +250,7 @@ public abstract class AbstractPlantUMLExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void writeHeader(View view, IndentingWriter writer) {
+    protected void writeHeader(RenderContext context, View view, IndentingWriter writer) {
         writer.writeLine("@startuml");
 
         if (includeTitle(view)) {
@@ -184,6 +265,7 @@ public abstract class AbstractPlantUMLExporter extends AbstractDiagramExporter {
     }
 
     protected void writeSkinParams(IndentingWriter writer) {
+        Map<String, String> skinParams = getSkinParams();
         if (!skinParams.isEmpty()) {
             writer.writeLine("skinparam {");
             writer.indent();
@@ -206,7 +288,7 @@ public abstract class AbstractPlantUMLExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void writeFooter(View view, IndentingWriter writer) {
+    protected void writeFooter(RenderContext context, View view, IndentingWriter writer) {
         writer.writeLine("@enduml");
     }
 
@@ -2,6 +2,8 @@ package com.structurizr.export.plantuml;
 
 import com.structurizr.export.Diagram;
 import com.structurizr.export.IndentingWriter;
+import com.structurizr.export.RenderContext;
+import com.structurizr.export.ViewIndex;
 import com.structurizr.model.*;
 import com.structurizr.util.StringUtils;
 import com.structurizr.view.*;
@@ -44,14 +46,12 @@ public class C4PlantUMLExporter extends AbstractPlantUMLExporter {
     public static final String C4PLANTUML_SPRITE = "c4plantuml.sprite";
     public static final String C4PLANTUML_SHADOW = "c4plantuml.shadow";
 
-    private int groupId = 0;
-
     public C4PlantUMLExporter() {
     }
 
     @Override
-    protected void writeHeader(View view, IndentingWriter writer) {
-        super.writeHeader(view, writer);
+    protected void writeHeader(RenderContext context, View view, IndentingWriter writer) {
+        super.writeHeader(context, view, writer);
 
         writeSkinParams(writer);
 
@@ -104,7 +104,7 @@ public class C4PlantUMLExporter extends AbstractPlantUMLExporter {
 
         writeIncludes(view, writer);
 
-        if (includeTags(view)) {
+        if (includeTags(context, view)) {
             Map<String,ElementStyle> elementStyles = new HashMap<>();
             Map<String,RelationshipStyle> relationshipStyles = new HashMap<>();
             Map<String,ElementStyle> boundaryStyles = new HashMap<>();
@@ -112,7 +112,7 @@ public class C4PlantUMLExporter extends AbstractPlantUMLExporter {
             // elements
             for (ElementView elementView : view.getElements()) {
                 Element element = elementView.getElement();
-                ElementStyle elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle(element);
+                ElementStyle elementStyle = findElementStyle(context, element);
 
                 elementStyles.put(elementStyle.getTag(), elementStyle);
             }
@@ -120,7 +120,7 @@ public class C4PlantUMLExporter extends AbstractPlantUMLExporter {
             // relationships
             for (RelationshipView relationshipView : view.getRelationships()) {
                 Relationship relationship = relationshipView.getRelationship();
-                RelationshipStyle relationshipStyle = view.getViewSet().getConfiguration().getStyles().findRelationshipStyle(relationship);
+                RelationshipStyle relationshipStyle = findRelationshipStyle(context, relationship);
 
                 relationshipStyles.put(relationshipStyle.getTag(), relationshipStyle);
             }
@@ -141,7 +141,7 @@ public class C4PlantUMLExporter extends AbstractPlantUMLExporter {
             }
 
             for (Element boundaryElement : boundaryElements) {
-                ElementStyle elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle(boundaryElement);
+                ElementStyle elementStyle = findElementStyle(context, boundaryElement);
                 boundaryStyles.put(elementStyle.getTag(), elementStyle);
             }
 
@@ -208,7 +208,7 @@ public class C4PlantUMLExporter extends AbstractPlantUMLExporter {
     }
 
     @Override
-    protected void writeFooter(View view, IndentingWriter writer) {
+    protected void writeFooter(RenderContext context, View view, IndentingWriter writer) {
         if (includeLegend(view)) {
             writer.writeLine();
             writer.writeLine("SHOW_LEGEND(" + !(includeStereotypes(view)) + ")");
@@ -217,63 +217,63 @@ public class C4PlantUMLExporter extends AbstractPlantUMLExporter {
             writer.writeLine((includeStereotypes(view) ? "show" : "hide") + " stereotypes");
         }
 
-        super.writeFooter(view, writer);
+        super.writeFooter(context, view, writer);
     }
 
     @Override
-    protected void startEnterpriseBoundary(View view, String enterpriseName, IndentingWriter writer) {
+    protected void startEnterpriseBoundary(RenderContext context, View view, String enterpriseName, IndentingWriter writer) {
         writer.writeLine(String.format("Enterprise_Boundary(enterprise, \"%s\") {", enterpriseName));
         writer.indent();
     }
 
     @Override
-    protected void endEnterpriseBoundary(View view, IndentingWriter writer) {
+    protected void endEnterpriseBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("}");
         writer.writeLine();
     }
 
     @Override
-    protected void startGroupBoundary(View view, String group, IndentingWriter writer) {
-        writer.writeLine(String.format("Boundary(group_%s, \"%s\") {", groupId++, group));
+    protected void startGroupBoundary(RenderContext context, View view, String group, IndentingWriter writer) {
+        writer.writeLine(String.format("Boundary(group_%s, \"%s\") {", context.nextGroupId(), group));
         writer.indent();
     }
 
     @Override
-    protected void endGroupBoundary(View view, IndentingWriter writer) {
+    protected void endGroupBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("}");
         writer.writeLine();
     }
 
     @Override
-    protected void startSoftwareSystemBoundary(View view, SoftwareSystem softwareSystem, IndentingWriter writer) {
-        writer.writeLine(String.format("System_Boundary(\"%s_boundary\", \"%s\", $tags=\"%s\") {", idOf(softwareSystem), softwareSystem.getName(), tagsOf(view, softwareSystem)));
+    protected void startSoftwareSystemBoundary(RenderContext context, View view, SoftwareSystem softwareSystem, IndentingWriter writer) {
+        writer.writeLine(String.format("System_Boundary(\"%s_boundary\", \"%s\", $tags=\"%s\") {", idOf(context, softwareSystem), softwareSystem.getName(), tagsOf(context, view, softwareSystem)));
         writer.indent();
     }
 
     @Override
-    protected void endSoftwareSystemBoundary(View view, IndentingWriter writer) {
+    protected void endSoftwareSystemBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("}");
         writer.writeLine();
     }
 
     @Override
-    protected void startContainerBoundary(View view, Container container, IndentingWriter writer) {
-        writer.writeLine(String.format("Container_Boundary(\"%s_boundary\", \"%s\", $tags=\"%s\") {", idOf(container), container.getName(), tagsOf(view,container)));
+    protected void startContainerBoundary(RenderContext context, View view, Container container, IndentingWriter writer) {
+        writer.writeLine(String.format("Container_Boundary(\"%s_boundary\", \"%s\", $tags=\"%s\") {", idOf(context, container), container.getName(), tagsOf(context, view, container)));
         writer.indent();
     }
 
     @Override
-    protected void endContainerBoundary(View view, IndentingWriter writer) {
+    protected void endContainerBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("}");
         writer.writeLine();
     }
 
     @Override
-    protected void startDeploymentNodeBoundary(DeploymentView view, DeploymentNode deploymentNode, IndentingWriter writer) {
+    protected void startDeploymentNodeBoundary(RenderContext context, DeploymentView view, DeploymentNode deploymentNode, IndentingWriter writer) {
         String url = deploymentNode.getUrl();
         if (!StringUtils.isNullOrEmpty(url)) {
             url = "[[" + url + "]]";
@@ -284,51 +284,56 @@ public class C4PlantUMLExporter extends AbstractPlantUMLExporter {
         if (StringUtils.isNullOrEmpty(deploymentNode.getTechnology())) {
             writer.writeLine(
                     format("Deployment_Node(%s, \"%s\", $tags=\"%s\")%s {",
-                            idOf(deploymentNode),
+                            idOf(context, deploymentNode),
                             deploymentNode.getName() + (!"1".equals(deploymentNode.getInstances()) ? " (x" + deploymentNode.getInstances() + ")" : ""),
-                            tagsOf(view, deploymentNode),
+                            tagsOf(context, view, deploymentNode),
                             url
                     )
             );
         } else {
             writer.writeLine(
                     format("Deployment_Node(%s, \"%s\", \"%s\", $tags=\"%s\")%s {",
-                            idOf(deploymentNode),
+                            idOf(context, deploymentNode),
                             deploymentNode.getName() + (!"1".equals(deploymentNode.getInstances()) ? " (x" + deploymentNode.getInstances() + ")" : ""),
                             deploymentNode.getTechnology(),
-                            tagsOf(view, deploymentNode),
+                            tagsOf(context, view, deploymentNode),
                             url
                     )
             );
         }
         writer.indent();
 
-        if (!isVisible(view, deploymentNode)) {
-            writer.writeLine("hide " + idOf(deploymentNode));
+        if (!isVisible(context, view, deploymentNode)) {
+            writer.writeLine("hide " + idOf(context, deploymentNode));
         }
     }
 
     @Override
-    protected void endDeploymentNodeBoundary(View view, IndentingWriter writer) {
+    protected void endDeploymentNodeBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("}");
         writer.writeLine();
     }
 
     @Override
-    public Diagram export(CustomView view) {
+    protected Diagram export(CustomView view, ViewIndex viewIndex) {
         return null;
     }
 
     @Override
-    protected void writeElement(View view, Element element, IndentingWriter writer) {
+    protected boolean isSupported(View view) {
+        return !(view instanceof CustomView) && super.isSupported(view);
+    }
+
+    @Override
+    protected void writeElement(RenderContext context, View view, Element element, IndentingWriter writer) {
         if (element instanceof CustomElement) {
             return;
         }
 
         Element elementToWrite = element;
-        ElementStyle elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle(element);
-        String id = idOf(element);
+        ElementStyle elementStyle = findElementStyle(context, element);
+        String id = idOf(context, element);
 
         String url = element.getUrl();
         if (!StringUtils.isNullOrEmpty(url)) {
@@ -337,7 +342,7 @@ public class C4PlantUMLExporter extends AbstractPlantUMLExporter {
             url = "";
         }
 
-        if (Boolean.TRUE.toString().equalsIgnoreCase(view.getViewSet().getConfiguration().getProperties().getOrDefault(C4PLANTUML_ELEMENT_PROPERTIES_PROPERTY, Boolean.FALSE.toString()))) {
+        if (includeElementProperties(context, view)) {
             addProperties(view, writer, element);
         }
 
@@ -365,16 +370,16 @@ public class C4PlantUMLExporter extends AbstractPlantUMLExporter {
         if (element instanceof Person) {
             Person person = (Person)element;
             if (person.getLocation() == Location.External) {
-                writer.writeLine(String.format("Person_Ext(%s, \"%s\", \"%s\", $tags=\"%s\")%s", id, name, description, tagsOf(view, elementToWrite), url));
+                writer.writeLine(String.format("Person_Ext(%s, \"%s\", \"%s\", $tags=\"%s\")%s", id, name, description, tagsOf(context, view, elementToWrite), url));
             } else {
-                writer.writeLine(String.format("Person(%s, \"%s\", \"%s\", $tags=\"%s\")%s", id, name, description, tagsOf(view, elementToWrite), url));
+                writer.writeLine(String.format("Person(%s, \"%s\", \"%s\", $tags=\"%s\")%s", id, name, description, tagsOf(context, view, elementToWrite), url));
             }
         } else if (element instanceof SoftwareSystem) {
             SoftwareSystem softwareSystem = (SoftwareSystem)element;
             if (softwareSystem.getLocation() == Location.External) {
-                writer.writeLine(String.format("System_Ext(%s, \"%s\", \"%s\", $tags=\"%s\")%s", id, name, description, tagsOf(view, elementToWrite), url));
+                writer.writeLine(String.format("System_Ext(%s, \"%s\", \"%s\", $tags=\"%s\")%s", id, name, description, tagsOf(context, view, elementToWrite), url));
             } else {
-                writer.writeLine(String.format("System(%s, \"%s\", \"%s\", $tags=\"%s\")%s", id, name, description, tagsOf(view, elementToWrite), url));
+                writer.writeLine(String.format("System(%s, \"%s\", \"%s\", $tags=\"%s\")%s", id, name, description, tagsOf(context, view, elementToWrite), url));
             }
         } else if (element instanceof Container) {
             Container container = (Container)element;
@@ -386,49 +391,49 @@ public class C4PlantUMLExporter extends AbstractPlantUMLExporter {
             }
 
             if (StringUtils.isNullOrEmpty(container.getTechnology())) {
-                writer.writeLine(String.format("Container%s(%s, \"%s\", \"%s\", $tags=\"%s\")%s", shape, id, name, description, tagsOf(view, elementToWrite), url));
+                writer.writeLine(String.format("Container%s(%s, \"%s\", \"%s\", $tags=\"%s\")%s", shape, id, name, description, tagsOf(context, view, elementToWrite), url));
             } else {
-                writer.writeLine(String.format("Container%s(%s, \"%s\", \"%s\", \"%s\", $tags=\"%s\")%s", shape, id, name, container.getTechnology(), description, tagsOf(view, elementToWrite), url));
+                writer.writeLine(String.format("Container%s(%s, \"%s\", \"%s\", \"%s\", $tags=\"%s\")%s", shape, id, name, container.getTechnology(), description, tagsOf(context, view, elementToWrite), url));
             }
         } else if (element instanceof Component) {
             Component component = (Component)element;
             if (StringUtils.isNullOrEmpty(component.getTechnology())) {
-                writer.writeLine(String.format("Component(%s, \"%s\", \"%s\", $tags=\"%s\")%s", id, name, description, tagsOf(view, elementToWrite), url));
+                writer.writeLine(String.format("Component(%s, \"%s\", \"%s\", $tags=\"%s\")%s", id, name, description, tagsOf(context, view, elementToWrite), url));
             } else {
-                writer.writeLine(String.format("Component(%s, \"%s\", \"%s\", \"%s\", $tags=\"%s\")%s", id, name, component.getTechnology(), description, tagsOf(view, elementToWrite), url));
+                writer.writeLine(String.format("Component(%s, \"%s\", \"%s\", \"%s\", $tags=\"%s\")%s", id, name, component.getTechnology(), description, tagsOf(context, view, elementToWrite), url));
             }
         } else if (element instanceof InfrastructureNode) {
             InfrastructureNode infrastructureNode = (InfrastructureNode)element;
             if (StringUtils.isNullOrEmpty(infrastructureNode.getTechnology())) {
-                writer.writeLine(format("Deployment_Node(%s, \"%s\", $descr=\"%s\", $tags=\"%s\")%s", idOf(infrastructureNode), name, description, tagsOf(view, elementToWrite), url));
+                writer.writeLine(format("Deployment_Node(%s, \"%s\", $descr=\"%s\", $tags=\"%s\")%s", idOf(context, infrastructureNode), name, description, tagsOf(context, view, elementToWrite), url));
             } else {
-                writer.writeLine(format("Deployment_Node(%s, \"%s\", \"%s\", \"%s\", $tags=\"%s\")%s", idOf(infrastructureNode), name, infrastructureNode.getTechnology(), description, tagsOf(view, elementToWrite), url));
+                writer.writeLine(format("Deployment_Node(%s, \"%s\", \"%s\", \"%s\", $tags=\"%s\")%s", idOf(context, infrastructureNode), name, infrastructureNode.getTechnology(), description, tagsOf(context, view, elementToWrite), url));
             }
         }
 
-        if (!isVisible(view, elementToWrite)) {
+        if (!isVisible(context, view, elementToWrite)) {
             writer.writeLine("hide " + id);
         }
     }
 
-    private String tagsOf(View view, Element element) {
-        if (includeTags(view)) {
-            return view.getViewSet().getConfiguration().getStyles().findElementStyle(element).getTag().replaceFirst("Element,", "");
+    private String tagsOf(RenderContext context, View view, Element element) {
+        if (includeTags(context, view)) {
+            return findElementStyle(context, element).getTag().replaceFirst("Element,", "");
         } else {
             return "";
         }
     }
 
-    private String tagsOf(View view, Relationship relationship) {
-        if (includeTags(view)) {
-            return view.getViewSet().getConfiguration().getStyles().findRelationshipStyle(relationship).getTag().replaceFirst("Relationship,", "");
+    private String tagsOf(RenderContext context, View view, Relationship relationship) {
+        if (includeTags(context, view)) {
+            return findRelationshipStyle(context, relationship).getTag().replaceFirst("Relationship,", "");
         } else {
             return "";
         }
     }
 
     @Override
-    protected void writeRelationship(View view, RelationshipView relationshipView, IndentingWriter writer) {
+    protected void writeRelationship(RenderContext context, View view, RelationshipView relationshipView, IndentingWriter writer) {
         Relationship relationship = relationshipView.getRelationship();
         Element source = relationship.getSource();
         Element destination = relationship.getDestination();
@@ -437,7 +442,7 @@ public class C4PlantUMLExporter extends AbstractPlantUMLExporter {
             return;
         }
 
-        if (Boolean.TRUE.toString().equalsIgnoreCase(view.getViewSet().getConfiguration().getProperties().getOrDefault(C4PLANTUML_RELATIONSHIP_PROPERTIES_PROPERTY, Boolean.FALSE.toString()))) {
+        if (includeRelationshipProperties(context, view)) {
             addProperties(view, writer, relationship);
         }
 
@@ -455,9 +460,9 @@ public class C4PlantUMLExporter extends AbstractPlantUMLExporter {
         description += (hasValue(relationshipView.getDescription()) ? relationshipView.getDescription() : hasValue(relationshipView.getRelationship().getDescription()) ? relationshipView.getRelationship().getDescription() : "");
 
         if (StringUtils.isNullOrEmpty(relationship.getTechnology())) {
-            writer.writeLine(format("Rel_D(%s, %s, \"%s\", $tags=\"%s\")", idOf(source), idOf(destination), description, tagsOf(view, relationship)));
+            writer.writeLine(format("Rel_D(%s, %s, \"%s\", $tags=\"%s\")", idOf(context, source), idOf(context, destination), description, tagsOf(context, view, relationship)));
         } else {
-            writer.writeLine(format("Rel_D(%s, %s, \"%s\", \"%s\", $tags=\"%s\")", idOf(source), idOf(destination), description, relationship.getTechnology(), tagsOf(view, relationship)));
+            writer.writeLine(format("Rel_D(%s, %s, \"%s\", \"%s\", $tags=\"%s\")", idOf(context, source), idOf(context, destination), description, relationship.getTechnology(), tagsOf(context, view, relationship)));
         }
     }
 
@@ -484,6 +489,18 @@ public class C4PlantUMLExporter extends AbstractPlantUMLExporter {
         return "true".equalsIgnoreCase(getViewOrViewSetProperty(view, C4PLANTUML_STEREOTYPES_PROPERTY, "false"));
     }
 
+    private boolean includeTags(RenderContext context, View view) {
+        return context.computeIfAbsent(C4PLANTUML_TAGS_PROPERTY, () -> includeTags(view));
+    }
+
+    private boolean includeElementProperties(RenderContext context, View view) {
+        return context.computeIfAbsent(C4PLANTUML_ELEMENT_PROPERTIES_PROPERTY, () -> Boolean.TRUE.toString().equalsIgnoreCase(view.getViewSet().getConfiguration().getProperties().getOrDefault(C4PLANTUML_ELEMENT_PROPERTIES_PROPERTY, Boolean.FALSE.toString())));
+    }
+
+    private boolean includeRelationshipProperties(RenderContext context, View view) {
+        return context.computeIfAbsent(C4PLANTUML_RELATIONSHIP_PROPERTIES_PROPERTY, () -> Boolean.TRUE.toString().equalsIgnoreCase(view.getViewSet().getConfiguration().getProperties().getOrDefault(C4PLANTUML_RELATIONSHIP_PROPERTIES_PROPERTY, Boolean.FALSE.toString())));
+    }
+
     protected boolean includeTags(View view) {
         return "true".equalsIgnoreCase(getViewOrViewSetProperty(view, C4PLANTUML_TAGS_PROPERTY, "false"));
     }
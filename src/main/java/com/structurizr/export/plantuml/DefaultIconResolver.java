@@ -0,0 +1,336 @@
+package com.structurizr.export.plantuml;
+
+import com.structurizr.util.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The default icon resolver, which supports the following icons:
+ *
+ * <ul>
+ *     <li>http(s) URLs, which are referenced as-is (or, if a mirror directory has been set and contains a copy of
+ *     the icon, as the path of that file; e.g. https://example.com/icons/icon.png is mirrored
+ *     by [mirror directory]/example.com/icons/icon.png)</li>
+ *     <li>data: URIs, which are embedded as base64 data URIs</li>
+ *     <li>file: URLs, which are referenced as the path of the file, if a file root has been set and
+ *     the file is within it (see {@link #setFileRoot(File)})</li>
+ *     <li>classpath: resources (e.g. classpath:/icons/icon.png), which are embedded as data URIs because PlantUML
+ *     can't read them, if a classpath prefix has been set and the resource is within it
+ *     (see {@link #setClasspathPrefix(String)})</li>
+ * </ul>
+ *
+ * Because icons come from the workspace, file: and classpath: icons are only read from the locations that have been
+ * configured, and never from paths containing "." or ".." segments. Only http(s) URLs need network access;
+ * everything else is read locally. The most recently resolved icons are remembered, so a resolver should be
+ * reconfigured (or replaced) if the local copies of icons change.
+ */
+public class DefaultIconResolver implements IconResolver {
+
+    private static final String HTTP_PREFIX = "http://";
+    private static final String HTTPS_PREFIX = "https://";
+    private static final String FILE_PREFIX = "file:";
+    private static final String CLASSPATH_PREFIX = "classpath:";
+    private static final String DATA_PREFIX = "data:";
+    private static final String BASE64_PARAMETER = ";base64";
+    private static final int MAXIMUM_RESOLVED_ICONS = 1000;
+
+    private volatile File mirrorDirectory;
+    private volatile File fileRoot;
+    private volatile String classpathPrefix;
+    private volatile ClassLoader classLoader = DefaultIconResolver.class.getClassLoader();
+
+    // resolved classpath: and data: icons hold their content, so only a bounded number are remembered
+    private final Map<String, Optional<ResolvedIcon>> resolvedIcons = Collections.synchronizedMap(new LinkedHashMap<String, Optional<ResolvedIcon>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Optional<ResolvedIcon>> eldest) {
+            return size() > MAXIMUM_RESOLVED_ICONS;
+        }
+    });
+
+    public File getMirrorDirectory() {
+        return mirrorDirectory;
+    }
+
+    /**
+     * Sets a directory containing local copies of http(s) icons, laid out by host and path, which are used
+     * in preference to fetching the icons.
+     *
+     * @param mirrorDirectory   a directory, or null to always fetch http(s) icons
+     */
+    public void setMirrorDirectory(File mirrorDirectory) {
+        if (mirrorDirectory != null && !mirrorDirectory.isDirectory()) {
+            throw new IllegalArgumentException(mirrorDirectory.getAbsolutePath() + " is not a directory.");
+        }
+
+        this.mirrorDirectory = mirrorDirectory;
+        resolvedIcons.clear();
+    }
+
+    public File getFileRoot() {
+        return fileRoot;
+    }
+
+    /**
+     * Sets the directory that file: icons can be read from; file: icons outside of this directory aren't supported.
+     *
+     * @param fileRoot  a directory, or null to not support file: icons (the default)
+     */
+    public void setFileRoot(File fileRoot) {
+        if (fileRoot != null && !fileRoot.isDirectory()) {
+            throw new IllegalArgumentException(fileRoot.getAbsolutePath() + " is not a directory.");
+        }
+
+        this.fileRoot = fileRoot;
+        resolvedIcons.clear();
+    }
+
+    public String getClasspathPrefix() {
+        return classpathPrefix;
+    }
+
+    /**
+     * Sets the classpath directory that classpath: icons can be read from (e.g. "icons", to support
+     * classpath:/icons/icon.png); classpath: icons outside of this directory aren't supported.
+     *
+     * @param classpathPrefix   a classpath directory, or null to not support classpath: icons (the default)
+     */
+    public void setClasspathPrefix(String classpathPrefix) {
+        if (classpathPrefix != null) {
+            while (classpathPrefix.startsWith("/")) {
+                classpathPrefix = classpathPrefix.substring(1);
+            }
+
+            if (!classpathPrefix.endsWith("/")) {
+                classpathPrefix = classpathPrefix + "/";
+            }
+
+            if (classpathPrefix.equals("/") || !isSafePath(classpathPrefix)) {
+                throw new IllegalArgumentException("The classpath prefix must name a classpath directory (e.g. \"icons\").");
+            }
+        }
+
+        this.classpathPrefix = classpathPrefix;
+        resolvedIcons.clear();
+    }
+
+    /**
+     * Sets the class loader used to read classpath: icons.
+     *
+     * @param classLoader   a ClassLoader
+     */
+    public void setClassLoader(ClassLoader classLoader) {
+        if (classLoader == null) {
+            throw new IllegalArgumentException("A class loader must be provided.");
+        }
+
+        this.classLoader = classLoader;
+        resolvedIcons.clear();
+    }
+
+    @Override
+    public ResolvedIcon resolve(String icon) {
+        if (StringUtils.isNullOrEmpty(icon)) {
+            return null;
+        }
+
+        // not resolved while holding the lock; the same icon may occasionally be resolved more than once
+        String key = icon.trim();
+        Optional<ResolvedIcon> resolvedIcon = resolvedIcons.get(key);
+        if (resolvedIcon == null) {
+            resolvedIcon = Optional.ofNullable(doResolve(key));
+            resolvedIcons.put(key, resolvedIcon);
+        }
+
+        return resolvedIcon.orElse(null);
+    }
+
+    private ResolvedIcon doResolve(String icon) {
+        String lowerCaseIcon = icon.toLowerCase(Locale.ROOT);
+
+        try {
+            if (lowerCaseIcon.startsWith(HTTP_PREFIX) || lowerCaseIcon.startsWith(HTTPS_PREFIX)) {
+                return resolveUrl(icon);
+            } else if (lowerCaseIcon.startsWith(FILE_PREFIX)) {
+                return resolveFile(icon);
+            } else if (lowerCaseIcon.startsWith(CLASSPATH_PREFIX)) {
+                return resolveClasspathResource(icon.substring(CLASSPATH_PREFIX.length()));
+            } else if (lowerCaseIcon.startsWith(DATA_PREFIX)) {
+                return resolveDataUri(icon);
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            // e.g. a malformed URL, a file: URL with an authority, or invalid base64
+        }
+
+        return null;
+    }
+
+    private ResolvedIcon resolveUrl(String icon) throws MalformedURLException {
+        URL url = new URL(icon);
+
+        File mirrorDirectory = this.mirrorDirectory;
+        if (mirrorDirectory != null) {
+            File file = mirroredFileOf(mirrorDirectory, url);
+            if (file != null && file.isFile()) {
+                return ResolvedIcon.ofFile(file.getPath(), file);
+            }
+        }
+
+        return ResolvedIcon.ofUrl(icon, url);
+    }
+
+    private File mirroredFileOf(File mirrorDirectory, URL url) {
+        String host = url.getPort() == -1 ? url.getHost() : url.getHost() + "_" + url.getPort();
+        File file = new File(mirrorDirectory, host);
+
+        for (String segment : url.getPath().split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+
+            try {
+                segment = URLDecoder.decode(segment, "UTF-8");
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                return null;
+            }
+
+            if (!isSafeSegment(segment)) {
+                // don't allow a URL to read files outside of the mirror directory
+                return null;
+            }
+
+            file = new File(file, segment);
+        }
+
+        return file;
+    }
+
+    private ResolvedIcon resolveFile(String icon) throws URISyntaxException, IOException {
+        File fileRoot = this.fileRoot;
+        if (fileRoot == null) {
+            return null;
+        }
+
+        URI uri = new URI(icon);
+        File file = new File(uri);
+
+        // the path is decoded, so encoded dot segments are also rejected; and symbolic links can't leave the root
+        if (!isSafePath(uri.getPath()) || !file.getCanonicalFile().toPath().startsWith(fileRoot.getCanonicalFile().toPath())) {
+            return null;
+        }
+
+        return ResolvedIcon.ofFile(file.getPath(), file);
+    }
+
+    private ResolvedIcon resolveClasspathResource(String name) throws IOException {
+        String classpathPrefix = this.classpathPrefix;
+        if (classpathPrefix == null) {
+            return null;
+        }
+
+        while (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+
+        if (!name.startsWith(classpathPrefix) || !isSafePath(name)) {
+            return null;
+        }
+
+        InputStream in = classLoader.getResourceAsStream(name);
+        if (in == null) {
+            return null;
+        }
+
+        byte[] content;
+        try {
+            content = readFully(in);
+        } finally {
+            in.close();
+        }
+
+        return ResolvedIcon.ofBytes(dataUriOf(mediaTypeOf(name), content), content);
+    }
+
+    // data:[<media type>][;base64],<data>
+    private ResolvedIcon resolveDataUri(String icon) throws UnsupportedEncodingException {
+        int comma = icon.indexOf(',');
+        if (comma == -1) {
+            return null;
+        }
+
+        String parameters = icon.substring(DATA_PREFIX.length(), comma);
+        String data = icon.substring(comma + 1);
+
+        if (parameters.toLowerCase(Locale.ROOT).endsWith(BASE64_PARAMETER)) {
+            byte[] content = Base64.getMimeDecoder().decode(data);
+            return ResolvedIcon.ofBytes(icon, content);
+        } else {
+            // e.g. data:image/svg+xml;utf8,<svg ...>, which is re-encoded because the markup would end the <img:...> tag
+            byte[] content = URLDecoder.decode(data.replace("+", "%2B"), "UTF-8").getBytes(StandardCharsets.UTF_8);
+            String mediaType = parameters.contains(";") ? parameters.substring(0, parameters.indexOf(';')) : parameters;
+            return ResolvedIcon.ofBytes(dataUriOf(mediaType.isEmpty() ? "text/plain" : mediaType, content), content);
+        }
+    }
+
+    private static boolean isSafePath(String path) {
+        for (String segment : path.split("/")) {
+            if (!isSafeSegment(segment)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isSafeSegment(String segment) {
+        return !segment.equals(".") && !segment.equals("..") && !segment.contains("/") && !segment.contains("\\");
+    }
+
+    private static String dataUriOf(String mediaType, byte[] content) {
+        return DATA_PREFIX + mediaType + BASE64_PARAMETER + "," + Base64.getEncoder().encodeToString(content);
+    }
+
+    private static String mediaTypeOf(String name) {
+        String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        switch (extension) {
+            case "png":
+                return "image/png";
+            case "gif":
+                return "image/gif";
+            case "jpg":
+            case "jpeg":
+                return "image/jpeg";
+            case "svg":
+                return "image/svg+xml";
+            default:
+                return "application/octet-stream";
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,197 @@
+package com.structurizr.export.plantuml;
+
+import com.structurizr.Workspace;
+import com.structurizr.export.AbstractDiagramExporter;
+import com.structurizr.export.StyleResolver;
+import com.structurizr.util.StringUtils;
+import com.structurizr.view.ElementView;
+import com.structurizr.view.View;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Resolves the sizes of the icons used by the views in a workspace concurrently, before the views are rendered,
+ * so that rendering only needs to read sizes from the {@link IconSizeCache} rather than fetching icons one at a time.
+ *
+ * Icons are fetched on a bounded number of threads, with a timeout for each request and an overall deadline;
+ * icons that can't be fetched (or that haven't been fetched by the deadline) are recorded in the cache as having
+ * no size, so that rendering doesn't try to fetch them again, and are reported by {@link #prefetch(Workspace)}.
+ * The Structurizr PlantUML exporter prefetches icons itself when it exports a workspace
+ * (see {@link StructurizrPlantUMLExporter#setPrefetchIcons(boolean)}), with the same settings as this class,
+ * and reports the failures via {@link StructurizrPlantUMLExporter#getIconPrefetchFailures()}.
+ */
+public final class IconPrefetcher {
+
+    public static final int DEFAULT_THREADS = 8;
+    public static final int DEFAULT_REQUEST_TIMEOUT = 10000;
+    public static final long DEFAULT_TIMEOUT = 60000;
+
+    private final IconSizeCache iconSizeCache;
+    private final IconResolver iconResolver;
+
+    private int threads = DEFAULT_THREADS;
+    private int requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+    private long timeout = DEFAULT_TIMEOUT;
+
+    public IconPrefetcher(IconSizeCache iconSizeCache) {
+        this(iconSizeCache, new DefaultIconResolver());
+    }
+
+    /**
+     * Creates a prefetcher that resolves icons in the same way as an exporter (see
+     * {@link StructurizrPlantUMLExporter#setIconResolver(IconResolver)}).
+     *
+     * @param iconSizeCache     the cache to add the sizes of icons to
+     * @param iconResolver      the resolver used to read icons
+     */
+    public IconPrefetcher(IconSizeCache iconSizeCache, IconResolver iconResolver) {
+        if (iconSizeCache == null) {
+            throw new IllegalArgumentException("An icon size cache must be provided.");
+        }
+
+        if (iconResolver == null) {
+            throw new IllegalArgumentException("An icon resolver must be provided.");
+        }
+
+        this.iconSizeCache = iconSizeCache;
+        this.iconResolver = iconResolver;
+    }
+
+    /**
+     * Sets the maximum number of icons to fetch at the same time.
+     *
+     * @param threads   a number of threads
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be at least 1.");
+        }
+
+        this.threads = threads;
+    }
+
+    /**
+     * Sets the connect and read timeout for each icon.
+     *
+     * @param requestTimeout    a timeout, in milliseconds
+     */
+    public void setRequestTimeout(int requestTimeout) {
+        if (requestTimeout < 1) {
+            throw new IllegalArgumentException("The request timeout must be at least 1 millisecond.");
+        }
+
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Sets the deadline for fetching all of the icons.
+     *
+     * @param timeout   a timeout, in milliseconds
+     */
+    public void setTimeout(long timeout) {
+        if (timeout < 1) {
+            throw new IllegalArgumentException("The timeout must be at least 1 millisecond.");
+        }
+
+        this.timeout = timeout;
+    }
+
+    /**
+     * Fetches the icons used by the elements in the views of the workspace, which aren't already in the cache.
+     *
+     * @param workspace     a Workspace
+     * @return  the icons that couldn't be fetched, keyed by URL, with the reason (a TimeoutException for icons that
+     *          weren't fetched by the deadline); empty if every icon was fetched
+     */
+    public Map<String, Exception> prefetch(Workspace workspace) {
+        if (workspace == null) {
+            throw new IllegalArgumentException("A workspace must be provided.");
+        }
+
+        return prefetch(AbstractDiagramExporter.getViewsToExport(workspace), new StyleResolver(workspace.getViews().getConfiguration().getStyles()));
+    }
+
+    Map<String, Exception> prefetch(Collection<View> views, StyleResolver styleResolver) {
+        return prefetch(findIcons(views, styleResolver));
+    }
+
+    /**
+     * Fetches the given icons, which aren't already in the cache; icons that aren't supported by the resolver are ignored.
+     *
+     * @param icons     the icons, as specified by element styles
+     * @return  the icons that couldn't be fetched, keyed by URL, with the reason
+     */
+    public Map<String, Exception> prefetch(Collection<String> icons) {
+        List<String> urls = new ArrayList<>();
+        List<Callable<IconSize>> tasks = new ArrayList<>();
+        for (String icon : new LinkedHashSet<>(icons)) {
+            if (!iconSizeCache.contains(icon)) {
+                ResolvedIcon resolvedIcon = iconResolver.resolve(icon);
+                if (resolvedIcon != null) {
+                    urls.add(icon);
+                    tasks.add(() -> IconProbe.probe(resolvedIcon, requestTimeout));
+                }
+            }
+        }
+
+        Map<String, Exception> failures = new TreeMap<>();
+        if (urls.isEmpty()) {
+            return failures;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, urls.size()), runnable -> {
+            Thread thread = new Thread(runnable, "icon-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            // tasks that haven't completed by the deadline are cancelled
+            List<Future<IconSize>> futures = executor.invokeAll(tasks, timeout, TimeUnit.MILLISECONDS);
+
+            for (int i = 0; i < urls.size(); i++) {
+                String url = urls.get(i);
+                Future<IconSize> future = futures.get(i);
+
+                IconSize size = null;
+                if (future.isCancelled()) {
+                    failures.put(url, new TimeoutException("The icon was not fetched within " + timeout + "ms."));
+                } else {
+                    try {
+                        size = future.get();
+                        if (size == null) {
+                            failures.put(url, new IllegalArgumentException("The size of the icon could not be determined."));
+                        }
+                    } catch (ExecutionException e) {
+                        failures.put(url, e.getCause() instanceof Exception ? (Exception)e.getCause() : e);
+                    }
+                }
+
+                iconSizeCache.put(url, size);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching icons.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return failures;
+    }
+
+    private Set<String> findIcons(Collection<View> views, StyleResolver styleResolver) {
+        Set<String> icons = new LinkedHashSet<>();
+        for (View view : views) {
+            for (ElementView elementView : view.getElements()) {
+                String icon = styleResolver.findElementStyle(elementView.getElement()).getIcon();
+                if (!StringUtils.isNullOrEmpty(icon)) {
+                    icons.add(icon);
+                }
+            }
+        }
+
+        return icons;
+    }
+
+}
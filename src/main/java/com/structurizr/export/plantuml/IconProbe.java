@@ -0,0 +1,267 @@
+package com.structurizr.export.plantuml;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Determines the size of an icon by reading only as much of the image as is needed; the IHDR chunk of a PNG,
+ * the logical screen descriptor of a GIF, the SOF marker of a JPEG, or the width, height or viewBox
+ * attributes of an SVG. Other formats fall back to decoding the entire image with ImageIO.
+ */
+final class IconProbe {
+
+    private static final int MAX_SVG_HEADER_LENGTH = 64 * 1024;
+
+    private static final byte[] PNG_SIGNATURE = { (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    private static final Pattern SVG_START_TAG = Pattern.compile("<svg\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SVG_WIDTH = Pattern.compile("\\swidth\\s*=\\s*[\"']\\s*([0-9.]+)\\s*(px)?\\s*[\"']");
+    private static final Pattern SVG_HEIGHT = Pattern.compile("\\sheight\\s*=\\s*[\"']\\s*([0-9.]+)\\s*(px)?\\s*[\"']");
+    private static final Pattern SVG_VIEW_BOX = Pattern.compile("\\sviewBox\\s*=\\s*[\"']\\s*(-?[0-9.]+)[\\s,]+(-?[0-9.]+)[\\s,]+([0-9.]+)[\\s,]+([0-9.]+)\\s*[\"']");
+
+    private IconProbe() {
+    }
+
+    /**
+     * Determines the size of a resolved icon, reading as little of it as possible.
+     *
+     * @param icon      the icon
+     * @param timeout   the connect and read timeout (for icons read over a network), in milliseconds
+     * @return  the size of the icon, or null if it can't be determined
+     * @throws IOException  if the icon can't be read
+     */
+    static IconSize probe(ResolvedIcon icon, int timeout) throws IOException {
+        try (InputStream in = icon.open(timeout)) {
+            IconSize size = probe(in);
+            if (size != null) {
+                return size;
+            }
+        }
+
+        // the format isn't recognised, so the image is read again (and decoded in full)
+        try (InputStream in = icon.open(timeout)) {
+            return ImageIOFallback.read(in);
+        }
+    }
+
+    /**
+     * Determines the size of an icon from the start of its content.
+     *
+     * @param content   the content of the icon
+     * @return  the size of the icon, or null if the format isn't recognised, or the size can't be determined
+     * @throws IOException  if the content can't be read
+     */
+    static IconSize probe(InputStream content) throws IOException {
+        InputStream in = new BufferedInputStream(content);
+
+        in.mark(PNG_SIGNATURE.length);
+        byte[] start = readUpTo(in, PNG_SIGNATURE.length);
+        in.reset();
+
+        if (startsWith(start, PNG_SIGNATURE)) {
+            return probePng(in);
+        } else if (startsWith(start, "GIF87a".getBytes(StandardCharsets.US_ASCII)) || startsWith(start, "GIF89a".getBytes(StandardCharsets.US_ASCII))) {
+            return probeGif(in);
+        } else if (start.length >= 2 && (start[0] & 0xFF) == 0xFF && (start[1] & 0xFF) == 0xD8) {
+            return probeJpeg(in);
+        } else if (looksLikeXml(start)) {
+            return probeSvg(in);
+        }
+
+        return null;
+    }
+
+    // signature (8), chunk length (4), "IHDR" (4), width (4), height (4)
+    private static IconSize probePng(InputStream in) throws IOException {
+        byte[] header = readUpTo(in, 24);
+        if (header.length < 24 || header[12] != 'I' || header[13] != 'H' || header[14] != 'D' || header[15] != 'R') {
+            return null;
+        }
+
+        return sizeOf(readInt(header, 16), readInt(header, 20));
+    }
+
+    // signature (6), logical screen width (2, little-endian), logical screen height (2, little-endian)
+    private static IconSize probeGif(InputStream in) throws IOException {
+        byte[] header = readUpTo(in, 10);
+        if (header.length < 10) {
+            return null;
+        }
+
+        return sizeOf((header[6] & 0xFF) | (header[7] & 0xFF) << 8, (header[8] & 0xFF) | (header[9] & 0xFF) << 8);
+    }
+
+    // walks the marker segments, skipping their content, until a start of frame (SOF) marker is found
+    private static IconSize probeJpeg(InputStream in) throws IOException {
+        skipFully(in, 2); // SOI
+
+        while (true) {
+            int b = in.read();
+            if (b != 0xFF) {
+                return null;
+            }
+
+            int marker = in.read();
+            while (marker == 0xFF) {
+                marker = in.read(); // fill bytes
+            }
+
+            if (marker == -1 || marker == 0xD9 || marker == 0xDA) {
+                // end of image, or start of scan, without a frame header
+                return null;
+            }
+
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                // standalone markers, without a length
+                continue;
+            }
+
+            byte[] lengthBytes = readUpTo(in, 2);
+            if (lengthBytes.length < 2) {
+                return null;
+            }
+            int length = (lengthBytes[0] & 0xFF) << 8 | (lengthBytes[1] & 0xFF);
+
+            if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                // precision (1), height (2), width (2)
+                byte[] frame = readUpTo(in, 5);
+                if (frame.length < 5) {
+                    return null;
+                }
+
+                return sizeOf((frame[3] & 0xFF) << 8 | (frame[4] & 0xFF), (frame[1] & 0xFF) << 8 | (frame[2] & 0xFF));
+            }
+
+            skipFully(in, length - 2);
+        }
+    }
+
+    private static IconSize probeSvg(InputStream in) throws IOException {
+        StringBuilder buf = new StringBuilder();
+        byte[] bytes = new byte[4096];
+
+        // read until the end of the <svg ...> start tag
+        while (buf.length() < MAX_SVG_HEADER_LENGTH) {
+            int read = in.read(bytes);
+            if (read == -1) {
+                break;
+            }
+
+            buf.append(new String(bytes, 0, read, StandardCharsets.UTF_8));
+
+            Matcher startTag = SVG_START_TAG.matcher(buf);
+            if (startTag.find()) {
+                return probeSvgStartTag(startTag.group());
+            }
+        }
+
+        return null;
+    }
+
+    private static IconSize probeSvgStartTag(String startTag) {
+        try {
+            Matcher width = SVG_WIDTH.matcher(startTag);
+            Matcher height = SVG_HEIGHT.matcher(startTag);
+            if (width.find() && height.find()) {
+                return roundedSizeOf(Double.parseDouble(width.group(1)), Double.parseDouble(height.group(1)));
+            }
+
+            Matcher viewBox = SVG_VIEW_BOX.matcher(startTag);
+            if (viewBox.find()) {
+                return roundedSizeOf(Double.parseDouble(viewBox.group(3)), Double.parseDouble(viewBox.group(4)));
+            }
+        } catch (NumberFormatException e) {
+            // e.g. width="1.2.3"
+        }
+
+        return null;
+    }
+
+    private static boolean looksLikeXml(byte[] start) {
+        int i = 0;
+
+        // skip a UTF-8 byte order mark and whitespace
+        if (start.length >= 3 && (start[0] & 0xFF) == 0xEF && (start[1] & 0xFF) == 0xBB && (start[2] & 0xFF) == 0xBF) {
+            i = 3;
+        }
+        while (i < start.length && Character.isWhitespace(start[i])) {
+            i++;
+        }
+
+        return i < start.length && start[i] == '<';
+    }
+
+    private static IconSize roundedSizeOf(double width, double height) {
+        int w = (int)Math.round(width);
+        int h = (int)Math.round(height);
+
+        return w > 0 && h > 0 ? new IconSize(w, h) : null;
+    }
+
+    private static IconSize sizeOf(long width, long height) {
+        return width > 0 && height > 0 && width <= Integer.MAX_VALUE && height <= Integer.MAX_VALUE ? new IconSize((int)width, (int)height) : null;
+    }
+
+    private static long readInt(byte[] bytes, int offset) {
+        return ((long)(bytes[offset] & 0xFF) << 24) | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        if (bytes.length < prefix.length) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static byte[] readUpTo(InputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(bytes, read, length - read);
+            if (n == -1) {
+                byte[] truncated = new byte[read];
+                System.arraycopy(bytes, 0, truncated, 0, read);
+                return truncated;
+            }
+            read += n;
+        }
+
+        return bytes;
+    }
+
+    private static void skipFully(InputStream in, long length) throws IOException {
+        while (length > 0) {
+            long skipped = in.skip(length);
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    return;
+                }
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
+    // kept separate, so that ImageIO (and AWT) are only loaded for formats that can't be probed
+    private static final class ImageIOFallback {
+
+        private static IconSize read(InputStream in) throws IOException {
+            java.awt.image.BufferedImage image = javax.imageio.ImageIO.read(in);
+
+            return image != null ? sizeOf(image.getWidth(), image.getHeight()) : null;
+        }
+
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.structurizr.export.plantuml;
+
+/**
+ * Resolves the icons specified by element styles to the references used in PlantUML diagram definitions
+ * (i.e. {@code <img:reference>}), and the content that the size of each icon is read from.
+ * Implementations must be thread-safe.
+ */
+public interface IconResolver {
+
+    /**
+     * Resolves an icon.
+     *
+     * @param icon  the icon, as specified by an element style (e.g. a URL, or a data URI)
+     * @return  the resolved icon, or null if the icon isn't supported (in which case it's not rendered)
+     */
+    ResolvedIcon resolve(String icon);
+
+}
@@ -0,0 +1,52 @@
+package com.structurizr.export.plantuml;
+
+/**
+ * The width and height of an icon, in pixels.
+ */
+public final class IconSize {
+
+    private final int width;
+    private final int height;
+
+    public IconSize(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("The width and height must be greater than zero.");
+        }
+
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        IconSize iconSize = (IconSize)o;
+        return width == iconSize.width && height == iconSize.height;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * width + height;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height;
+    }
+
+}
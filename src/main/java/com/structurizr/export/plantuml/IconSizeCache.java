@@ -0,0 +1,292 @@
+package com.structurizr.export.plantuml;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers the sizes of icons, keyed by URL, so that each icon only needs to be fetched once rather than every time
+ * an element, deployment node or legend entry with the icon is written.
+ *
+ * The cache holds a bounded number of entries (evicting the least recently used), each of which expires after
+ * a time to live; icons whose size couldn't be determined (e.g. because a server was briefly unavailable) expire
+ * after a much shorter time (see {@link #setFailureTimeToLive(long)}). Optionally, sizes can also be persisted to
+ * a file (see {@link #save()}), which is consulted when an icon isn't in memory; failures, and data: URIs (whose size
+ * is read without fetching anything, and which would make the file as large as the icons), are only remembered in memory.
+ * A cache is thread-safe, and can be shared between exporters.
+ */
+public final class IconSizeCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 1000;
+    public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(24);
+    public static final long DEFAULT_FAILURE_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5);
+
+    private static final String DATA_URI_PREFIX = "data:";
+
+    private final int maximumSize;
+    private final long timeToLive;
+    private long failureTimeToLive = DEFAULT_FAILURE_TIME_TO_LIVE;
+    private final File persistentFile;
+
+    private final Map<String, Entry> entries;
+    private Map<String, Entry> persistentEntries;
+    private boolean persistentEntriesChanged = false;
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    public IconSizeCache() {
+        this(DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * Creates an in-memory cache.
+     *
+     * @param maximumSize   the maximum number of icons to remember
+     * @param timeToLive    how long to remember the size of an icon for, in milliseconds
+     */
+    public IconSizeCache(int maximumSize, long timeToLive) {
+        this(maximumSize, timeToLive, null);
+    }
+
+    /**
+     * Creates a cache that is backed by a file, which is read when the first icon isn't found in memory.
+     *
+     * @param maximumSize       the maximum number of icons to remember in memory
+     * @param timeToLive        how long to remember the size of an icon for, in milliseconds
+     * @param persistentFile    the file to read sizes from, and save them to (null for an in-memory cache)
+     */
+    public IconSizeCache(int maximumSize, long timeToLive, File persistentFile) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("The maximum size must be at least 1.");
+        }
+
+        if (timeToLive < 1) {
+            throw new IllegalArgumentException("The time to live must be at least 1 millisecond.");
+        }
+
+        this.maximumSize = maximumSize;
+        this.timeToLive = timeToLive;
+        this.persistentFile = persistentFile;
+
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > IconSizeCache.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Sets how long to remember that the size of an icon couldn't be determined for; this is capped at the time to live.
+     *
+     * @param failureTimeToLive     a time, in milliseconds
+     */
+    public synchronized void setFailureTimeToLive(long failureTimeToLive) {
+        if (failureTimeToLive < 1) {
+            throw new IllegalArgumentException("The failure time to live must be at least 1 millisecond.");
+        }
+
+        this.failureTimeToLive = failureTimeToLive;
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the size of an icon, using the loader to determine it if it's not in the cache (or has expired).
+     * The loader is called without holding a lock, so the same icon may occasionally be loaded more than once.
+     *
+     * @param url       the URL of the icon
+     * @param loader    determines the size of an icon, returning null if it can't be determined
+     * @return  the size of the icon, or null if it can't be determined
+     */
+    public IconSize get(String url, Function<String, IconSize> loader) {
+        Entry entry = lookup(url);
+        if (entry != null) {
+            return entry.size;
+        }
+
+        IconSize size = loader.apply(url);
+        put(url, size);
+
+        return size;
+    }
+
+    /**
+     * Gets the size of an icon, if it's in the cache.
+     *
+     * @param url   the URL of the icon
+     * @return  the size of the icon, or null if it's not in the cache, or couldn't be determined
+     */
+    public IconSize getIfPresent(String url) {
+        Entry entry = lookup(url);
+
+        return entry != null ? entry.size : null;
+    }
+
+    /**
+     * Determines whether the cache has an (unexpired) entry for an icon, including icons whose size couldn't be determined.
+     *
+     * @param url   the URL of the icon
+     * @return  true if the icon is in the cache, false otherwise
+     */
+    public boolean contains(String url) {
+        return lookup(url) != null;
+    }
+
+    /**
+     * Adds the size of an icon to the cache.
+     *
+     * @param url   the URL of the icon
+     * @param size  the size of the icon, or null if it couldn't be determined
+     */
+    public synchronized void put(String url, IconSize size) {
+        Entry entry = new Entry(size, clock.getAsLong());
+        entries.put(url, entry);
+
+        if (isPersistent(url) && size != null) {
+            loadPersistentEntries().put(url, entry);
+            persistentEntriesChanged = true;
+        }
+    }
+
+    private synchronized Entry lookup(String url) {
+        long now = clock.getAsLong();
+
+        Entry entry = entries.get(url);
+        if (entry != null && !hasExpired(entry, now)) {
+            return entry;
+        }
+
+        if (isPersistent(url)) {
+            entry = loadPersistentEntries().get(url);
+            if (entry != null && !hasExpired(entry, now)) {
+                entries.put(url, entry);
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean hasExpired(Entry entry, long now) {
+        return entry.hasExpired(now, entry.size != null ? timeToLive : Math.min(timeToLive, failureTimeToLive));
+    }
+
+    private boolean isPersistent(String url) {
+        return persistentFile != null && !url.regionMatches(true, 0, DATA_URI_PREFIX, 0, DATA_URI_PREFIX.length());
+    }
+
+    private Map<String, Entry> loadPersistentEntries() {
+        if (persistentEntries == null) {
+            persistentEntries = new HashMap<>();
+
+            if (persistentFile.exists()) {
+                Properties properties = new Properties();
+                try (Reader reader = new InputStreamReader(new FileInputStream(persistentFile), StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                } catch (IOException e) {
+                    // the file is only a cache, so the icons will be fetched again
+                    return persistentEntries;
+                }
+
+                for (String url : properties.stringPropertyNames()) {
+                    Entry entry = Entry.parse(properties.getProperty(url));
+                    if (entry != null && isPersistent(url)) {
+                        persistentEntries.put(url, entry);
+                    }
+                }
+            }
+        }
+
+        return persistentEntries;
+    }
+
+    /**
+     * Saves the unexpired icon sizes to the persistent file (if there is one, and it has changed), replacing it atomically.
+     *
+     * @throws IOException  if the file can't be written
+     */
+    public synchronized void save() throws IOException {
+        if (persistentFile == null || !persistentEntriesChanged) {
+            return;
+        }
+
+        long now = clock.getAsLong();
+        Properties properties = new Properties();
+        for (Map.Entry<String, Entry> entry : persistentEntries.entrySet()) {
+            if (!entry.getValue().hasExpired(now, timeToLive)) {
+                properties.setProperty(entry.getKey(), entry.getValue().toString());
+            }
+        }
+
+        File directory = persistentFile.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+
+        File temporaryFile = File.createTempFile("." + persistentFile.getName() + "-", ".tmp", directory);
+        try {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(temporaryFile), StandardCharsets.UTF_8)) {
+                properties.store(writer, null);
+            }
+
+            Files.move(temporaryFile.toPath(), persistentFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            persistentEntriesChanged = false;
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+
+    /**
+     * Removes every icon from memory; the persistent file (if any) is not changed.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        persistentEntries = null;
+        persistentEntriesChanged = false;
+    }
+
+    private static final class Entry {
+
+        private final IconSize size;
+        private final long created;
+
+        private Entry(IconSize size, long created) {
+            this.size = size;
+            this.created = created;
+        }
+
+        private boolean hasExpired(long now, long timeToLive) {
+            return now - created >= timeToLive;
+        }
+
+        // width,height,created
+        private static Entry parse(String s) {
+            String[] parts = s.split(",");
+            if (parts.length != 3) {
+                return null;
+            }
+
+            try {
+                return new Entry(new IconSize(Integer.parseInt(parts[0]), Integer.parseInt(parts[1])), Long.parseLong(parts[2]));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return size.getWidth() + "," + size.getHeight() + "," + created;
+        }
+
+    }
+
+}
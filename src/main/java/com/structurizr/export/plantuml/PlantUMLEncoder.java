@@ -1,73 +1,164 @@
 package com.structurizr.export.plantuml;
 
-import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 
 /**
  *  A Java implementation of http://plantuml.com/code-javascript-synchronous
  *  that uses Java's built-in Deflate algorithm.
+ *
+ *  Each thread reuses its Deflater and output buffer between calls, so an encoder can be shared between threads,
+ *  and encoding many definitions doesn't allocate (and finalize) a Deflater per definition. A thread only keeps
+ *  the Deflater for the compression level it used last; it is ended and replaced when a different level is used.
  */
 public class PlantUMLEncoder {
 
-    public String encode(String plantUMLDefinition) throws Exception {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+    public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.BEST_COMPRESSION;
 
-        DeflaterOutputStream dos = new DeflaterOutputStream(baos, deflater, true);
-        dos.write(plantUMLDefinition.getBytes(StandardCharsets.UTF_8));
-        dos.finish();
+    // the level that Deflater.DEFAULT_COMPRESSION corresponds to
+    private static final int ZLIB_DEFAULT_COMPRESSION_LEVEL = 6;
 
-        return encode(baos.toByteArray());
-    }
+    private static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz-_".toCharArray();
 
-    private String encode(byte[] bytes) {
-        StringBuilder buf = new StringBuilder();
-        for (int i = 0; i < bytes.length; i += 3) {
-            int b1 = (bytes[i]) & 0xFF;
-            int b2 = (i + 1 < bytes.length ? bytes[i + 1] : (byte)0) & 0xFF;
-            int b3 = (i + 2 < bytes.length ? bytes[i + 2] : (byte)0) & 0xFF;
+    // output buffers larger than this are not kept between calls
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+    private static final int MIN_BUFFER_SIZE = 1024;
 
-            append3bytes(buf, b1, b2, b3);
-        }
+    private static final ThreadLocal<EncoderState> STATE = ThreadLocal.withInitial(EncoderState::new);
 
-        return buf.toString();
+    private final int compressionLevel;
+
+    public PlantUMLEncoder() {
+        this(DEFAULT_COMPRESSION_LEVEL);
     }
 
-    private char encode6bit(byte b) {
-        if (b < 10) {
-            return (char) ('0' + b);
-        }
-        b -= 10;
-        if (b < 26) {
-            return (char) ('A' + b);
+    /**
+     * Creates an encoder that uses the given compression level; Deflater.DEFAULT_COMPRESSION (level 6) is
+     * considerably faster than the default (Deflater.BEST_COMPRESSION), for slightly longer encoded definitions.
+     *
+     * @param compressionLevel  a compression level, from 0 (Deflater.NO_COMPRESSION) to 9 (Deflater.BEST_COMPRESSION),
+     *                          or Deflater.DEFAULT_COMPRESSION
+     */
+    public PlantUMLEncoder(int compressionLevel) {
+        if (compressionLevel == Deflater.DEFAULT_COMPRESSION) {
+            compressionLevel = ZLIB_DEFAULT_COMPRESSION_LEVEL;
         }
-        b -= 26;
-        if (b < 26) {
-            return (char) ('a' + b);
+
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("The compression level must be between " + Deflater.NO_COMPRESSION + " and " + Deflater.BEST_COMPRESSION + ".");
         }
-        b -= 26;
-        if (b == 0) {
-            return '-';
+
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public String encode(String plantUMLDefinition) throws Exception {
+        return encode(ByteBuffer.wrap(plantUMLDefinition.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Encodes a PlantUML definition that has already been encoded as UTF-8 (e.g. by a {@link com.structurizr.export.Utf8ByteSink}),
+     * so that it doesn't need to be decoded into, and re-encoded from, a String.
+     *
+     * @param utf8PlantUMLDefinition    the remaining bytes of the buffer (its position is not changed)
+     * @return  the encoded definition
+     */
+    public String encode(ByteBuffer utf8PlantUMLDefinition) throws Exception {
+        EncoderState state = STATE.get();
+        Deflater deflater = state.deflater(compressionLevel);
+
+        // compressed definitions are typically a fraction of the size of the original
+        byte[] buf = state.buffer(utf8PlantUMLDefinition.remaining() / 4);
+        int length = 0;
+
+        try {
+            ByteBuffer definition = utf8PlantUMLDefinition.duplicate();
+            if (definition.hasArray()) {
+                deflater.setInput(definition.array(), definition.arrayOffset() + definition.position(), definition.remaining());
+            } else {
+                byte[] bytes = new byte[definition.remaining()];
+                definition.get(bytes);
+                deflater.setInput(bytes);
+            }
+            deflater.finish();
+
+            while (!deflater.finished()) {
+                if (length == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+                length += deflater.deflate(buf, length, buf.length - length);
+            }
+        } finally {
+            // ready for the next call, and without holding on to the input
+            deflater.reset();
+            deflater.setInput(EncoderState.NO_INPUT);
+            state.release(buf);
         }
-        if (b == 1) {
-            return '_';
+
+        return encode(buf, length);
+    }
+
+    private String encode(byte[] bytes, int length) {
+        char[] chars = new char[(length + 2) / 3 * 4];
+        int c = 0;
+
+        for (int i = 0; i < length; i += 3) {
+            int b1 = bytes[i] & 0xFF;
+            int b2 = i + 1 < length ? bytes[i + 1] & 0xFF : 0;
+            int b3 = i + 2 < length ? bytes[i + 2] & 0xFF : 0;
+
+            chars[c++] = ALPHABET[b1 >> 2];
+            chars[c++] = ALPHABET[(b1 & 0x3) << 4 | b2 >> 4];
+            chars[c++] = ALPHABET[(b2 & 0xF) << 2 | b3 >> 6];
+            chars[c++] = ALPHABET[b3 & 0x3F];
         }
 
-        return '?';
+        return new String(chars);
     }
 
-    private void append3bytes(StringBuilder buf, int b1, int b2, int b3) {
-        int c1 = b1 >> 2;
-        int c2 = (b1 & 0x3) << 4 | b2 >> 4;
-        int c3 = (b2 & 0xF) << 2 | b3 >> 6;
-        int c4 = b3 & 0x3F;
+    private static final class EncoderState {
+
+        private static final byte[] NO_INPUT = new byte[0];
+
+        // a new Deflater is created for a different level (rather than calling setLevel), so that the output
+        // is the same as from a new Deflater at that level
+        private Deflater deflater;
+        private int compressionLevel;
+        private byte[] buffer = new byte[MIN_BUFFER_SIZE];
+
+        private Deflater deflater(int compressionLevel) {
+            if (deflater == null || this.compressionLevel != compressionLevel) {
+                if (deflater != null) {
+                    // releases the native memory now, rather than when the Deflater is garbage collected
+                    deflater.end();
+                }
+
+                deflater = new Deflater(compressionLevel, true);
+                this.compressionLevel = compressionLevel;
+            }
+
+            return deflater;
+        }
+
+        private byte[] buffer(int size) {
+            if (buffer.length < size) {
+                buffer = new byte[Math.min(size, MAX_RETAINED_BUFFER_SIZE)];
+            }
+
+            return buffer;
+        }
+
+        private void release(byte[] buf) {
+            if (buf.length <= MAX_RETAINED_BUFFER_SIZE) {
+                buffer = buf;
+            }
+        }
 
-        buf.append(encode6bit((byte)(c1 & 0x3F)));
-        buf.append(encode6bit((byte)(c2 & 0x3F)));
-        buf.append(encode6bit((byte)(c3 & 0x3F)));
-        buf.append(encode6bit((byte)(c4 & 0x3F)));
     }
 
-}
\ No newline at end of file
+}
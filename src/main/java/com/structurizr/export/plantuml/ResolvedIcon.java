@@ -0,0 +1,111 @@
+package com.structurizr.export.plantuml;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * An icon that has been resolved by an {@link IconResolver}; the reference to the icon that is written to
+ * the diagram definition, and where the content of the icon can be read from.
+ */
+public final class ResolvedIcon {
+
+    private final String reference;
+    private final Content content;
+
+    private ResolvedIcon(String reference, Content content) {
+        if (reference == null || reference.trim().isEmpty()) {
+            throw new IllegalArgumentException("A reference must be provided.");
+        }
+
+        this.reference = reference;
+        this.content = content;
+    }
+
+    /**
+     * Creates an icon that is read from a URL.
+     *
+     * @param reference     the reference written to the diagram definition
+     * @param url           the URL to read the icon from
+     * @return  a ResolvedIcon
+     */
+    public static ResolvedIcon ofUrl(String reference, URL url) {
+        if (url == null) {
+            throw new IllegalArgumentException("A URL must be provided.");
+        }
+
+        return new ResolvedIcon(reference, timeout -> {
+            URLConnection connection = url.openConnection();
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+
+            return connection.getInputStream();
+        });
+    }
+
+    /**
+     * Creates an icon that is read from a file.
+     *
+     * @param reference     the reference written to the diagram definition
+     * @param file          the file to read the icon from
+     * @return  a ResolvedIcon
+     */
+    public static ResolvedIcon ofFile(String reference, File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("A file must be provided.");
+        }
+
+        return new ResolvedIcon(reference, timeout -> new FileInputStream(file));
+    }
+
+    /**
+     * Creates an icon whose content is already in memory.
+     *
+     * @param reference     the reference written to the diagram definition
+     * @param content       the content of the icon
+     * @return  a ResolvedIcon
+     */
+    public static ResolvedIcon ofBytes(String reference, byte[] content) {
+        if (content == null) {
+            throw new IllegalArgumentException("The content must be provided.");
+        }
+
+        return new ResolvedIcon(reference, timeout -> new ByteArrayInputStream(content));
+    }
+
+    /**
+     * Gets the reference to the icon that is written to the diagram definition, as {@code <img:reference>}.
+     *
+     * @return  a URL, file path, or data URI
+     */
+    public String getReference() {
+        return reference;
+    }
+
+    /**
+     * Opens the content of the icon.
+     *
+     * @param timeout   the connect and read timeout (for icons read over a network), in milliseconds
+     * @return  an InputStream, which the caller must close
+     * @throws IOException  if the icon can't be read
+     */
+    public InputStream open(int timeout) throws IOException {
+        return content.open(timeout);
+    }
+
+    @Override
+    public String toString() {
+        return reference.length() > 100 ? reference.substring(0, 100) + "..." : reference;
+    }
+
+    private interface Content {
+
+        InputStream open(int timeout) throws IOException;
+
+    }
+
+}
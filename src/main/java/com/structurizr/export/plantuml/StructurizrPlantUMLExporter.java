@@ -1,15 +1,16 @@
 package com.structurizr.export.plantuml;
 
 import com.structurizr.export.Diagram;
+import com.structurizr.export.Fingerprint;
 import com.structurizr.export.IndentingWriter;
+import com.structurizr.export.RenderContext;
+import com.structurizr.export.StyleResolver;
+import com.structurizr.export.ViewIndex;
 import com.structurizr.export.Legend;
 import com.structurizr.model.*;
 import com.structurizr.util.StringUtils;
 import com.structurizr.view.*;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.net.URL;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -20,6 +21,15 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
     public static final String PLANTUML_SEQUENCE_DIAGRAM_PROPERTY = "plantuml.sequenceDiagram";
 
     private static final double MAX_ICON_SIZE = 50.0;
+    private static final double DEFAULT_ICON_SCALE = 0.5;
+
+    private volatile IconSizeCache iconSizeCache = new IconSizeCache();
+    private volatile IconResolver iconResolver = new DefaultIconResolver();
+    private volatile boolean prefetchIcons = true;
+    private volatile int iconPrefetchThreads = IconPrefetcher.DEFAULT_THREADS;
+    private volatile int iconRequestTimeout = IconPrefetcher.DEFAULT_REQUEST_TIMEOUT;
+    private volatile long iconPrefetchTimeout = IconPrefetcher.DEFAULT_TIMEOUT;
+    private volatile Map<String, Exception> iconPrefetchFailures = Collections.emptyMap();
 
     public StructurizrPlantUMLExporter() {
         addSkinParam("shadowing", "false");
@@ -29,9 +39,166 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
         addSkinParam("maxMessageSize", "100");
     }
 
+    public IconSizeCache getIconSizeCache() {
+        return iconSizeCache;
+    }
+
+    /**
+     * Sets the cache used to remember the sizes of icons (which are used to scale them), so that a cache
+     * (optionally backed by a file) can be shared between exporters and exports.
+     *
+     * @param iconSizeCache     an IconSizeCache
+     */
+    public void setIconSizeCache(IconSizeCache iconSizeCache) {
+        if (iconSizeCache == null) {
+            throw new IllegalArgumentException("An icon size cache must be provided.");
+        }
+
+        this.iconSizeCache = iconSizeCache;
+    }
+
+    public IconResolver getIconResolver() {
+        return iconResolver;
+    }
+
+    /**
+     * Sets the resolver used to determine which icons are supported, and how they are referenced from
+     * diagram definitions; for example, a DefaultIconResolver with a mirror directory, so that icons can be
+     * rendered without network access.
+     *
+     * @param iconResolver      an IconResolver
+     */
+    public void setIconResolver(IconResolver iconResolver) {
+        if (iconResolver == null) {
+            throw new IllegalArgumentException("An icon resolver must be provided.");
+        }
+
+        this.iconResolver = iconResolver;
+    }
+
+    public boolean isPrefetchIcons() {
+        return prefetchIcons;
+    }
+
+    /**
+     * Sets whether the sizes of the icons used by a workspace are fetched concurrently (with an {@link IconPrefetcher})
+     * before its views are rendered, rather than one at a time while rendering; this is the default.
+     * Exporting a single view always reads the sizes of its icons while rendering.
+     *
+     * @param prefetchIcons     true to prefetch icons, false otherwise
+     */
+    public void setPrefetchIcons(boolean prefetchIcons) {
+        this.prefetchIcons = prefetchIcons;
+    }
+
+    public int getIconPrefetchThreads() {
+        return iconPrefetchThreads;
+    }
+
+    /**
+     * Sets the maximum number of icons to fetch at the same time when prefetching icons (see {@link IconPrefetcher#setThreads(int)}).
+     *
+     * @param iconPrefetchThreads   a number of threads
+     */
+    public void setIconPrefetchThreads(int iconPrefetchThreads) {
+        if (iconPrefetchThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be at least 1.");
+        }
+
+        this.iconPrefetchThreads = iconPrefetchThreads;
+    }
+
+    public int getIconRequestTimeout() {
+        return iconRequestTimeout;
+    }
+
+    /**
+     * Sets the connect and read timeout for each icon, both when prefetching icons and when reading the size of
+     * an icon while rendering (see {@link IconPrefetcher#setRequestTimeout(int)}).
+     *
+     * @param iconRequestTimeout    a timeout, in milliseconds
+     */
+    public void setIconRequestTimeout(int iconRequestTimeout) {
+        if (iconRequestTimeout < 1) {
+            throw new IllegalArgumentException("The request timeout must be at least 1 millisecond.");
+        }
+
+        this.iconRequestTimeout = iconRequestTimeout;
+    }
+
+    public long getIconPrefetchTimeout() {
+        return iconPrefetchTimeout;
+    }
+
+    /**
+     * Sets the deadline for prefetching all of the icons used by a workspace (see {@link IconPrefetcher#setTimeout(long)}).
+     *
+     * @param iconPrefetchTimeout   a timeout, in milliseconds
+     */
+    public void setIconPrefetchTimeout(long iconPrefetchTimeout) {
+        if (iconPrefetchTimeout < 1) {
+            throw new IllegalArgumentException("The timeout must be at least 1 millisecond.");
+        }
+
+        this.iconPrefetchTimeout = iconPrefetchTimeout;
+    }
+
+    /**
+     * Gets the icons that couldn't be fetched when the most recent workspace was exported (these are drawn at
+     * the default scale), keyed by URL, with the reason (a TimeoutException for icons that weren't fetched by
+     * the deadline). This is empty if every icon was fetched, or icons weren't prefetched; icons that are already
+     * in the cache (including icons that previously failed) aren't fetched again, so aren't reported. When one exporter is
+     * used to export several workspaces at the same time, it's the failures from whichever export finished last.
+     *
+     * @return  an unmodifiable Map of icon URLs to exceptions
+     */
+    public Map<String, Exception> getIconPrefetchFailures() {
+        return iconPrefetchFailures;
+    }
+
+    @Override
+    protected void fingerprint(View view, Fingerprint fingerprint) {
+        super.fingerprint(view, fingerprint);
+
+        // icon references depend on the resolver, and how it's configured (e.g. the mirror directory), rather than only the icons
+        IconResolver iconResolver = this.iconResolver;
+        fingerprint.add("iconResolver", iconResolver.getClass().getName());
+
+        Map<String, String> icons = new TreeMap<>();
+        for (ElementView elementView : view.getElements()) {
+            Element element = elementView.getElement();
+            while (element != null) {
+                String icon = findElementStyle(view, element).getIcon();
+                if (!StringUtils.isNullOrEmpty(icon) && !icons.containsKey(icon)) {
+                    ResolvedIcon resolvedIcon = iconResolver.resolve(icon);
+                    icons.put(icon, resolvedIcon != null ? resolvedIcon.getReference() : null);
+                }
+
+                element = element.getParent();
+            }
+        }
+        fingerprint.add("icons", icons);
+    }
+
+    @Override
+    protected void prepareExport(List<View> views, StyleResolver styleResolver) {
+        Map<String, Exception> failures = Collections.emptyMap();
+        if (prefetchIcons) {
+            IconPrefetcher iconPrefetcher = new IconPrefetcher(iconSizeCache, iconResolver);
+            iconPrefetcher.setThreads(iconPrefetchThreads);
+            iconPrefetcher.setRequestTimeout(iconRequestTimeout);
+            iconPrefetcher.setTimeout(iconPrefetchTimeout);
+
+            // icons that can't be fetched are recorded in the cache, and drawn at the default scale
+            failures = Collections.unmodifiableMap(iconPrefetcher.prefetch(views, styleResolver));
+        }
+
+        iconPrefetchFailures = failures;
+    }
+
     @Override
-    protected void writeHeader(View view, IndentingWriter writer) {
-        super.writeHeader(view, writer);
+    protected void writeHeader(RenderContext context, View view, IndentingWriter writer) {
+        super.writeHeader(context, view, writer);
 
         if (view instanceof DynamicView && renderAsSequenceDiagram(view)) {
             // do nothing
@@ -61,14 +228,14 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
 
         List<Element> elements = view.getElements().stream().map(ElementView::getElement).sorted(Comparator.comparing(Element::getName)).collect(Collectors.toList());
         for (Element element : elements) {
-            String id = idOf(element);
+            String id = idOf(context, element);
 
-            String type = plantUMLShapeOf(view, element);
+            String type = plantUMLShapeOf(context, element);
             if ("actor".equals(type)) {
                 type = "rectangle"; // the actor shape is not supported in this implementation
             }
 
-            ElementStyle elementStyle = findElementStyle(view, element);
+            ElementStyle elementStyle = findElementStyle(context, element);
 
             String background = elementStyle.getBackground();
             String stroke = elementStyle.getStroke();
@@ -100,7 +267,7 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
     }
 
     @Override
-    protected void startEnterpriseBoundary(View view, String enterpriseName, IndentingWriter writer) {
+    protected void startEnterpriseBoundary(RenderContext context, View view, String enterpriseName, IndentingWriter writer) {
         if (!renderAsSequenceDiagram(view)) {
             writer.writeLine(String.format("package \"%s\" <<enterprise>> {", enterpriseName));
             writer.indent();
@@ -111,7 +278,7 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
     }
 
     @Override
-    protected void endEnterpriseBoundary(View view, IndentingWriter writer) {
+    protected void endEnterpriseBoundary(RenderContext context, View view, IndentingWriter writer) {
         if (!renderAsSequenceDiagram(view)) {
             writer.outdent();
             writer.writeLine("}");
@@ -120,18 +287,18 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
     }
 
     @Override
-    protected void startGroupBoundary(View view, String group, IndentingWriter writer) {
+    protected void startGroupBoundary(RenderContext context, View view, String group, IndentingWriter writer) {
         if (!renderAsSequenceDiagram(view)) {
             String groupId;
             String color = "#cccccc";
 
             // is there a style for the group?
-            ElementStyle elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle("Group:" + group);
+            ElementStyle elementStyle = findElementStyle(context, "Group:" + group);
             groupId = "group:" + group;
 
             if (elementStyle == null || StringUtils.isNullOrEmpty(elementStyle.getColor())) {
                 // no, so is there a default group style?
-                elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle("Group");
+                elementStyle = findElementStyle(context, "Group");
                 groupId = "group";
             }
 
@@ -148,7 +315,7 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
     }
 
     @Override
-    protected void endGroupBoundary(View view, IndentingWriter writer) {
+    protected void endGroupBoundary(RenderContext context, View view, IndentingWriter writer) {
         if (!renderAsSequenceDiagram(view)) {
             writer.outdent();
             writer.writeLine("}");
@@ -157,21 +324,21 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
     }
 
     @Override
-    protected void startSoftwareSystemBoundary(View view, SoftwareSystem softwareSystem, IndentingWriter writer) {
+    protected void startSoftwareSystemBoundary(RenderContext context, View view, SoftwareSystem softwareSystem, IndentingWriter writer) {
         if (!renderAsSequenceDiagram(view)) {
-            ElementStyle elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle(softwareSystem);
+            ElementStyle elementStyle = findElementStyle(context, softwareSystem);
             String color = elementStyle.getStroke();
 
-            writer.writeLine(String.format("package \"%s\\n%s\" <<%s>> {", softwareSystem.getName(), typeOf(view, softwareSystem, true), idOf(softwareSystem)));
+            writer.writeLine(String.format("package \"%s\\n%s\" <<%s>> {", softwareSystem.getName(), typeOf(view, softwareSystem, true), idOf(context, softwareSystem)));
             writer.indent();
-            writer.writeLine(String.format("skinparam PackageBorderColor<<%s>> %s", idOf(softwareSystem), color));
-            writer.writeLine(String.format("skinparam PackageFontColor<<%s>> %s", idOf(softwareSystem), color));
+            writer.writeLine(String.format("skinparam PackageBorderColor<<%s>> %s", idOf(context, softwareSystem), color));
+            writer.writeLine(String.format("skinparam PackageFontColor<<%s>> %s", idOf(context, softwareSystem), color));
             writer.writeLine();
         }
     }
 
     @Override
-    protected void endSoftwareSystemBoundary(View view, IndentingWriter writer) {
+    protected void endSoftwareSystemBoundary(RenderContext context, View view, IndentingWriter writer) {
         if (!renderAsSequenceDiagram(view)) {
             writer.outdent();
             writer.writeLine("}");
@@ -180,21 +347,21 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
     }
 
     @Override
-    protected void startContainerBoundary(View view, Container container, IndentingWriter writer) {
+    protected void startContainerBoundary(RenderContext context, View view, Container container, IndentingWriter writer) {
         if (!renderAsSequenceDiagram(view)) {
-            ElementStyle elementStyle = view.getViewSet().getConfiguration().getStyles().findElementStyle(container);
+            ElementStyle elementStyle = findElementStyle(context, container);
             String color = elementStyle.getStroke();
 
-            writer.writeLine(String.format("package \"%s\\n%s\" <<%s>> {", container.getName(), typeOf(view, container, true), idOf(container)));
+            writer.writeLine(String.format("package \"%s\\n%s\" <<%s>> {", container.getName(), typeOf(view, container, true), idOf(context, container)));
             writer.indent();
-            writer.writeLine(String.format("skinparam PackageBorderColor<<%s>> %s", idOf(container), color));
-            writer.writeLine(String.format("skinparam PackageFontColor<<%s>> %s", idOf(container), color));
+            writer.writeLine(String.format("skinparam PackageBorderColor<<%s>> %s", idOf(context, container), color));
+            writer.writeLine(String.format("skinparam PackageFontColor<<%s>> %s", idOf(context, container), color));
             writer.writeLine();
         }
     }
 
     @Override
-    protected void endContainerBoundary(View view, IndentingWriter writer) {
+    protected void endContainerBoundary(RenderContext context, View view, IndentingWriter writer) {
         if (!renderAsSequenceDiagram(view)) {
             writer.outdent();
             writer.writeLine("}");
@@ -203,14 +370,10 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
     }
 
     @Override
-    protected void startDeploymentNodeBoundary(DeploymentView view, DeploymentNode deploymentNode, IndentingWriter writer) {
-        ElementStyle elementStyle = findElementStyle(view, deploymentNode);
+    protected void startDeploymentNodeBoundary(RenderContext context, DeploymentView view, DeploymentNode deploymentNode, IndentingWriter writer) {
+        ElementStyle elementStyle = findElementStyle(context, deploymentNode);
 
-        String icon = "";
-        if (elementStyleHasSupportedIcon(elementStyle)) {
-            double scale = calculateIconScale(elementStyle);
-            icon = "\\n\\n<img:" + elementStyle.getIcon() + "{scale=" + scale + "}>";
-        }
+        String icon = iconOf(elementStyle);
 
         String url = deploymentNode.getUrl();
         if (!StringUtils.isNullOrEmpty(url)) {
@@ -224,30 +387,38 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
                         deploymentNode.getName() + (!"1".equals(deploymentNode.getInstances()) ? " (x" + deploymentNode.getInstances() + ")" : ""),
                         typeOf(view, deploymentNode, true),
                         icon,
-                        idOf(deploymentNode),
-                        idOf(deploymentNode),
+                        idOf(context, deploymentNode),
+                        idOf(context, deploymentNode),
                         url
                 )
         );
         writer.indent();
 
-        if (!isVisible(view, deploymentNode)) {
-            writer.writeLine("hide " + idOf(deploymentNode));
+        if (!isVisible(context, view, deploymentNode)) {
+            writer.writeLine("hide " + idOf(context, deploymentNode));
         }
     }
 
     @Override
-    protected void endDeploymentNodeBoundary(View view, IndentingWriter writer) {
+    protected void endDeploymentNodeBoundary(RenderContext context, View view, IndentingWriter writer) {
         writer.outdent();
         writer.writeLine("}");
         writer.writeLine();
     }
 
     @Override
-    public Diagram export(DynamicView view) {
+    protected Diagram export(DynamicView view, ViewIndex viewIndex) {
+        if (renderAsSequenceDiagram(view)) {
+            return exportWithoutAnimation(view, viewIndex);
+        } else {
+            return super.export(view, viewIndex);
+        }
+    }
+
+    @Override
+    protected void writeView(RenderContext context, DynamicView view, IndentingWriter writer) {
         if (renderAsSequenceDiagram(view)) {
-            IndentingWriter writer = new IndentingWriter();
-            writeHeader(view, writer);
+            writeHeader(context, view, writer);
 
             Set<Element> elements = new LinkedHashSet<>();
             for (RelationshipView relationshipView : view.getRelationships()) {
@@ -256,39 +427,36 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
             }
 
             for (Element element : elements) {
-                writeElement(view, element, writer);
+                renderElement(context, view, element, writer);
             }
 
-            writeRelationships(view, writer);
-            writeFooter(view, writer);
-
-            return createDiagram(view, writer.toString());
+            writeRelationships(context, view, writer);
+            writeFooter(context, view, writer);
         } else {
-            return super.export(view);
+            super.writeView(context, view, writer);
         }
     }
 
     @Override
-    protected void writeElement(View view, Element element, IndentingWriter writer) {
-        ElementStyle elementStyle = findElementStyle(view, element);
+    protected void writeElement(RenderContext context, View view, Element element, IndentingWriter writer) {
+        ElementStyle elementStyle = findElementStyle(context, element);
 
         if (view instanceof DynamicView && renderAsSequenceDiagram(view)) {
             writer.writeLine(String.format("%s \"%s\\n<size:10>%s</size>\" as %s <<%s>> %s",
-                    plantumlSequenceType(view, element),
+                    plantumlSequenceType(context, element),
                     element.getName(),
                     typeOf(view, element, true),
-                    idOf(element),
-                    idOf(element),
+                    idOf(context, element),
+                    idOf(context, element),
                     elementStyle.getBackground()));
         } else {
-            String shape = plantUMLShapeOf(view, element);
+            String shape = plantUMLShapeOf(context, element);
             if ("actor".equals(shape)) {
                 shape = "rectangle";
             }
             String name = element.getName();
             String description = element.getDescription();
             String type = typeOf(view, element, true);
-            String icon = "";
 
             String url = element.getUrl();
             if (!StringUtils.isNullOrEmpty(url)) {
@@ -302,7 +470,7 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
                 name = elementInstance.getElement().getName();
                 description = elementInstance.getElement().getDescription();
                 type = typeOf(view, elementInstance.getElement(), true);
-                shape = plantUMLShapeOf(view, elementInstance.getElement());
+                shape = plantUMLShapeOf(context, elementInstance.getElement());
 
                 if (StringUtils.isNullOrEmpty(url)) {
                     url = element.getUrl();
@@ -326,12 +494,9 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
                 type = String.format("\\n<size:10>%s</size>", type);
             }
 
-            if (elementStyleHasSupportedIcon(elementStyle)) {
-                double scale = calculateIconScale(elementStyle);
-                icon = "\\n\\n<img:" + elementStyle.getIcon() + "{scale=" + scale + "}>";
-            }
+            String icon = iconOf(elementStyle);
 
-            String id = idOf(element);
+            String id = idOf(context, element);
 
             writer.writeLine(format("%s \"==%s%s%s%s\" <<%s>> as %s%s",
                     shape,
@@ -344,16 +509,16 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
                     url)
             );
 
-            if (!isVisible(view, element)) {
+            if (!isVisible(context, view, element)) {
                 writer.writeLine("hide " + id);
             }
         }
     }
 
     @Override
-    protected void writeRelationship(View view, RelationshipView relationshipView, IndentingWriter writer) {
+    protected void writeRelationship(RenderContext context, View view, RelationshipView relationshipView, IndentingWriter writer) {
         Relationship relationship = relationshipView.getRelationship();
-        RelationshipStyle style = findRelationshipStyle(view, relationship);
+        RelationshipStyle style = findRelationshipStyle(context, relationship);
 
         String description = "";
         String technology = relationship.getTechnology();
@@ -379,11 +544,11 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
 
             writer.writeLine(
                     String.format("%s %s[%s]%s %s : %s",
-                            idOf(relationship.getSource()),
+                            idOf(context, relationship.getSource()),
                             arrowStart,
                             style.getColor(),
                             arrowEnd,
-                            idOf(relationship.getDestination()),
+                            idOf(context, relationship.getDestination()),
                             description));
         } else {
             boolean solid = style.getStyle() == LineStyle.Solid || false == style.getDashed();
@@ -396,8 +561,8 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
                 relationshipStyle += ",thickness=" + style.getThickness();
             }
 
-            String sourceId = idOf(relationship.getSource());
-            String destId = idOf(relationship.getDestination());
+            String sourceId = idOf(context, relationship.getSource());
+            String destId = idOf(context, relationship.getDestination());
 
             Boolean reversed = relationship.getTagsAsSet().contains("reversed-flow") ||
                     "true".equalsIgnoreCase(getViewOrViewSetProperty(view,
@@ -411,7 +576,7 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
                 arrowEnd = solid ? "->" : ".>";
             }
 
-            if (!isVisible(view, relationshipView)) {
+            if (!isVisible(context, view, relationshipView)) {
                 relationshipStyle = "hidden";
             }
 
@@ -436,7 +601,7 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
     }
 
     @Override
-    protected Legend createLegend(View view) {
+    protected Legend createLegend(RenderContext context, View view) {
         IndentingWriter writer = new IndentingWriter();
         int id = 0;
 
@@ -466,17 +631,14 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
         writer.writeLine();
 
         Map<String,ElementStyle> elementStyles = new HashMap<>();
+        Map<String,Boolean> deploymentNodeStyles = new HashMap<>();
         List<Element> elements = view.getElements().stream().map(ElementView::getElement).collect(Collectors.toList());
         for (Element element : elements) {
-            ElementStyle elementStyle = findElementStyle(view, element);
-
-            if (element instanceof DeploymentNode) {
-                // deployment node backgrounds are always white
-                elementStyle.setBackground("#ffffff");
-            }
+            ElementStyle elementStyle = findElementStyle(context, element);
 
             if (!StringUtils.isNullOrEmpty(elementStyle.getTag()) ) {
                 elementStyles.put(elementStyle.getTag(), elementStyle);
+                deploymentNodeStyles.put(elementStyle.getTag(), element instanceof DeploymentNode);
             };
         }
 
@@ -489,7 +651,8 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
                 type = "rectangle"; // the actor shape is not supported in this implementation
             }
 
-            String background = elementStyle.getBackground();
+            // deployment node backgrounds are always white (the shared style isn't modified)
+            String background = deploymentNodeStyles.get(elementStyle.getTag()) ? "#ffffff" : elementStyle.getBackground();
             String stroke = elementStyle.getStroke();
             String color = elementStyle.getColor();
 
@@ -515,11 +678,7 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
             }
             description = description.replaceAll(",", ", ");
 
-            String icon = "";
-            if (elementStyleHasSupportedIcon(elementStyle)) {
-                double scale = calculateIconScale(elementStyle);
-                icon = "\\n\\n<img:" + elementStyle.getIcon() + "{scale=" + scale + "}>";
-            }
+            String icon = iconOf(elementStyle);
 
             writer.writeLine(format("%s \"==%s%s\" <<%s>>",
                     type,
@@ -533,7 +692,7 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
         Map<String,RelationshipStyle> relationshipStyles = new HashMap<>();
         List<Relationship> relationships = view.getRelationships().stream().map(RelationshipView::getRelationship).collect(Collectors.toList());
         for (Relationship relationship : relationships) {
-            RelationshipStyle relationshipStyle = findRelationshipStyle(view, relationship);
+            RelationshipStyle relationshipStyle = findRelationshipStyle(context, relationship);
 
             if (!StringUtils.isNullOrEmpty(relationshipStyle.getTag())) {
                 relationshipStyles.put(relationshipStyle.getTag(), relationshipStyle);
@@ -583,27 +742,37 @@ public class StructurizrPlantUMLExporter extends AbstractPlantUMLExporter {
         return new Legend(writer.toString());
     }
 
-    private boolean elementStyleHasSupportedIcon(ElementStyle elementStyle) {
-        return !StringUtils.isNullOrEmpty(elementStyle.getIcon()) && elementStyle.getIcon().startsWith("http");
+    private ResolvedIcon resolveIcon(ElementStyle elementStyle) {
+        return StringUtils.isNullOrEmpty(elementStyle.getIcon()) ? null : iconResolver.resolve(elementStyle.getIcon());
     }
 
-    private double calculateIconScale(ElementStyle elementStyle) {
-        String icon = elementStyle.getIcon();
-        double scale = 0.5;
+    private String iconOf(ElementStyle elementStyle) {
+        ResolvedIcon icon = resolveIcon(elementStyle);
+        if (icon != null) {
+            double scale = calculateIconScale(elementStyle.getIcon(), icon);
+            return "\\n\\n<img:" + icon.getReference() + "{scale=" + scale + "}>";
+        } else {
+            return "";
+        }
+    }
 
-        try {
-            URL url = new URL(icon);
-            BufferedImage bi = ImageIO.read(url);
+    private double calculateIconScale(String key, ResolvedIcon icon) {
+        IconSize size = iconSizeCache.get(key, k -> readIconSize(icon));
 
-            int width = bi.getWidth();
-            int height = bi.getHeight();
+        if (size != null) {
+            return MAX_ICON_SIZE / Math.max(size.getWidth(), size.getHeight());
+        } else {
+            return DEFAULT_ICON_SCALE;
+        }
+    }
 
-            scale = MAX_ICON_SIZE / Math.max(width, height);
+    // icons that can't be read are drawn at the default scale; see getIconPrefetchFailures() to find out which icons failed, and why
+    private IconSize readIconSize(ResolvedIcon icon) {
+        try {
+            return IconProbe.probe(icon, iconRequestTimeout);
         } catch (Exception e) {
-            e.printStackTrace();
+            return null;
         }
-
-        return scale;
     }
 
     protected boolean renderAsSequenceDiagram(View view) {
@@ -3,6 +3,8 @@ package com.structurizr.export.websequencediagrams;
 import com.structurizr.export.AbstractDiagramExporter;
 import com.structurizr.export.Diagram;
 import com.structurizr.export.IndentingWriter;
+import com.structurizr.export.RenderContext;
+import com.structurizr.export.ViewIndex;
 import com.structurizr.model.*;
 import com.structurizr.view.*;
 
@@ -25,29 +27,33 @@ public class WebSequenceDiagramsExporter extends AbstractDiagramExporter {
     private static final String ASYNCHRONOUS_INTERACTION_RETURN = "-->>";
 
     @Override
-    public Diagram export(SystemLandscapeView view) {
+    protected Diagram export(SystemLandscapeView view, ViewIndex viewIndex) {
         return null;
     }
 
     @Override
-    public Diagram export(SystemContextView view) {
+    protected Diagram export(SystemContextView view, ViewIndex viewIndex) {
         return null;
     }
 
     @Override
-    public Diagram export(ContainerView view) {
+    protected Diagram export(ContainerView view, ViewIndex viewIndex) {
         return null;
     }
 
     @Override
-    public Diagram export(ComponentView view) {
+    protected Diagram export(ComponentView view, ViewIndex viewIndex) {
         return null;
     }
 
     @Override
-    public Diagram export(DynamicView view) {
-        IndentingWriter writer = new IndentingWriter();
-        writeHeader(view, writer);
+    protected Diagram export(DynamicView view, ViewIndex viewIndex) {
+        return exportWithoutAnimation(view, viewIndex);
+    }
+
+    @Override
+    protected void writeView(RenderContext context, DynamicView view, IndentingWriter writer) {
+        writeHeader(context, view, writer);
 
         Set<Element> elements = new LinkedHashSet<>();
         for (RelationshipView relationshipView : view.getRelationships()) {
@@ -56,74 +62,77 @@ public class WebSequenceDiagramsExporter extends AbstractDiagramExporter {
         }
 
         for (Element element : elements) {
-            writeElement(view, element, writer);
+            renderElement(context, view, element, writer);
         }
 
         writer.writeLine();
 
-        writeRelationships(view, writer);
-        writeFooter(view, writer);
-
-        return createDiagram(view, writer.toString());
+        writeRelationships(context, view, writer);
+        writeFooter(context, view, writer);
     }
 
     @Override
-    public Diagram export(DeploymentView view) {
+    protected Diagram export(DeploymentView view, ViewIndex viewIndex) {
         return null;
     }
 
     @Override
-    protected void writeHeader(View view, IndentingWriter writer) {
+    protected boolean isSupported(View view) {
+        return view instanceof DynamicView;
+    }
+
+    @Override
+    protected void writeHeader(RenderContext context, View view, IndentingWriter writer) {
         writer.writeLine("title " + view.getName() + " - " + view.getKey());
         writer.writeLine();
     }
 
     @Override
-    protected void writeFooter(View view, IndentingWriter writer) {
+    protected void writeFooter(RenderContext context, View view, IndentingWriter writer) {
     }
 
     @Override
-    protected void startEnterpriseBoundary(View view, String enterpriseName, IndentingWriter writer) {
+    protected void startEnterpriseBoundary(RenderContext context, View view, String enterpriseName, IndentingWriter writer) {
     }
 
     @Override
-    protected void endEnterpriseBoundary(View view, IndentingWriter writer) {
+    protected void endEnterpriseBoundary(RenderContext context, View view, IndentingWriter writer) {
     }
 
     @Override
-    protected void startGroupBoundary(View view, String group, IndentingWriter writer) {
+    protected void startGroupBoundary(RenderContext context, View view, String group, IndentingWriter writer) {
     }
 
     @Override
-    protected void endGroupBoundary(View view, IndentingWriter writer) {
+    protected void endGroupBoundary(RenderContext context, View view, IndentingWriter writer) {
     }
 
     @Override
-    protected void startSoftwareSystemBoundary(View view, SoftwareSystem softwareSystem, IndentingWriter writer) {
+    protected void startSoftwareSystemBoundary(RenderContext context, View view, SoftwareSystem softwareSystem, IndentingWriter writer) {
     }
 
     @Override
-    protected void endSoftwareSystemBoundary(View view, IndentingWriter writer) {
+    protected void endSoftwareSystemBoundary(RenderContext context, View view, IndentingWriter writer) {
     }
 
     @Override
-    protected void startContainerBoundary(View view, Container container, IndentingWriter writer) {
+    protected void startContainerBoundary(RenderContext context, View view, Container container, IndentingWriter writer) {
     }
 
     @Override
-    protected void endContainerBoundary(View view, IndentingWriter writer) {
+    protected void endContainerBoundary(RenderContext context, View view, IndentingWriter writer) {
     }
 
     @Override
-    protected void startDeploymentNodeBoundary(DeploymentView view, DeploymentNode deploymentNode, IndentingWriter writer) {
+    protected void startDeploymentNodeBoundary(RenderContext context, DeploymentView view, DeploymentNode deploymentNode, IndentingWriter writer) {
     }
 
     @Override
-    protected void endDeploymentNodeBoundary(View view, IndentingWriter writer) {
+    protected void endDeploymentNodeBoundary(RenderContext context, View view, IndentingWriter writer) {
     }
 
     @Override
-    protected void writeElement(View view, Element element, IndentingWriter writer) {
+    protected void writeElement(RenderContext context, View view, Element element, IndentingWriter writer) {
         if (element instanceof Person) {
             writer.writeLine(String.format("actor <<%s>>>\\n%s as %s",
                     view.getViewSet().getConfiguration().getTerminology().findTerminology(element),
@@ -140,7 +149,7 @@ public class WebSequenceDiagramsExporter extends AbstractDiagramExporter {
     }
 
     @Override
-    protected void writeRelationship(View view, RelationshipView relationshipView, IndentingWriter writer) {
+    protected void writeRelationship(RenderContext context, View view, RelationshipView relationshipView, IndentingWriter writer) {
         Relationship r = relationshipView.getRelationship();
 
         Element source = r.getSource();
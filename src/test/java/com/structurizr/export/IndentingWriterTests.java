@@ -2,6 +2,8 @@ package com.structurizr.export;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.StringWriter;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class IndentingWriterTests {
@@ -73,4 +75,55 @@ public class IndentingWriterTests {
                 "Line 4", writer.toString());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void test_WithAnAppendable() {
+        StringWriter out = new StringWriter();
+        IndentingWriter writer = new IndentingWriter(out);
+
+        writer.writeLine("Line 1");
+        writer.indent();
+        writer.writeLine("Line 2");
+        writer.outdent();
+        writer.writeLine();
+        writer.writeLine();
+
+        assertEquals("Line 1\n" +
+                "  Line 2\n" +
+                "\n", out.toString());
+    }
+
+    @Test
+    public void test_EscapesNewlines() {
+        IndentingWriter writer = new IndentingWriter();
+
+        writer.indent();
+        writer.writeLine("\nLine 1\nLine 2\n\n");
+        writer.writeLine("Line 3");
+
+        assertEquals("  \\nLine 1\\nLine 2\\n\\n\n" +
+                "  Line 3", writer.toString());
+    }
+
+    @Test
+    public void test_WithDeepIndentation() {
+        IndentingWriter writer = new IndentingWriter();
+        writer.setIndentQuantity(1);
+
+        for (int i = 0; i < 20; i++) {
+            writer.indent();
+        }
+        writer.writeLine("Line 1");
+        writer.setIndentType(IndentType.Tabs);
+        writer.outdent();
+        writer.writeLine("Line 2");
+        for (int i = 0; i < 25; i++) {
+            writer.outdent();
+        }
+        writer.writeLine("Line 3");
+
+        assertEquals("                    Line 1\n" +
+                "\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\tLine 2\n" +
+                "Line 3", writer.toString());
+    }
+
+}
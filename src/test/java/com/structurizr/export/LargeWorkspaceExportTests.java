@@ -0,0 +1,121 @@
+package com.structurizr.export;
+
+import com.structurizr.Workspace;
+import com.structurizr.export.dot.DOTExporter;
+import com.structurizr.export.ilograph.IlographExporter;
+import com.structurizr.export.mermaid.MermaidDiagramExporter;
+import com.structurizr.export.plantuml.C4PlantUMLExporter;
+import com.structurizr.export.plantuml.StructurizrPlantUMLExporter;
+import com.structurizr.export.websequencediagrams.WebSequenceDiagramsExporter;
+import com.structurizr.view.ContainerView;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the time taken to export grows roughly linearly with the size of a view, by exporting views with
+ * N and 4N elements; linear growth gives a ratio of about 4, and quadratic growth a ratio of about 16.
+ * The largest view contains 4N containers, within N/5 software system boundaries (and a number of groups),
+ * with animation steps; the dynamic view has 4N steps.
+ *
+ * These tests take a while, so they are tagged "scale", and are run by "./gradlew scaleTest" rather than "./gradlew test".
+ */
+@Tag("scale")
+public class LargeWorkspaceExportTests {
+
+    private static final int N = 1000;
+    private static final int CONTAINERS_PER_SOFTWARE_SYSTEM = 5;
+
+    // well above linear (4), and well below quadratic (16), to allow for timing noise
+    private static final double MAXIMUM_RATIO = 10.0;
+
+    private static final int RUNS = 5;
+
+    private static Workspace small;
+    private static Workspace large;
+
+    @BeforeAll
+    public static void setUp() {
+        small = generate(N);
+        large = generate(4 * N);
+    }
+
+    private static Workspace generate(int containers) {
+        WorkspaceGenerator generator = new WorkspaceGenerator();
+        generator.setPeople(1);
+        generator.setSoftwareSystems(containers / CONTAINERS_PER_SOFTWARE_SYSTEM);
+        generator.setContainersPerSoftwareSystem(CONTAINERS_PER_SOFTWARE_SYSTEM);
+        generator.setComponentsPerContainer(0);
+        generator.setDeploymentEnvironments(0);
+        generator.setAnimationSteps(10);
+        generator.setDynamicViewSteps(containers);
+        generator.setViewsPerType(1);
+        generator.setAllContainersView(true);
+
+        return generator.generate();
+    }
+
+    @Test
+    public void test_StructurizrPlantUMLExporter() {
+        assertLinear(workspace -> new StructurizrPlantUMLExporter().export(allContainersView(workspace)));
+    }
+
+    @Test
+    public void test_C4PlantUMLExporter() {
+        assertLinear(workspace -> new C4PlantUMLExporter().export(allContainersView(workspace)));
+    }
+
+    @Test
+    public void test_MermaidDiagramExporter() {
+        assertLinear(workspace -> new MermaidDiagramExporter().export(allContainersView(workspace)));
+    }
+
+    @Test
+    public void test_DOTExporter() {
+        assertLinear(workspace -> new DOTExporter().export(allContainersView(workspace)));
+    }
+
+    @Test
+    public void test_WebSequenceDiagramsExporter() {
+        assertLinear(workspace -> new WebSequenceDiagramsExporter().export(workspace.getViews().getDynamicViews().iterator().next()));
+    }
+
+    @Test
+    public void test_IlographExporter() {
+        assertLinear(workspace -> new IlographExporter().export(workspace));
+    }
+
+    private static ContainerView allContainersView(Workspace workspace) {
+        return (ContainerView)workspace.getViews().getViewWithKey("AllContainers");
+    }
+
+    private void assertLinear(Function<Workspace, Object> export) {
+        assertEquals(N, allContainersView(small).getElements().size());
+        assertEquals(4 * N, allContainersView(large).getElements().size());
+
+        // the small view is exported first, which also warms up the JIT compiler
+        time(export, small);
+        long smallTime = time(export, small);
+        long largeTime = time(export, large);
+
+        double ratio = (double)largeTime / smallTime;
+        assertTrue(ratio < MAXIMUM_RATIO, String.format("Exporting a view with 4x the elements took %.1fx as long (%dms vs %dms)", ratio, largeTime / 1000000, smallTime / 1000000));
+    }
+
+    // the fastest of a number of runs, to reduce the effect of garbage collection and other noise
+    private static long time(Function<Workspace, Object> export, Workspace workspace) {
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            assertNotNull(export.apply(workspace));
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+
+        return fastest;
+    }
+
+}
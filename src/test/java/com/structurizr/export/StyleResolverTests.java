@@ -0,0 +1,140 @@
+package com.structurizr.export;
+
+import com.structurizr.Workspace;
+import com.structurizr.export.mermaid.MermaidDiagramExporter;
+import com.structurizr.export.plantuml.StructurizrPlantUMLExporter;
+import com.structurizr.model.Container;
+import com.structurizr.model.ContainerInstance;
+import com.structurizr.model.DeploymentNode;
+import com.structurizr.model.Relationship;
+import com.structurizr.model.SoftwareSystem;
+import com.structurizr.view.ElementStyle;
+import com.structurizr.view.Shape;
+import com.structurizr.util.WorkspaceUtils;
+import com.structurizr.view.Styles;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StyleResolverTests {
+
+    @Test
+    public void test_findElementStyle() {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem softwareSystem = workspace.getModel().addSoftwareSystem("Software System");
+        softwareSystem.addTags("Tag");
+
+        Styles styles = workspace.getViews().getConfiguration().getStyles();
+        styles.addElementStyle("Tag").background("#ff0000");
+
+        StyleResolver styleResolver = new StyleResolver(styles);
+        ElementStyle elementStyle = styleResolver.findElementStyle(softwareSystem);
+
+        assertEquals("#ff0000", elementStyle.getBackground());
+        assertSame(elementStyle, styleResolver.findElementStyle(softwareSystem));
+    }
+
+    @Test
+    public void test_findElementStyle_WhenDeploymentElementsHaveTheSameTags() {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem softwareSystem = workspace.getModel().addSoftwareSystem("Software System");
+        Container database = softwareSystem.addContainer("Database");
+        database.addTags("Database");
+        Container webApplication = softwareSystem.addContainer("Web Application");
+        DeploymentNode deploymentNode = workspace.getModel().addDeploymentNode("Server");
+        ContainerInstance databaseInstance = deploymentNode.add(database);
+        ContainerInstance webApplicationInstance = deploymentNode.add(webApplication);
+
+        Styles styles = workspace.getViews().getConfiguration().getStyles();
+        styles.addElementStyle("Database").background("#ff0000").shape(Shape.Cylinder);
+
+        // the instances have the same tags, but the style of each also depends on its container
+        assertEquals(databaseInstance.getTags(), webApplicationInstance.getTags());
+
+        StyleResolver styleResolver = new StyleResolver(styles);
+        assertEquals(styles.findElementStyle(databaseInstance).getBackground(), styleResolver.findElementStyle(databaseInstance).getBackground());
+        assertEquals(styles.findElementStyle(databaseInstance).getShape(), styleResolver.findElementStyle(databaseInstance).getShape());
+        assertEquals(styles.findElementStyle(webApplicationInstance).getBackground(), styleResolver.findElementStyle(webApplicationInstance).getBackground());
+        assertEquals(styles.findElementStyle(webApplicationInstance).getShape(), styleResolver.findElementStyle(webApplicationInstance).getShape());
+    }
+
+    @Test
+    public void test_findElementStyle_WithATag() {
+        Workspace workspace = new Workspace("Name", "Description");
+        Styles styles = workspace.getViews().getConfiguration().getStyles();
+        styles.addElementStyle("Group:Name").color("#00ff00");
+
+        StyleResolver styleResolver = new StyleResolver(styles);
+
+        assertEquals("#00ff00", styleResolver.findElementStyle("Group:Name").getColor());
+        assertNull(styleResolver.findElementStyle("Group:Other"));
+        assertNull(styleResolver.findElementStyle("Group:Other"));
+    }
+
+    @Test
+    public void test_findRelationshipStyle() {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem a = workspace.getModel().addSoftwareSystem("A");
+        SoftwareSystem b = workspace.getModel().addSoftwareSystem("B");
+        Relationship relationship = a.uses(b, "Uses");
+
+        Styles styles = workspace.getViews().getConfiguration().getStyles();
+        styles.addRelationshipStyle("Relationship").color("#0000ff");
+
+        StyleResolver styleResolver = new StyleResolver(styles);
+
+        assertEquals("#0000ff", styleResolver.findRelationshipStyle(relationship).getColor());
+        assertSame(styleResolver.findRelationshipStyle(relationship), styleResolver.findRelationshipStyle(relationship));
+    }
+
+    @Test
+    public void test_findElementStyle_SharesStylesBetweenElementsWithTheSameTags() {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem a = workspace.getModel().addSoftwareSystem("A");
+        SoftwareSystem b = workspace.getModel().addSoftwareSystem("B");
+        SoftwareSystem c = workspace.getModel().addSoftwareSystem("C");
+        c.addTags("Tag");
+
+        StyleResolver styleResolver = StyleResolver.forWorkspace(workspace);
+
+        assertSame(styleResolver.findElementStyle(a), styleResolver.findElementStyle(b));
+        assertNotSame(styleResolver.findElementStyle(a), styleResolver.findElementStyle(c));
+    }
+
+    @Test
+    public void test_export_WithASharedStyleResolver() throws Exception {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+        StyleResolver styleResolver = StyleResolver.forWorkspace(workspace);
+
+        StructurizrPlantUMLExporter plantUMLExporter = new StructurizrPlantUMLExporter();
+        assertEquals(definitionsOf(plantUMLExporter.export(workspace)), definitionsOf(plantUMLExporter.export(workspace, styleResolver)));
+
+        MermaidDiagramExporter mermaidExporter = new MermaidDiagramExporter();
+        assertEquals(definitionsOf(mermaidExporter.export(workspace)), definitionsOf(mermaidExporter.export(workspace, styleResolver)));
+    }
+
+    @Test
+    public void test_export_ThrowsAnException_WhenTheStyleResolverIsForAnotherWorkspace() {
+        Workspace workspace = new Workspace("Name", "Description");
+        StyleResolver styleResolver = StyleResolver.forWorkspace(new Workspace("Name", "Description"));
+
+        assertThrows(IllegalArgumentException.class, () -> new StructurizrPlantUMLExporter().export(workspace, styleResolver));
+    }
+
+    private List<String> definitionsOf(Iterable<Diagram> diagrams) {
+        List<String> definitions = new ArrayList<>();
+        for (Diagram diagram : diagrams) {
+            definitions.add(diagram.getDefinition());
+            if (diagram.getLegend() != null) {
+                definitions.add(diagram.getLegend().getDefinition());
+            }
+        }
+
+        return definitions;
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.structurizr.export;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Utf8ByteSinkTests {
+
+    private static final String TEXT = "ASCII, ë, €, 日本語 and 😀";
+
+    @Test
+    public void test_append_EncodesAsUTF8() throws Exception {
+        Utf8ByteSink sink = new Utf8ByteSink(4);
+        for (char c : TEXT.toCharArray()) {
+            sink.append(c);
+        }
+
+        assertArrayEquals(TEXT.getBytes(StandardCharsets.UTF_8), toByteArray(sink.getBytes()));
+        assertEquals(TEXT, sink.toString());
+        assertEquals(TEXT.getBytes(StandardCharsets.UTF_8).length, sink.size());
+    }
+
+    @Test
+    public void test_append_ReplacesUnpairedSurrogates() throws Exception {
+        String text = "a\uDE00b\uD83Dc";
+        Utf8ByteSink sink = new Utf8ByteSink();
+        sink.append(text);
+
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), toByteArray(sink.getBytes()));
+    }
+
+    @Test
+    public void test_getBytes_ReplacesATrailingHighSurrogate() throws Exception {
+        Utf8ByteSink sink = new Utf8ByteSink(4);
+        sink.append("abc").append('\uD83D');
+
+        assertEquals(4, sink.size());
+        assertArrayEquals("abc\uD83D".getBytes(StandardCharsets.UTF_8), toByteArray(sink.getBytes()));
+        assertEquals("abc?", sink.toString());
+    }
+
+    @Test
+    public void test_flush_ReplacesATrailingHighSurrogate() throws Exception {
+        String text = "a\uD83D";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8ByteSink sink = new Utf8ByteSink(Channels.newChannel(out), 8);
+        sink.append(text);
+        sink.flush();
+
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+        assertEquals(2, sink.size());
+    }
+
+    @Test
+    public void test_construction_ThrowsAnException_WhenTheChannelIsNonBlocking() throws Exception {
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.sink().configureBlocking(false);
+            new Utf8ByteSink(pipe.sink());
+            fail();
+        } catch (IllegalArgumentException iae) {
+            assertEquals("The channel must be in blocking mode.", iae.getMessage());
+        } finally {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+    @Test
+    public void test_reset() throws Exception {
+        Utf8ByteSink sink = new Utf8ByteSink();
+        sink.append("Line 1");
+        sink.reset();
+        sink.append("Line 2");
+
+        assertEquals("Line 2", sink.toString());
+    }
+
+    @Test
+    public void test_flush_WritesToTheChannel() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8ByteSink sink = new Utf8ByteSink(Channels.newChannel(out), 8);
+
+        sink.append(TEXT, 0, 10);
+        sink.append(TEXT, 10, TEXT.length());
+        sink.flush();
+
+        assertEquals(TEXT, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(out.size(), sink.size());
+        assertThrows(IllegalStateException.class, sink::getBytes);
+    }
+
+    @Test
+    public void test_IndentingWriter_WithAChannel() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IndentingWriter writer = new IndentingWriter(Channels.newChannel(out));
+
+        writer.writeLine("Line 1");
+        writer.indent();
+        writer.writeLine("Line 2\n€");
+        writer.flush();
+
+        assertEquals("Line 1\n" +
+                "  Line 2\\n€", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private byte[] toByteArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        return bytes;
+    }
+
+}
@@ -0,0 +1,189 @@
+package com.structurizr.export;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.Container;
+import com.structurizr.model.ContainerInstance;
+import com.structurizr.model.DeploymentNode;
+import com.structurizr.model.Person;
+import com.structurizr.model.SoftwareSystem;
+import com.structurizr.view.ContainerView;
+import com.structurizr.view.DeploymentView;
+import com.structurizr.view.DynamicView;
+import com.structurizr.view.RelationshipView;
+import com.structurizr.view.SystemLandscapeView;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ViewIndexTests {
+
+    @Test
+    public void test_getVisibleElements_WhenTheViewHasAnimationSteps() {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem a = workspace.getModel().addSoftwareSystem("A");
+        SoftwareSystem b = workspace.getModel().addSoftwareSystem("B");
+        SoftwareSystem c = workspace.getModel().addSoftwareSystem("C");
+
+        SystemLandscapeView view = workspace.getViews().createSystemLandscapeView("key", "Description");
+        view.addDefaultElements();
+        view.addAnimation(a);
+        view.addAnimation(b);
+
+        ViewIndex viewIndex = new ViewIndex(view);
+
+        assertTrue(viewIndex.getVisibleElements(null).test(c));
+
+        assertTrue(viewIndex.getVisibleElements(1).test(a));
+        assertFalse(viewIndex.getVisibleElements(1).test(b));
+        assertFalse(viewIndex.getVisibleElements(1).test(c));
+
+        assertTrue(viewIndex.getVisibleElements(2).test(a));
+        assertTrue(viewIndex.getVisibleElements(2).test(b));
+        assertFalse(viewIndex.getVisibleElements(2).test(c));
+    }
+
+    @Test
+    public void test_getVisibleElements_WhenTheViewIsADynamicView() {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem a = workspace.getModel().addSoftwareSystem("A");
+        SoftwareSystem b = workspace.getModel().addSoftwareSystem("B");
+        SoftwareSystem c = workspace.getModel().addSoftwareSystem("C");
+        a.uses(b, "Uses");
+        b.uses(c, "Uses");
+
+        DynamicView view = workspace.getViews().createDynamicView("key", "Description");
+        view.add(a, b);
+        view.add(b, c);
+
+        ViewIndex viewIndex = new ViewIndex(view);
+
+        assertTrue(viewIndex.getVisibleElements("1").test(a));
+        assertTrue(viewIndex.getVisibleElements("1").test(b));
+        assertFalse(viewIndex.getVisibleElements("1").test(c));
+
+        assertFalse(viewIndex.getVisibleElements("2").test(a));
+        assertTrue(viewIndex.getVisibleElements("2").test(b));
+        assertTrue(viewIndex.getVisibleElements("2").test(c));
+
+        assertFalse(viewIndex.getVisibleElements("3").test(a));
+    }
+
+    @Test
+    public void test_getVisibleRelationships_WhenTheViewIsADynamicView() {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem a = workspace.getModel().addSoftwareSystem("A");
+        SoftwareSystem b = workspace.getModel().addSoftwareSystem("B");
+        a.uses(b, "Uses");
+
+        DynamicView view = workspace.getViews().createDynamicView("key", "Description");
+        RelationshipView first = view.add(a, b);
+        RelationshipView second = view.add(a, b);
+
+        ViewIndex viewIndex = new ViewIndex(view);
+
+        assertTrue(viewIndex.getVisibleRelationships(null).test(first));
+        assertTrue(viewIndex.getVisibleRelationships(null).test(second));
+
+        assertTrue(viewIndex.getVisibleRelationships("1").test(first));
+        assertFalse(viewIndex.getVisibleRelationships("1").test(second));
+
+        assertFalse(viewIndex.getVisibleRelationships("2").test(first));
+        assertTrue(viewIndex.getVisibleRelationships("2").test(second));
+
+        assertFalse(viewIndex.getVisibleRelationships("3").test(first));
+    }
+
+    @Test
+    public void test_getVisibleRelationships_WhenTheViewHasAnimationSteps() {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem a = workspace.getModel().addSoftwareSystem("A");
+        SoftwareSystem b = workspace.getModel().addSoftwareSystem("B");
+        a.uses(b, "Uses");
+
+        SystemLandscapeView view = workspace.getViews().createSystemLandscapeView("key", "Description");
+        view.addDefaultElements();
+        view.addAnimation(a);
+        view.addAnimation(b);
+
+        ViewIndex viewIndex = new ViewIndex(view);
+        RelationshipView relationshipView = view.getRelationships().iterator().next();
+
+        // relationships are hidden with their source and destination elements
+        assertTrue(viewIndex.getVisibleRelationships(1).test(relationshipView));
+        assertTrue(viewIndex.getVisibleRelationships(2).test(relationshipView));
+    }
+
+    @Test
+    public void test_getElementsWithParent() {
+        Workspace workspace = new Workspace("Name", "Description");
+        Person user = workspace.getModel().addPerson("User");
+        SoftwareSystem a = workspace.getModel().addSoftwareSystem("A");
+        Container a1 = a.addContainer("A1");
+        Container a2 = a.addContainer("A2");
+        SoftwareSystem b = workspace.getModel().addSoftwareSystem("B");
+        Container b1 = b.addContainer("B1");
+        Container b2 = b.addContainer("B2");
+        user.uses(a1, "Uses");
+        a2.uses(b1, "Uses");
+
+        ContainerView view = workspace.getViews().createContainerView(a, "key", "Description");
+        view.add(user);
+        view.add(a1);
+        view.add(a2);
+        view.add(b1);
+
+        ViewIndex viewIndex = new ViewIndex(view);
+
+        assertEquals(new HashSet<>(Arrays.asList(a1, a2)), new HashSet<>(viewIndex.getElementsWithParent(a)));
+        assertEquals(Arrays.asList(b1), viewIndex.getElementsWithParent(b));
+        assertEquals(Arrays.asList(user), viewIndex.getElementsWithParent(null));
+        assertTrue(viewIndex.getElementsWithParent(b2).isEmpty());
+    }
+
+    @Test
+    public void test_getDeploymentTree() {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem softwareSystem = workspace.getModel().addSoftwareSystem("Software System");
+        Container webApplication = softwareSystem.addContainer("Web Application");
+        Container database = softwareSystem.addContainer("Database");
+
+        DeploymentNode live = workspace.getModel().addDeploymentNode("Live", "Live", "", "");
+        DeploymentNode webServer = live.addDeploymentNode("Web Server", "", "");
+        ContainerInstance webApplicationInstance = webServer.add(webApplication);
+        DeploymentNode databaseServer = live.addDeploymentNode("Database Server", "", "");
+        databaseServer.add(database);
+        DeploymentNode development = workspace.getModel().addDeploymentNode("Development", "Development", "", "");
+        development.add(webApplication);
+
+        DeploymentView view = workspace.getViews().createDeploymentView(softwareSystem, "key", "Description");
+        view.setEnvironment("Live");
+        view.add(live);
+        view.remove(databaseServer);
+
+        ViewIndex viewIndex = new ViewIndex(view);
+        List<ViewIndex.DeploymentTreeNode> tree = viewIndex.getDeploymentTree();
+
+        assertEquals(1, tree.size());
+        assertSame(live, tree.get(0).getDeploymentNode());
+        assertEquals(1, tree.get(0).getChildren().size());
+        assertSame(webServer, tree.get(0).getChildren().get(0).getDeploymentNode());
+        assertEquals(Arrays.asList(webApplicationInstance), tree.get(0).getChildren().get(0).getContainerInstances());
+        assertSame(tree, viewIndex.getDeploymentTree());
+    }
+
+    @Test
+    public void test_getDeploymentTree_WhenTheViewIsNotADeploymentView() {
+        Workspace workspace = new Workspace("Name", "Description");
+        workspace.getModel().addSoftwareSystem("A");
+
+        SystemLandscapeView view = workspace.getViews().createSystemLandscapeView("key", "Description");
+        view.addDefaultElements();
+
+        assertTrue(new ViewIndex(view).getDeploymentTree().isEmpty());
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.structurizr.export;
+
+import com.structurizr.Workspace;
+import com.structurizr.export.ilograph.IlographExporter;
+import com.structurizr.export.mermaid.MermaidDiagramExporter;
+import com.structurizr.export.plantuml.StructurizrPlantUMLExporter;
+import com.structurizr.util.WorkspaceUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkspaceArchiveWriterTests {
+
+    private static final long ENTRY_TIME = 1700000000000L;
+
+    @Test
+    public void test_write_Zip() throws Exception {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+        workspace.getViews().getConfiguration().addProperty(StructurizrPlantUMLExporter.PLANTUML_ANIMATION_PROPERTY, "true");
+
+        WorkspaceArchiveWriter writer = new WorkspaceArchiveWriter(ArchiveFormat.Zip);
+        writer.addExporter(new StructurizrPlantUMLExporter(), "plantuml");
+        writer.addExporter(new MermaidDiagramExporter(), "mermaid");
+        writer.addExporter(new IlographExporter());
+        writer.setEntryTime(ENTRY_TIME);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(workspace, out);
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()), StandardCharsets.UTF_8)) {
+            ZipEntry entry = zip.getNextEntry();
+            while (entry != null) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buf = new byte[4096];
+                int length = zip.read(buf);
+                while (length > -1) {
+                    bytes.write(buf, 0, length);
+                    length = zip.read(buf);
+                }
+                entries.put(entry.getName(), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+                entry = zip.getNextEntry();
+            }
+        }
+
+        Diagram diagram = new StructurizrPlantUMLExporter().export(workspace).stream().filter(d -> d.getKey().equals("SystemLandscape")).findFirst().get();
+        assertEquals("workspace.idl", entries.keySet().iterator().next());
+        assertEquals(diagram.getDefinition(), entries.get("plantuml/SystemLandscape.puml"));
+        assertEquals(diagram.getFrames().get(0).getDefinition(), entries.get("plantuml/SystemLandscape-1.puml"));
+        assertEquals(diagram.getLegend().getDefinition(), entries.get("plantuml/SystemLandscape-key.puml"));
+        assertTrue(entries.containsKey("mermaid/SystemLandscape.mmd"));
+
+        // the same workspace and entry time gives the same archive
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        writer.write(workspace, again);
+        assertArrayEquals(out.toByteArray(), again.toByteArray());
+    }
+
+    @Test
+    public void test_write_Tar() throws Exception {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+
+        WorkspaceArchiveWriter writer = new WorkspaceArchiveWriter(ArchiveFormat.Tar);
+        writer.addExporter(new MermaidDiagramExporter());
+        writer.setEntryTime(ENTRY_TIME);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(workspace, out);
+        byte[] tar = out.toByteArray();
+
+        Diagram diagram = new MermaidDiagramExporter().export(workspace).iterator().next();
+        byte[] definition = diagram.getDefinition().getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(0, tar.length % 512);
+        assertEquals(diagram.getKey() + ".mmd", new String(tar, 0, 100, StandardCharsets.US_ASCII).trim());
+        assertEquals(Long.toOctalString(definition.length), new String(tar, 124, 11, StandardCharsets.US_ASCII).replaceFirst("^0+", ""));
+        assertEquals(Long.toOctalString(ENTRY_TIME / 1000), new String(tar, 136, 11, StandardCharsets.US_ASCII).replaceFirst("^0+", ""));
+        assertEquals("ustar", new String(tar, 257, 5, StandardCharsets.US_ASCII));
+        assertArrayEquals(definition, Arrays.copyOfRange(tar, 512, 512 + definition.length));
+
+        // the archive ends with two empty blocks
+        assertArrayEquals(new byte[1024], Arrays.copyOfRange(tar, tar.length - 1024, tar.length));
+    }
+
+    @Test
+    public void test_write_ThrowsAnException_WhenTwoExportersWriteTheSameEntries() throws Exception {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+
+        WorkspaceArchiveWriter writer = new WorkspaceArchiveWriter(ArchiveFormat.Zip);
+        writer.addExporter(new MermaidDiagramExporter());
+        writer.addExporter(new MermaidDiagramExporter(), "/");
+
+        assertThrows(IllegalStateException.class, () -> writer.write(workspace, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void test_write_ThrowsAnException_WhenAViewKeyIsNotAnEntryName() throws Exception {
+        Workspace workspace = new Workspace("Name", "Description");
+        workspace.getModel().addSoftwareSystem("Software System");
+        workspace.getViews().createSystemLandscapeView("../../SystemLandscape", "Description").addAllElements();
+
+        WorkspaceArchiveWriter writer = new WorkspaceArchiveWriter(ArchiveFormat.Zip);
+        writer.addExporter(new MermaidDiagramExporter(), "mermaid");
+
+        assertThrows(IllegalArgumentException.class, () -> writer.write(workspace, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void test_write_DoesNotFinishTheArchive_WhenAnExportFails() throws Exception {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+
+        WorkspaceArchiveWriter writer = new WorkspaceArchiveWriter(ArchiveFormat.TarGz);
+        writer.addExporter(new IlographExporter());
+        writer.addExporter((WorkspaceExporter)w -> {
+            throw new IllegalStateException("The export failed.");
+        }, "failed");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IllegalStateException ise = assertThrows(IllegalStateException.class, () -> writer.write(workspace, out));
+        assertEquals("The export failed.", ise.getMessage());
+
+        // a truncated archive isn't mistaken for a complete one
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertThrows(EOFException.class, () -> {
+                while (in.read(new byte[4096]) != -1) {
+                }
+            });
+        } catch (EOFException e) {
+            // nothing had been written beyond the header
+        }
+    }
+
+    @Test
+    public void test_setCompressionLevel_ThrowsAnException_WhenTheLevelIsInvalid() {
+        WorkspaceArchiveWriter writer = new WorkspaceArchiveWriter(ArchiveFormat.TarGz);
+
+        assertThrows(IllegalArgumentException.class, () -> writer.setCompressionLevel(10));
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.structurizr.export;
+
+import com.structurizr.Workspace;
+import com.structurizr.export.ilograph.IlographExporter;
+import com.structurizr.export.mermaid.MermaidDiagramExporter;
+import com.structurizr.export.plantuml.C4PlantUMLExporter;
+import com.structurizr.export.plantuml.StructurizrPlantUMLExporter;
+import com.structurizr.util.WorkspaceUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class WorkspaceExportRunnerTests {
+
+    @TempDir
+    Path outputDirectory;
+
+    @Test
+    public void test_run() throws Exception {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+        workspace.getViews().getConfiguration().addProperty(StructurizrPlantUMLExporter.PLANTUML_ANIMATION_PROPERTY, "true");
+
+        WorkspaceExportRunner runner = new WorkspaceExportRunner(outputDirectory);
+        runner.addExporter(new StructurizrPlantUMLExporter(), "plantuml");
+        runner.addExporter(new MermaidDiagramExporter());
+        runner.addExporter(new IlographExporter());
+
+        List<ExportedFile> files = runner.run(workspace);
+
+        Collection<Diagram> diagrams = new StructurizrPlantUMLExporter().export(workspace);
+        Diagram diagram = diagrams.stream().filter(d -> d.getKey().equals("SystemLandscape")).findFirst().get();
+        assertEquals(diagram.getDefinition(), read(outputDirectory.resolve("plantuml/SystemLandscape.puml")));
+        assertEquals(diagram.getFrames().get(0).getDefinition(), read(outputDirectory.resolve("plantuml/SystemLandscape-1.puml")));
+        assertEquals(diagram.getFrames().get(2).getDefinition(), read(outputDirectory.resolve("plantuml/SystemLandscape-3.puml")));
+        assertEquals(diagram.getLegend().getDefinition(), read(outputDirectory.resolve("plantuml/SystemLandscape-key.puml")));
+
+        assertEquals(new IlographExporter().export(workspace).getDefinition(), read(outputDirectory.resolve("workspace.idl")));
+        assertTrue(Files.exists(outputDirectory.resolve("SystemLandscape.mmd")));
+
+        // every file is reported, and no temporary files are left behind
+        assertEquals(files.get(0).getPath(), outputDirectory.resolve("workspace.idl"));
+        try (Stream<Path> paths = Files.walk(outputDirectory)) {
+            assertEquals(files.stream().map(ExportedFile::getPath).sorted().collect(Collectors.toList()),
+                    paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+        }
+
+        for (ExportedFile file : files) {
+            assertEquals(Files.size(file.getPath()), file.getSize());
+        }
+    }
+
+    @Test
+    public void test_run_ThrowsAnException_WhenTwoExportersWriteTheSameFiles() throws Exception {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+
+        WorkspaceExportRunner runner = new WorkspaceExportRunner(outputDirectory);
+        runner.addExporter(new StructurizrPlantUMLExporter());
+        runner.addExporter(new C4PlantUMLExporter());
+
+        assertThrows(IllegalStateException.class, () -> runner.run(workspace));
+    }
+
+    @Test
+    public void test_addExporter_ThrowsAnException_WhenTheDirectoryIsOutsideTheOutputDirectory() {
+        WorkspaceExportRunner runner = new WorkspaceExportRunner(outputDirectory);
+
+        assertThrows(IllegalArgumentException.class, () -> runner.addExporter(new MermaidDiagramExporter(), "../mermaid"));
+    }
+
+    @Test
+    public void test_run_ThrowsAnException_WhenAViewKeyIsNotAFileName() throws Exception {
+        for (String key : new String[] { "../SystemLandscape", "views/SystemLandscape", "views\\SystemLandscape", ".." }) {
+            Workspace workspace = new Workspace("Name", "Description");
+            workspace.getModel().addSoftwareSystem("Software System");
+            workspace.getViews().createSystemLandscapeView(key, "Description").addAllElements();
+
+            WorkspaceExportRunner runner = new WorkspaceExportRunner(outputDirectory);
+            runner.addExporter(new MermaidDiagramExporter(), "mermaid");
+
+            IllegalArgumentException iae = assertThrows(IllegalArgumentException.class, () -> runner.run(workspace));
+            assertEquals("The view key \"" + key + "\" can't be used in a file name.", iae.getMessage());
+
+            // and nothing has been written
+            try (Stream<Path> paths = Files.walk(outputDirectory)) {
+                assertEquals(0, paths.filter(Files::isRegularFile).count());
+            }
+        }
+    }
+
+    @Test
+    public void test_run_WritesFilesWithTheDefaultPermissions() throws Exception {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+
+        WorkspaceExportRunner runner = new WorkspaceExportRunner(outputDirectory.resolve("exports"));
+        runner.addExporter(new MermaidDiagramExporter());
+        List<ExportedFile> files = runner.run(workspace);
+
+        // the same as any other new file (e.g. readable by everybody with the usual umask), rather than only by the owner
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(Files.write(outputDirectory.resolve("file.txt"), new byte[0]));
+        for (ExportedFile file : files) {
+            assertEquals(permissions, Files.getPosixFilePermissions(file.getPath()));
+        }
+    }
+
+    @Test
+    public void test_run_WritesEachDiagramAsSoonAsItHasBeenRendered() throws Exception {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+        MermaidDiagramExporter mermaidExporter = new MermaidDiagramExporter();
+        AtomicBoolean writtenBeforeTheNextDiagram = new AtomicBoolean(false);
+
+        WorkspaceExportRunner runner = new WorkspaceExportRunner(outputDirectory);
+        runner.addExporter(new DiagramExporter() {
+            @Override
+            public Collection<Diagram> export(Workspace workspace) {
+                return mermaidExporter.export(workspace);
+            }
+
+            @Override
+            public void exportTo(Workspace workspace, Executor executor, Consumer<Diagram> consumer) {
+                Iterator<Diagram> diagrams = mermaidExporter.export(workspace).iterator();
+                Diagram diagram = diagrams.next();
+                consumer.accept(diagram);
+
+                // as if the next view was still being rendered
+                Path path = outputDirectory.resolve(diagram.getKey() + ".mmd");
+                long deadline = System.currentTimeMillis() + 5000;
+                while (!Files.exists(path) && System.currentTimeMillis() < deadline) {
+                    Thread.yield();
+                }
+                writtenBeforeTheNextDiagram.set(Files.exists(path));
+
+                diagrams.forEachRemaining(consumer);
+            }
+        });
+
+        assertFalse(runner.run(workspace).isEmpty());
+        assertTrue(writtenBeforeTheNextDiagram.get());
+    }
+
+    private String read(Path path) throws Exception {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,295 @@
+package com.structurizr.export;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.*;
+import com.structurizr.view.*;
+
+import java.util.*;
+
+/**
+ * Generates synthetic workspaces of a configurable size, for scale testing and benchmarking exporters.
+ * The generated workspace depends only on the configuration and the seed, so the same configuration
+ * always produces the same workspace.
+ */
+public final class WorkspaceGenerator {
+
+    private long seed = 1;
+
+    private int people = 10;
+    private int softwareSystems = 10;
+    private int containersPerSoftwareSystem = 4;
+    private int componentsPerContainer = 5;
+    private int groups = 5;
+    private int deploymentEnvironments = 1;
+    private int deploymentNodeDepth = 2;
+    private int relationshipsPerElement = 2;
+    private int animationSteps = 3;
+    private int dynamicViewSteps = 5;
+    private int viewsPerType = 3;
+    private boolean allContainersView = false;
+
+    /**
+     * Creates a generator for a workspace with approximately the given number of elements (excluding deployment elements).
+     *
+     * @param numberOfElements      the approximate number of people, software systems, containers and components
+     * @param seed                  the random seed
+     * @return  a WorkspaceGenerator
+     */
+    public static WorkspaceGenerator ofSize(int numberOfElements, long seed) {
+        WorkspaceGenerator generator = new WorkspaceGenerator();
+        generator.setSeed(seed);
+
+        int elementsPerSoftwareSystem = 1 + generator.containersPerSoftwareSystem + (generator.containersPerSoftwareSystem * generator.componentsPerContainer);
+        generator.setPeople(Math.max(1, numberOfElements / 50));
+        generator.setSoftwareSystems(Math.max(1, (numberOfElements - generator.people) / elementsPerSoftwareSystem));
+
+        return generator;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setPeople(int people) {
+        this.people = people;
+    }
+
+    public void setSoftwareSystems(int softwareSystems) {
+        this.softwareSystems = softwareSystems;
+    }
+
+    public void setContainersPerSoftwareSystem(int containersPerSoftwareSystem) {
+        this.containersPerSoftwareSystem = containersPerSoftwareSystem;
+    }
+
+    public void setComponentsPerContainer(int componentsPerContainer) {
+        this.componentsPerContainer = componentsPerContainer;
+    }
+
+    public void setGroups(int groups) {
+        this.groups = groups;
+    }
+
+    public void setDeploymentEnvironments(int deploymentEnvironments) {
+        this.deploymentEnvironments = deploymentEnvironments;
+    }
+
+    public void setDeploymentNodeDepth(int deploymentNodeDepth) {
+        this.deploymentNodeDepth = deploymentNodeDepth;
+    }
+
+    public void setRelationshipsPerElement(int relationshipsPerElement) {
+        this.relationshipsPerElement = relationshipsPerElement;
+    }
+
+    public void setAnimationSteps(int animationSteps) {
+        this.animationSteps = animationSteps;
+    }
+
+    public void setDynamicViewSteps(int dynamicViewSteps) {
+        this.dynamicViewSteps = dynamicViewSteps;
+    }
+
+    public void setViewsPerType(int viewsPerType) {
+        this.viewsPerType = viewsPerType;
+    }
+
+    /**
+     * Sets whether to create a container view (with the key "AllContainers") that contains every container in
+     * the workspace, within the boundaries of their software systems, so that a single view grows with the workspace.
+     *
+     * @param allContainersView     true to create the view, false otherwise
+     */
+    public void setAllContainersView(boolean allContainersView) {
+        this.allContainersView = allContainersView;
+    }
+
+    public Workspace generate() {
+        Random random = new Random(seed);
+        Workspace workspace = new Workspace("Generated", "A generated workspace (seed " + seed + ").");
+        Model model = workspace.getModel();
+
+        List<Person> people = new ArrayList<>();
+        for (int p = 1; p <= this.people; p++) {
+            Person person = model.addPerson("Person " + p, "Description of person " + p + ".");
+            person.setLocation(p % 2 == 0 ? Location.External : Location.Internal);
+            person.setGroup(randomGroup(random));
+            people.add(person);
+        }
+
+        List<SoftwareSystem> softwareSystems = new ArrayList<>();
+        List<Container> containers = new ArrayList<>();
+        List<List<Component>> componentsByContainer = new ArrayList<>();
+
+        for (int s = 1; s <= this.softwareSystems; s++) {
+            SoftwareSystem softwareSystem = model.addSoftwareSystem("Software System " + s, "Description of software system " + s + ".");
+            softwareSystem.setLocation(s % 3 == 0 ? Location.External : Location.Internal);
+            softwareSystem.setGroup(randomGroup(random));
+            softwareSystems.add(softwareSystem);
+
+            for (int c = 1; c <= containersPerSoftwareSystem; c++) {
+                Container container = softwareSystem.addContainer("Container " + s + "." + c, "Description of container " + s + "." + c + ".", "Technology " + random.nextInt(5));
+                container.setGroup(randomGroup(random));
+                containers.add(container);
+
+                List<Component> components = new ArrayList<>();
+                for (int m = 1; m <= componentsPerContainer; m++) {
+                    Component component = container.addComponent("Component " + s + "." + c + "." + m, "Description of component " + s + "." + c + "." + m + ".", "Technology " + random.nextInt(5));
+                    component.setGroup(randomGroup(random));
+                    components.add(component);
+                }
+                componentsByContainer.add(components);
+            }
+        }
+
+        // relationships are only created between elements at the same level (people use software systems)
+        if (!softwareSystems.isEmpty()) {
+            for (Person person : people) {
+                for (int r = 0; r < relationshipsPerElement; r++) {
+                    person.uses(randomElement(random, softwareSystems), "Uses " + r);
+                }
+            }
+        }
+
+        for (SoftwareSystem softwareSystem : softwareSystems) {
+            for (int r = 0; r < relationshipsPerElement; r++) {
+                SoftwareSystem destination = randomElement(random, softwareSystems);
+                if (destination != softwareSystem) {
+                    softwareSystem.uses(destination, "Gets data from " + r);
+                }
+            }
+        }
+
+        for (Container container : containers) {
+            for (int r = 0; r < relationshipsPerElement; r++) {
+                Container destination = randomElement(random, containers);
+                if (destination != container) {
+                    container.uses(destination, "Reads from " + r, "HTTPS");
+                }
+            }
+        }
+
+        for (List<Component> components : componentsByContainer) {
+            for (Component component : components) {
+                for (int r = 0; r < relationshipsPerElement; r++) {
+                    Component destination = randomElement(random, components);
+                    if (destination != component) {
+                        component.uses(destination, "Calls " + r, "Method call");
+                    }
+                }
+            }
+        }
+
+        for (int e = 1; e <= deploymentEnvironments; e++) {
+            String environment = "Environment " + e;
+            for (int s = 0; s < softwareSystems.size(); s++) {
+                DeploymentNode deploymentNode = model.addDeploymentNode(environment, "Deployment Node " + (s + 1), "", "Technology " + random.nextInt(5));
+                for (int d = 2; d <= deploymentNodeDepth; d++) {
+                    deploymentNode = deploymentNode.addDeploymentNode("Deployment Node " + (s + 1) + "." + d, "", "Technology " + random.nextInt(5));
+                }
+
+                for (int c = 0; c < containersPerSoftwareSystem; c++) {
+                    deploymentNode.add(containers.get(s * containersPerSoftwareSystem + c));
+                }
+            }
+        }
+
+        createViews(workspace, random, softwareSystems, containers);
+
+        return workspace;
+    }
+
+    private void createViews(Workspace workspace, Random random, List<SoftwareSystem> softwareSystems, List<Container> containers) {
+        ViewSet views = workspace.getViews();
+
+        SystemLandscapeView systemLandscapeView = views.createSystemLandscapeView("SystemLandscape", "");
+        systemLandscapeView.addAllElements();
+        addAnimations(systemLandscapeView);
+
+        for (int i = 0; i < Math.min(viewsPerType, softwareSystems.size()); i++) {
+            SoftwareSystem softwareSystem = softwareSystems.get(i);
+
+            SystemContextView systemContextView = views.createSystemContextView(softwareSystem, "SystemContext" + (i + 1), "");
+            systemContextView.addDefaultElements();
+            addAnimations(systemContextView);
+
+            ContainerView containerView = views.createContainerView(softwareSystem, "Containers" + (i + 1), "");
+            containerView.addDefaultElements();
+            addAnimations(containerView);
+        }
+
+        for (int i = 0; i < Math.min(viewsPerType, containers.size()); i++) {
+            ComponentView componentView = views.createComponentView(containers.get(i), "Components" + (i + 1), "");
+            componentView.addDefaultElements();
+            addAnimations(componentView);
+        }
+
+        if (allContainersView && !softwareSystems.isEmpty()) {
+            ContainerView allContainersView = views.createContainerView(softwareSystems.get(0), "AllContainers", "");
+            for (Container container : containers) {
+                allContainersView.add(container);
+            }
+            allContainersView.setExternalSoftwareSystemBoundariesVisible(true);
+            addAnimations(allContainersView);
+        }
+
+        List<Relationship> relationships = new ArrayList<>();
+        for (SoftwareSystem softwareSystem : softwareSystems) {
+            for (Relationship relationship : softwareSystem.getRelationships()) {
+                if (relationship.getDestination() instanceof SoftwareSystem) {
+                    relationships.add(relationship);
+                }
+            }
+        }
+        relationships.sort(Comparator.comparing(Relationship::getId));
+
+        if (!relationships.isEmpty()) {
+            for (int i = 0; i < viewsPerType; i++) {
+                DynamicView dynamicView = views.createDynamicView("Dynamic" + (i + 1), "");
+                for (int step = 0; step < dynamicViewSteps; step++) {
+                    Relationship relationship = randomElement(random, relationships);
+                    dynamicView.add((StaticStructureElement)relationship.getSource(), (StaticStructureElement)relationship.getDestination());
+                }
+            }
+        }
+
+        for (int e = 1; e <= deploymentEnvironments; e++) {
+            DeploymentView deploymentView = views.createDeploymentView("Deployment" + e, "");
+            deploymentView.setEnvironment("Environment " + e);
+            deploymentView.addDefaultElements();
+        }
+
+        views.getConfiguration().getStyles().addElementStyle(Tags.PERSON).shape(Shape.Person);
+    }
+
+    private void addAnimations(StaticView view) {
+        if (animationSteps <= 0) {
+            return;
+        }
+
+        List<Element> elements = new ArrayList<>();
+        for (ElementView elementView : view.getElements()) {
+            elements.add(elementView.getElement());
+        }
+        elements.sort(Comparator.comparing(Element::getId));
+
+        int elementsPerStep = Math.max(1, (elements.size() + animationSteps - 1) / animationSteps);
+        for (int from = 0; from < elements.size(); from += elementsPerStep) {
+            List<Element> step = elements.subList(from, Math.min(elements.size(), from + elementsPerStep));
+            view.addAnimation(step.toArray(new Element[0]));
+        }
+    }
+
+    private String randomGroup(Random random) {
+        if (groups <= 0 || random.nextBoolean()) {
+            return null;
+        }
+
+        return "Group " + (random.nextInt(groups) + 1);
+    }
+
+    private <T> T randomElement(Random random, List<T> list) {
+        return list.get(random.nextInt(list.size()));
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.structurizr.export;
+
+import com.structurizr.Workspace;
+import com.structurizr.export.plantuml.StructurizrPlantUMLExporter;
+import com.structurizr.model.*;
+import com.structurizr.view.ComponentView;
+import com.structurizr.view.View;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkspaceGeneratorTests {
+
+    @Test
+    public void test_generate_WithTheDefaultSettings() {
+        Workspace workspace = new WorkspaceGenerator().generate();
+
+        assertEquals(10, workspace.getModel().getPeople().size());
+        assertEquals(10, workspace.getModel().getSoftwareSystems().size());
+        assertEquals(10 + 10 + 40 + 200, workspace.getModel().getElements().stream().filter(e -> e instanceof StaticStructureElement).count());
+
+        assertEquals(1, workspace.getViews().getSystemLandscapeViews().size());
+        assertEquals(3, workspace.getViews().getSystemContextViews().size());
+        assertEquals(3, workspace.getViews().getContainerViews().size());
+        assertEquals(3, workspace.getViews().getComponentViews().size());
+        assertEquals(3, workspace.getViews().getDynamicViews().size());
+        assertEquals(1, workspace.getViews().getDeploymentViews().size());
+
+        for (ComponentView view : workspace.getViews().getComponentViews()) {
+            assertFalse(view.getAnimations().isEmpty());
+        }
+    }
+
+    @Test
+    public void test_generate_WithAnAllContainersView() {
+        WorkspaceGenerator generator = new WorkspaceGenerator();
+        generator.setAllContainersView(true);
+        Workspace workspace = generator.generate();
+
+        View view = workspace.getViews().getViewWithKey("AllContainers");
+        assertEquals(40, view.getElements().size());
+        assertTrue(view.getElements().stream().allMatch(elementView -> elementView.getElement() instanceof Container));
+    }
+
+    @Test
+    public void test_generate_IsDeterministic() {
+        assertEquals(describe(WorkspaceGenerator.ofSize(1000, 42).generate()), describe(WorkspaceGenerator.ofSize(1000, 42).generate()));
+        assertNotEquals(describe(WorkspaceGenerator.ofSize(1000, 42).generate()), describe(WorkspaceGenerator.ofSize(1000, 43).generate()));
+    }
+
+    @Test
+    public void test_generate_WithNestedDeploymentNodes() {
+        WorkspaceGenerator generator = new WorkspaceGenerator();
+        generator.setSoftwareSystems(1);
+        generator.setDeploymentEnvironments(2);
+        generator.setDeploymentNodeDepth(4);
+        Workspace workspace = generator.generate();
+
+        assertEquals(2, workspace.getViews().getDeploymentViews().size());
+
+        DeploymentNode deploymentNode = workspace.getModel().getDeploymentNodes().iterator().next();
+        int depth = 1;
+        while (!deploymentNode.getChildren().isEmpty()) {
+            deploymentNode = deploymentNode.getChildren().iterator().next();
+            depth++;
+        }
+        assertEquals(4, depth);
+        assertEquals(4, deploymentNode.getContainerInstances().size());
+    }
+
+    @Test
+    public void test_export_IsDeterministic() {
+        StructurizrPlantUMLExporter exporter = new StructurizrPlantUMLExporter();
+
+        List<String> expected = new ArrayList<>();
+        exporter.exportTo(WorkspaceGenerator.ofSize(2000, 7).generate(), d -> expected.add(d.getDefinition()));
+
+        List<String> actual = new ArrayList<>();
+        exporter.exportTo(WorkspaceGenerator.ofSize(2000, 7).generate(), d -> actual.add(d.getDefinition()));
+
+        assertEquals(expected, actual);
+    }
+
+    private String describe(Workspace workspace) {
+        List<String> lines = new ArrayList<>();
+        for (Element element : workspace.getModel().getElements()) {
+            lines.add(element.getId() + " " + element.getCanonicalName() + " " + ((element instanceof GroupableElement) ? ((GroupableElement)element).getGroup() : ""));
+        }
+        for (Relationship relationship : workspace.getModel().getRelationships()) {
+            lines.add(relationship.getId() + " " + relationship.getSourceId() + " -> " + relationship.getDestinationId() + " " + relationship.getDescription());
+        }
+        for (View view : workspace.getViews().getViews()) {
+            lines.add(view.getKey() + " " + view.getElements().size() + " " + view.getRelationships().size());
+        }
+        lines.sort(String::compareTo);
+
+        return String.join("\n", lines);
+    }
+
+}
@@ -1,17 +1,23 @@
 package com.structurizr.export.dot;
 
 import com.structurizr.Workspace;
+import com.structurizr.export.AbstractDiagramExporter;
 import com.structurizr.export.AbstractExporterTests;
 import com.structurizr.export.Diagram;
+import com.structurizr.export.ExportManifest;
 import com.structurizr.model.*;
 import com.structurizr.util.WorkspaceUtils;
 import com.structurizr.view.*;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class DOTDiagramExporterTests extends AbstractExporterTests {
 
@@ -52,6 +58,69 @@ public class DOTDiagramExporterTests extends AbstractExporterTests {
         assertEquals(expected, diagram.getDefinition());
     }
 
+    @Test
+    public void test_BigBankPlcExample_WhenExportedIncrementally(@TempDir File tempDir) throws Exception {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+        DOTExporter exporter = new DOTExporter();
+        File manifestFile = new File(tempDir, "manifest.properties");
+
+        // the first export renders every view
+        ExportManifest manifest = ExportManifest.load(manifestFile);
+        Collection<Diagram> diagrams = exporter.export(workspace, manifest);
+        assertEquals(7, diagrams.size());
+        assertEquals(7, manifest.getViewKeys().size());
+        assertTrue(manifest.getReusedViewKeys().isEmpty());
+        manifest.save(manifestFile);
+
+        // nothing has changed, so no views are rendered
+        workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+        manifest = ExportManifest.load(manifestFile);
+        diagrams = exporter.export(workspace, manifest);
+        assertEquals(0, diagrams.size());
+        assertEquals(manifest.getViewKeys(), manifest.getReusedViewKeys());
+
+        // only the changed view is rendered
+        workspace.getViews().getViewWithKey("SystemLandscape").setDescription("A new description");
+        diagrams = exporter.export(workspace, manifest);
+        assertEquals(1, diagrams.size());
+        assertEquals("SystemLandscape", diagrams.iterator().next().getKey());
+        assertEquals(6, manifest.getReusedViewKeys().size());
+        assertFalse(manifest.getReusedViewKeys().contains("SystemLandscape"));
+
+        // exporter settings are part of the fingerprint
+        exporter.setClusterInternalMargin(50);
+        diagrams = exporter.export(workspace, manifest);
+        assertEquals(7, diagrams.size());
+        assertTrue(manifest.getReusedViewKeys().isEmpty());
+
+        // as are the styles of groups
+        workspace.getModel().getSoftwareSystemWithName("Mainframe Banking System").setGroup("Bank");
+        Set<String> groupedViewKeys = keysOf(exporter.export(workspace, manifest));
+        assertTrue(groupedViewKeys.contains("SystemLandscape"));
+        assertTrue(groupedViewKeys.size() < 7);
+
+        workspace.getViews().getConfiguration().getStyles().addElementStyle("Group:Bank").color("#ff0000");
+        assertEquals(groupedViewKeys, keysOf(exporter.export(workspace, manifest)));
+        assertTrue(exporter.export(workspace, manifest).isEmpty());
+
+        workspace.getViews().getConfiguration().getStyles().addElementStyle("Group").color("#00ff00");
+        assertEquals(groupedViewKeys, keysOf(exporter.export(workspace, manifest)));
+
+        // and the group separator, which changes how groups are nested
+        workspace.getModel().addProperty(AbstractDiagramExporter.GROUP_SEPARATOR_PROPERTY_NAME, "/");
+        diagrams = exporter.export(workspace, manifest);
+        assertEquals(7, diagrams.size());
+        assertTrue(manifest.getReusedViewKeys().isEmpty());
+        assertTrue(exporter.export(workspace, manifest).isEmpty());
+
+        workspace.getModel().addProperty(AbstractDiagramExporter.GROUP_SEPARATOR_PROPERTY_NAME, "::");
+        assertEquals(7, exporter.export(workspace, manifest).size());
+    }
+
+    private Set<String> keysOf(Collection<Diagram> diagrams) {
+        return diagrams.stream().map(Diagram::getKey).collect(Collectors.toCollection(TreeSet::new));
+    }
+
     @Test
     public void test_AmazonWebServicesExample() throws Exception {
         Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-54915-workspace.json"));
@@ -8,8 +8,17 @@ import com.structurizr.util.WorkspaceUtils;
 import com.structurizr.view.*;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -57,6 +66,41 @@ public class MermaidDiagramExporterTests extends AbstractExporterTests {
         diagram = diagrams.stream().filter(d -> d.getKey().equals("SignIn")).findFirst().get();
         expected = readFile(new File("./src/test/java/com/structurizr/export/mermaid/36141-SignIn-sequence.mmd"));
         assertEquals(expected, diagram.getDefinition());
+
+        // and streamed to an Appendable
+        StringBuilder out = new StringBuilder();
+        exporter.export(workspace.getViews().getViewWithKey("SignIn"), out);
+        assertEquals(expected, out.toString());
+
+        out = new StringBuilder();
+        exporter.export(workspace.getViews().getViewWithKey("Containers"), out);
+        assertEquals(readFile(new File("./src/test/java/com/structurizr/export/mermaid/36141-Containers.mmd")), out.toString());
+
+        // and written to a channel, as UTF-8
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long size = exporter.export(workspace.getViews().getViewWithKey("Containers"), Channels.newChannel(bytes));
+        assertEquals(out.toString(), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(bytes.size(), size);
+
+        // and encoded from the bytes
+        MermaidEncoder encoder = new MermaidEncoder();
+        assertEquals(encoder.encode(out.toString()), encoder.encode(ByteBuffer.wrap(bytes.toByteArray())));
+    }
+
+    @Test
+    public void test_BigBankPlcExample_WhenExportedToAConsumer() throws Exception {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+        MermaidDiagramExporter exporter = new MermaidDiagramExporter();
+
+        List<Diagram> expected = new ArrayList<>(exporter.export(workspace));
+        List<Diagram> actual = new ArrayList<>();
+        exporter.exportTo(workspace, actual::add);
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getKey(), actual.get(i).getKey());
+            assertEquals(expected.get(i).getDefinition(), actual.get(i).getDefinition());
+        }
     }
 
     @Test
@@ -96,6 +140,30 @@ public class MermaidDiagramExporterTests extends AbstractExporterTests {
         assertEquals(expected, diagram.getDefinition());
     }
 
+    @Test
+    public void test_GroupsExample_WhenTheExporterIsSharedBetweenThreads() throws Exception {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/groups.json"));
+        ThemeUtils.loadThemes(workspace);
+        SystemLandscapeView view = workspace.getViews().getSystemLandscapeViews().iterator().next();
+
+        MermaidDiagramExporter exporter = new MermaidDiagramExporter();
+        String expected = readFile(new File("./src/test/java/com/structurizr/export/mermaid/groups-SystemLandscape.mmd"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Diagram>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(() -> exporter.export(view)));
+            }
+
+            for (Future<Diagram> future : futures) {
+                assertEquals(expected, future.get().getDefinition());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void test_renderContainerDiagramWithExternalContainers() {
         Workspace workspace = new Workspace("Name", "Description");
@@ -274,22 +342,22 @@ public class MermaidDiagramExporterTests extends AbstractExporterTests {
                 "  subgraph diagram [System Landscape]\n" +
                 "    style diagram fill:#ffffff\n" +
                 "\n" +
-                "    subgraph group4 [Group 1]\n" +
-                "      style group4 fill:#ffffff,stroke:#111111,color:#111111\n" +
+                "    subgraph group1 [Group 1]\n" +
+                "      style group1 fill:#ffffff,stroke:#111111,color:#111111\n" +
                 "\n" +
                 "      1[\"<div style='font-weight: bold'>User 1</div><div style='font-size: 70%; margin-top: 0px'>[Person]</div>\"]\n" +
                 "      style 1 fill:#dddddd,stroke:#9a9a9a,color:#000000\n" +
                 "    end\n" +
                 "\n" +
-                "    subgraph group5 [Group 2]\n" +
-                "      style group5 fill:#ffffff,stroke:#222222,color:#222222\n" +
+                "    subgraph group2 [Group 2]\n" +
+                "      style group2 fill:#ffffff,stroke:#222222,color:#222222\n" +
                 "\n" +
                 "      2[\"<div style='font-weight: bold'>User 2</div><div style='font-size: 70%; margin-top: 0px'>[Person]</div>\"]\n" +
                 "      style 2 fill:#dddddd,stroke:#9a9a9a,color:#000000\n" +
                 "    end\n" +
                 "\n" +
-                "    subgraph group6 [Group 3]\n" +
-                "      style group6 fill:#ffffff,stroke:#aabbcc,color:#aabbcc\n" +
+                "    subgraph group3 [Group 3]\n" +
+                "      style group3 fill:#ffffff,stroke:#aabbcc,color:#aabbcc\n" +
                 "\n" +
                 "      3[\"<div style='font-weight: bold'>User 3</div><div style='font-size: 70%; margin-top: 0px'>[Person]</div>\"]\n" +
                 "      style 3 fill:#dddddd,stroke:#9a9a9a,color:#000000\n" +
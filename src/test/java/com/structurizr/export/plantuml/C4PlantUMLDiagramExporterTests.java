@@ -107,6 +107,42 @@ public class C4PlantUMLDiagramExporterTests extends AbstractExporterTests {
         assertEquals(expected, diagram.getDefinition());
     }
 
+    @Test
+    public void test_renderDiagramWithNestedGroups() {
+        Workspace workspace = new Workspace("Name", "Description");
+        workspace.getModel().addProperty(C4PlantUMLExporter.GROUP_SEPARATOR_PROPERTY_NAME, "/");
+
+        workspace.getModel().addSoftwareSystem("A").setGroup("Team 1");
+        workspace.getModel().addSoftwareSystem("B").setGroup("Team 1/Subteam 1");
+        workspace.getModel().addSoftwareSystem("C");
+
+        SystemLandscapeView view = workspace.getViews().createSystemLandscapeView("key", "Description");
+        view.addDefaultElements();
+
+        Diagram diagram = new C4PlantUMLExporter().export(view);
+        assertEquals("@startuml\n" +
+                "title System Landscape\n" +
+                "\n" +
+                "top to bottom direction\n" +
+                "\n" +
+                "!include https://raw.githubusercontent.com/plantuml-stdlib/C4-PlantUML/master/C4.puml\n" +
+                "!include https://raw.githubusercontent.com/plantuml-stdlib/C4-PlantUML/master/C4_Context.puml\n" +
+                "\n" +
+                "Boundary(group_1, \"Team 1\") {\n" +
+                "  Boundary(group_2, \"Team 1/Subteam 1\") {\n" +
+                "    System(B, \"B\", \"\", $tags=\"\")\n" +
+                "  }\n" +
+                "\n" +
+                "  System(A, \"A\", \"\", $tags=\"\")\n" +
+                "}\n" +
+                "\n" +
+                "System(C, \"C\", \"\", $tags=\"\")\n" +
+                "\n" +
+                "\n" +
+                "SHOW_LEGEND(true)\n" +
+                "@enduml", diagram.getDefinition());
+    }
+
     @Test
     public void test_renderContainerDiagramWithExternalContainers() {
         Workspace workspace = new Workspace("Name", "Description");
@@ -0,0 +1,218 @@
+package com.structurizr.export.plantuml;
+
+import com.structurizr.Workspace;
+import com.structurizr.export.ExportManifest;
+import com.structurizr.view.SystemLandscapeView;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DefaultIconResolverTests {
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void test_resolve_ReturnsNullForUnsupportedIcons() {
+        DefaultIconResolver resolver = new DefaultIconResolver();
+
+        assertNull(resolver.resolve(null));
+        assertNull(resolver.resolve(""));
+        assertNull(resolver.resolve("icon.png"));
+        assertNull(resolver.resolve("ftp://example.com/icon.png"));
+        assertNull(resolver.resolve("classpath:/missing.png"));
+    }
+
+    @Test
+    public void test_resolve_ReferencesUrlsAsTheyAre() {
+        ResolvedIcon icon = new DefaultIconResolver().resolve("https://example.com/icon.png");
+
+        assertEquals("https://example.com/icon.png", icon.getReference());
+    }
+
+    @Test
+    public void test_resolve_ReferencesMirroredUrlsAsFiles() throws Exception {
+        File file = png(new File(directory, "example.com/icons/icon.png"), 100, 50);
+
+        DefaultIconResolver resolver = new DefaultIconResolver();
+        resolver.setMirrorDirectory(directory);
+
+        ResolvedIcon icon = resolver.resolve("https://example.com/icons/icon.png");
+        assertEquals(file.getPath(), icon.getReference());
+        assertEquals(new IconSize(100, 50), IconProbe.probe(icon, 1000));
+
+        // icons that haven't been mirrored are still fetched
+        assertEquals("https://example.com/icons/other.png", resolver.resolve("https://example.com/icons/other.png").getReference());
+
+        // and URLs can't read files outside of the mirror directory
+        png(new File(directory.getParentFile(), "outside.png"), 10, 10);
+        assertEquals("https://example.com/%2E%2E/%2E%2E/outside.png", resolver.resolve("https://example.com/%2E%2E/%2E%2E/outside.png").getReference());
+    }
+
+    @Test
+    public void test_resolve_ReferencesFileUrlsAsPaths() throws Exception {
+        File file = png(new File(directory, "icons/icon.png"), 20, 40);
+
+        DefaultIconResolver resolver = new DefaultIconResolver();
+        resolver.setFileRoot(new File(directory, "icons"));
+
+        ResolvedIcon icon = resolver.resolve(file.toURI().toString());
+
+        assertEquals(file.getPath(), icon.getReference());
+        assertEquals(new IconSize(20, 40), IconProbe.probe(icon, 1000));
+    }
+
+    @Test
+    public void test_resolve_DoesNotReadFilesOutsideOfTheFileRoot() throws Exception {
+        File file = png(new File(directory, "icon.png"), 20, 40);
+        new File(directory, "icons").mkdirs();
+
+        // file: icons aren't supported by default
+        assertNull(new DefaultIconResolver().resolve(file.toURI().toString()));
+
+        DefaultIconResolver resolver = new DefaultIconResolver();
+        resolver.setFileRoot(new File(directory, "icons"));
+
+        assertNull(resolver.resolve(file.toURI().toString()));
+        assertNull(resolver.resolve(new File(directory, "icons").toURI() + "../icon.png"));
+        assertNull(resolver.resolve(new File(directory, "icons").toURI() + "%2E%2E/icon.png"));
+    }
+
+    @Test
+    public void test_resolve_EmbedsClasspathResourcesAsDataUris() throws Exception {
+        File file = png(new File(directory, "icons/icon.png"), 30, 15);
+
+        DefaultIconResolver resolver = new DefaultIconResolver();
+        resolver.setClassLoader(new URLClassLoader(new URL[] { directory.toURI().toURL() }, null));
+        resolver.setClasspathPrefix("icons");
+
+        ResolvedIcon icon = resolver.resolve("classpath:/icons/icon.png");
+
+        assertEquals("data:image/png;base64," + Base64.getEncoder().encodeToString(Files.readAllBytes(file.toPath())), icon.getReference());
+        assertEquals(new IconSize(30, 15), IconProbe.probe(icon, 1000));
+    }
+
+    @Test
+    public void test_resolve_DoesNotReadClasspathResourcesOutsideOfTheClasspathPrefix() throws Exception {
+        png(new File(directory, "icons/icon.png"), 30, 15);
+        png(new File(directory, "other/icon.png"), 30, 15);
+        URLClassLoader classLoader = new URLClassLoader(new URL[] { directory.toURI().toURL() }, null);
+
+        // classpath: icons aren't supported by default
+        DefaultIconResolver resolver = new DefaultIconResolver();
+        resolver.setClassLoader(classLoader);
+        assertNull(resolver.resolve("classpath:/icons/icon.png"));
+
+        resolver.setClasspathPrefix("/icons/");
+        assertNotNull(resolver.resolve("classpath:/icons/icon.png"));
+        assertNull(resolver.resolve("classpath:/other/icon.png"));
+        assertNull(resolver.resolve("classpath:/icons/../other/icon.png"));
+    }
+
+    @Test
+    public void test_setClasspathPrefix_ThrowsAnException_WhenThePrefixIsNotADirectory() {
+        for (String classpathPrefix : new String[] { "", "/", "../icons", "icons/.." }) {
+            try {
+                new DefaultIconResolver().setClasspathPrefix(classpathPrefix);
+                fail();
+            } catch (IllegalArgumentException iae) {
+                assertEquals("The classpath prefix must name a classpath directory (e.g. \"icons\").", iae.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void test_resolve_ReadsDataUris() throws Exception {
+        File file = png(new File(directory, "icon.png"), 8, 16);
+        String dataUri = "data:image/png;base64," + Base64.getEncoder().encodeToString(Files.readAllBytes(file.toPath()));
+
+        ResolvedIcon icon = new DefaultIconResolver().resolve(dataUri);
+
+        assertEquals(dataUri, icon.getReference());
+        assertEquals(new IconSize(8, 16), IconProbe.probe(icon, 1000));
+    }
+
+    @Test
+    public void test_resolve_ReEncodesDataUrisThatAreNotBase64() throws Exception {
+        String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"64\" height=\"32\"></svg>";
+
+        ResolvedIcon icon = new DefaultIconResolver().resolve("data:image/svg+xml;utf8," + svg.replace("\"", "%22"));
+
+        assertEquals("data:image/svg+xml;base64," + Base64.getEncoder().encodeToString(svg.getBytes(StandardCharsets.UTF_8)), icon.getReference());
+        assertEquals(new IconSize(64, 32), IconProbe.probe(icon, 1000));
+    }
+
+    @Test
+    public void test_setMirrorDirectory_ThrowsAnException_WhenTheDirectoryDoesNotExist() {
+        try {
+            new DefaultIconResolver().setMirrorDirectory(new File(directory, "missing"));
+            fail();
+        } catch (IllegalArgumentException iae) {
+            assertTrue(iae.getMessage().endsWith("is not a directory."));
+        }
+    }
+
+    @Test
+    public void test_export_RendersMirroredIconsWithoutNetworkAccess() throws Exception {
+        File file = png(new File(directory, "static.example.invalid/icon.png"), 200, 100);
+
+        Workspace workspace = new Workspace("Name", "Description");
+        workspace.getModel().addSoftwareSystem("Software System");
+        SystemLandscapeView view = workspace.getViews().createSystemLandscapeView("SystemLandscape", "Description");
+        view.addAllElements();
+        workspace.getViews().getConfiguration().getStyles().addElementStyle("Software System").icon("https://static.example.invalid/icon.png");
+
+        DefaultIconResolver resolver = new DefaultIconResolver();
+        resolver.setMirrorDirectory(directory);
+
+        StructurizrPlantUMLExporter exporter = new StructurizrPlantUMLExporter();
+        exporter.setIconResolver(resolver);
+
+        String definition = exporter.export(view).getDefinition();
+        assertTrue(definition.contains("<img:" + file.getPath() + "{scale=0.25}>"));
+    }
+
+    @Test
+    public void test_export_RendersViewsAgain_WhenTheIconReferencesChange() throws Exception {
+        File file = png(new File(directory, "icons/icon.png"), 200, 100);
+
+        Workspace workspace = new Workspace("Name", "Description");
+        workspace.getModel().addSoftwareSystem("Software System");
+        workspace.getViews().createSystemLandscapeView("SystemLandscape", "Description").addAllElements();
+        workspace.getViews().getConfiguration().getStyles().addElementStyle("Software System").icon(file.toURI().toString());
+
+        DefaultIconResolver resolver = new DefaultIconResolver();
+        StructurizrPlantUMLExporter exporter = new StructurizrPlantUMLExporter();
+        exporter.setIconResolver(resolver);
+        ExportManifest manifest = new ExportManifest();
+
+        // file: icons aren't supported by default
+        assertFalse(exporter.export(workspace, manifest).iterator().next().getDefinition().contains("<img:"));
+        assertTrue(exporter.export(workspace, manifest).isEmpty());
+
+        resolver.setFileRoot(new File(directory, "icons"));
+        assertTrue(exporter.export(workspace, manifest).iterator().next().getDefinition().contains("<img:" + file.getPath()));
+        assertTrue(exporter.export(workspace, manifest).isEmpty());
+
+        exporter.setIconResolver(new DefaultIconResolver());
+        assertFalse(exporter.export(workspace, manifest).iterator().next().getDefinition().contains("<img:"));
+    }
+
+    private File png(File file, int width, int height) throws Exception {
+        file.getParentFile().mkdirs();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", file);
+
+        return file;
+    }
+
+}
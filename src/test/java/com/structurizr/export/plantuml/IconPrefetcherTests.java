@@ -0,0 +1,244 @@
+package com.structurizr.export.plantuml;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.SoftwareSystem;
+import com.structurizr.view.Styles;
+import com.structurizr.view.SystemLandscapeView;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IconPrefetcherTests {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch concurrentRequests = new CountDownLatch(2);
+    private final AtomicInteger sequentialRequests = new AtomicInteger();
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(200, 25, BufferedImage.TYPE_INT_RGB), "png", png);
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/icon.png", exchange -> {
+            requests.incrementAndGet();
+            exchange.sendResponseHeaders(200, png.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(png.toByteArray());
+            }
+        });
+        server.createContext("/slow.png", exchange -> {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                // the server is being stopped
+            }
+            exchange.close();
+        });
+        // responds once two requests are in progress at the same time
+        server.createContext("/concurrent/", exchange -> {
+            requests.incrementAndGet();
+            concurrentRequests.countDown();
+            try {
+                if (!concurrentRequests.await(5, TimeUnit.SECONDS)) {
+                    sequentialRequests.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                // the server is being stopped
+            }
+            exchange.sendResponseHeaders(200, png.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(png.toByteArray());
+            }
+        });
+        server.createContext("/missing.png", exchange -> {
+            requests.incrementAndGet();
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    @Test
+    public void test_prefetch_FetchesTheIconsUsedByAWorkspace() {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem a = workspace.getModel().addSoftwareSystem("A");
+        a.addTags("Icon");
+        SoftwareSystem b = workspace.getModel().addSoftwareSystem("B");
+        b.addTags("Icon");
+        SoftwareSystem c = workspace.getModel().addSoftwareSystem("C");
+        c.addTags("Missing");
+        SystemLandscapeView view = workspace.getViews().createSystemLandscapeView("SystemLandscape", "Description");
+        view.addAllElements();
+
+        Styles styles = workspace.getViews().getConfiguration().getStyles();
+        styles.addElementStyle("Icon").icon(url("/icon.png"));
+        styles.addElementStyle("Missing").icon(url("/missing.png"));
+
+        IconSizeCache cache = new IconSizeCache();
+        Map<String, Exception> failures = new IconPrefetcher(cache).prefetch(workspace);
+
+        assertEquals(new IconSize(200, 25), cache.getIfPresent(url("/icon.png")));
+        assertEquals(1, failures.size());
+        assertTrue(failures.containsKey(url("/missing.png")));
+        assertEquals(2, requests.get());
+
+        // rendering reads the sizes from the cache, without fetching the icons again
+        StructurizrPlantUMLExporter exporter = new StructurizrPlantUMLExporter();
+        exporter.setIconSizeCache(cache);
+        String definition = exporter.export(view).getDefinition();
+
+        assertTrue(definition.contains("<img:" + url("/icon.png") + "{scale=0.25}>"));
+        assertTrue(definition.contains("<img:" + url("/missing.png") + "{scale=0.5}>"));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void test_export_PrefetchesTheIconsUsedByAWorkspace() {
+        Workspace workspace = new Workspace("Name", "Description");
+        workspace.getModel().addSoftwareSystem("A").addTags("A");
+        workspace.getModel().addSoftwareSystem("B").addTags("B");
+        SystemLandscapeView view = workspace.getViews().createSystemLandscapeView("SystemLandscape", "Description");
+        view.addAllElements();
+
+        Styles styles = workspace.getViews().getConfiguration().getStyles();
+        styles.addElementStyle("A").icon(url("/concurrent/a.png"));
+        styles.addElementStyle("B").icon(url("/concurrent/b.png"));
+
+        StructurizrPlantUMLExporter exporter = new StructurizrPlantUMLExporter();
+        String definition = exporter.export(workspace).iterator().next().getDefinition();
+
+        // both icons were fetched at the same time, before the view was rendered
+        assertEquals(2, requests.get());
+        assertEquals(0, sequentialRequests.get());
+        assertEquals(new IconSize(200, 25), exporter.getIconSizeCache().getIfPresent(url("/concurrent/a.png")));
+        assertTrue(definition.contains("<img:" + url("/concurrent/b.png") + "{scale=0.25}>"));
+    }
+
+    @Test
+    public void test_export_ReportsTheIconsThatCouldNotBePrefetched() {
+        Workspace workspace = new Workspace("Name", "Description");
+        workspace.getModel().addSoftwareSystem("A").addTags("Icon");
+        workspace.getModel().addSoftwareSystem("B").addTags("Missing");
+        workspace.getModel().addSoftwareSystem("C").addTags("Slow");
+        SystemLandscapeView view = workspace.getViews().createSystemLandscapeView("SystemLandscape", "Description");
+        view.addAllElements();
+
+        Styles styles = workspace.getViews().getConfiguration().getStyles();
+        styles.addElementStyle("Icon").icon(url("/icon.png"));
+        styles.addElementStyle("Missing").icon(url("/missing.png"));
+        styles.addElementStyle("Slow").icon(url("/slow.png"));
+
+        StructurizrPlantUMLExporter exporter = new StructurizrPlantUMLExporter();
+        assertTrue(exporter.getIconPrefetchFailures().isEmpty());
+        exporter.setIconRequestTimeout(200);
+
+        long start = System.currentTimeMillis();
+        exporter.export(workspace);
+
+        assertTrue(System.currentTimeMillis() - start < 4000);
+        Map<String, Exception> failures = exporter.getIconPrefetchFailures();
+        assertEquals(2, failures.size());
+        assertTrue(failures.containsKey(url("/missing.png")));
+        assertTrue(failures.containsKey(url("/slow.png")));
+        assertThrows(UnsupportedOperationException.class, () -> failures.clear());
+
+        // the failures are in the cache, so aren't fetched (or reported) again
+        exporter.export(workspace);
+        assertTrue(exporter.getIconPrefetchFailures().isEmpty());
+    }
+
+    @Test
+    public void test_export_PrefetchesIconsWithTheExporterSettings() {
+        Workspace workspace = new Workspace("Name", "Description");
+        workspace.getModel().addSoftwareSystem("A").addTags("A");
+        workspace.getModel().addSoftwareSystem("B").addTags("B");
+        SystemLandscapeView view = workspace.getViews().createSystemLandscapeView("SystemLandscape", "Description");
+        view.addAllElements();
+
+        Styles styles = workspace.getViews().getConfiguration().getStyles();
+        styles.addElementStyle("A").icon(url("/slow.png"));
+        styles.addElementStyle("B").icon(url("/slow.png?2"));
+
+        StructurizrPlantUMLExporter exporter = new StructurizrPlantUMLExporter();
+        exporter.setIconPrefetchThreads(1);
+        exporter.setIconPrefetchTimeout(300);
+        assertThrows(IllegalArgumentException.class, () -> exporter.setIconPrefetchThreads(0));
+        assertThrows(IllegalArgumentException.class, () -> exporter.setIconRequestTimeout(0));
+        assertThrows(IllegalArgumentException.class, () -> exporter.setIconPrefetchTimeout(0));
+
+        long start = System.currentTimeMillis();
+        exporter.export(workspace);
+
+        assertTrue(System.currentTimeMillis() - start < 4000);
+        assertTrue(exporter.getIconPrefetchFailures().get(url("/slow.png")) instanceof TimeoutException);
+        assertTrue(exporter.getIconPrefetchFailures().get(url("/slow.png?2")) instanceof TimeoutException);
+        assertTrue(requests.get() <= 1);
+    }
+
+    @Test
+    public void test_prefetch_TimesOutSlowIcons() {
+        IconSizeCache cache = new IconSizeCache();
+        IconPrefetcher prefetcher = new IconPrefetcher(cache);
+        prefetcher.setRequestTimeout(200);
+
+        long start = System.currentTimeMillis();
+        Map<String, Exception> failures = prefetcher.prefetch(Arrays.asList(url("/slow.png"), url("/icon.png")));
+
+        assertTrue(System.currentTimeMillis() - start < 4000);
+        assertEquals(1, failures.size());
+        assertTrue(failures.containsKey(url("/slow.png")));
+        assertTrue(cache.contains(url("/slow.png")));
+        assertEquals(new IconSize(200, 25), cache.getIfPresent(url("/icon.png")));
+    }
+
+    @Test
+    public void test_prefetch_StopsAtTheDeadline() {
+        IconSizeCache cache = new IconSizeCache();
+        IconPrefetcher prefetcher = new IconPrefetcher(cache);
+        prefetcher.setThreads(1);
+        prefetcher.setTimeout(300);
+
+        long start = System.currentTimeMillis();
+        Map<String, Exception> failures = prefetcher.prefetch(Arrays.asList(url("/slow.png"), url("/slow.png?2")));
+
+        assertTrue(System.currentTimeMillis() - start < 4000);
+        assertTrue(failures.get(url("/slow.png")) instanceof TimeoutException);
+        assertTrue(failures.get(url("/slow.png?2")) instanceof TimeoutException);
+        assertTrue(requests.get() <= 1);
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.structurizr.export.plantuml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IconProbeTests {
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void test_probe_Png() throws Exception {
+        assertEquals(new IconSize(120, 80), IconProbe.probe(new ByteArrayInputStream(image("png", 120, 80))));
+    }
+
+    @Test
+    public void test_probe_Gif() throws Exception {
+        assertEquals(new IconSize(300, 2), IconProbe.probe(new ByteArrayInputStream(image("gif", 300, 2))));
+    }
+
+    @Test
+    public void test_probe_Jpeg() throws Exception {
+        assertEquals(new IconSize(64, 640), IconProbe.probe(new ByteArrayInputStream(image("jpg", 64, 640))));
+    }
+
+    @Test
+    public void test_probe_JpegWithALargeApplicationSegment() throws Exception {
+        byte[] jpeg = image("jpg", 32, 16);
+
+        // insert an APP1 segment (as used for EXIF data) of ~64KB after the SOI marker
+        int length = 65000;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        out.write(new byte[] { (byte)0xFF, (byte)0xE1, (byte)(length >> 8), (byte)length });
+        out.write(new byte[length - 2]);
+        out.write(jpeg, 2, jpeg.length - 2);
+
+        assertEquals(new IconSize(32, 16), IconProbe.probe(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    public void test_probe_Svg() throws Exception {
+        assertEquals(new IconSize(48, 24), probeSvg("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"48px\" height=\"24\"></svg>"));
+        assertEquals(new IconSize(80, 40), probeSvg("<?xml version=\"1.0\"?>\n<!-- icon -->\n<svg viewBox=\"0 0 80 40\" stroke-width=\"2\"></svg>"));
+        assertEquals(new IconSize(80, 40), probeSvg("<svg width=\"100%\" height=\"100%\" viewBox=\"0,0,80,40\"></svg>"));
+        assertNull(probeSvg("<svg></svg>"));
+    }
+
+    @Test
+    public void test_probe_ReturnsNull_WhenTheFormatIsNotRecognised() throws Exception {
+        assertNull(IconProbe.probe(new ByteArrayInputStream(image("bmp", 10, 20))));
+        assertNull(IconProbe.probe(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    public void test_probe_FallsBackToImageIO() throws Exception {
+        File file = new File(directory, "icon.bmp");
+        ImageIO.write(new BufferedImage(10, 20, BufferedImage.TYPE_INT_RGB), "bmp", file);
+
+        assertEquals(new IconSize(10, 20), IconProbe.probe(ResolvedIcon.ofFile(file.getPath(), file), 1000));
+    }
+
+    private IconSize probeSvg(String svg) throws Exception {
+        return IconProbe.probe(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private byte[] image(String format, int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, out);
+
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.structurizr.export.plantuml;
+
+import com.structurizr.Workspace;
+import com.structurizr.view.SystemLandscapeView;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IconSizeCacheTests {
+
+    private static final String ICON = "https://example.com/icon.png";
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void test_get_OnlyLoadsAnIconOnce() {
+        IconSizeCache cache = new IconSizeCache();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(new IconSize(100, 50), cache.get(ICON, url -> { loads.incrementAndGet(); return new IconSize(100, 50); }));
+        assertEquals(new IconSize(100, 50), cache.get(ICON, url -> { loads.incrementAndGet(); return new IconSize(100, 50); }));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void test_get_RemembersIconsThatCouldNotBeLoaded() {
+        IconSizeCache cache = new IconSizeCache();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.get(ICON, url -> { loads.incrementAndGet(); return null; }));
+        assertNull(cache.get(ICON, url -> { loads.incrementAndGet(); return null; }));
+        assertTrue(cache.contains(ICON));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void test_get_EvictsTheLeastRecentlyUsedIcon() {
+        IconSizeCache cache = new IconSizeCache(2, IconSizeCache.DEFAULT_TIME_TO_LIVE);
+        cache.put("a", new IconSize(1, 1));
+        cache.put("b", new IconSize(2, 2));
+        cache.getIfPresent("a");
+        cache.put("c", new IconSize(3, 3));
+
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+    }
+
+    @Test
+    public void test_get_ExpiresIcons() {
+        AtomicLong now = new AtomicLong(0);
+        IconSizeCache cache = new IconSizeCache(10, 1000);
+        cache.setClock(now::get);
+        cache.put(ICON, new IconSize(10, 10));
+
+        now.set(999);
+        assertTrue(cache.contains(ICON));
+
+        now.set(1000);
+        assertFalse(cache.contains(ICON));
+    }
+
+    @Test
+    public void test_get_ExpiresIconsThatCouldNotBeLoadedSooner() {
+        AtomicLong now = new AtomicLong(0);
+        IconSizeCache cache = new IconSizeCache(10, 1000);
+        cache.setFailureTimeToLive(100);
+        cache.setClock(now::get);
+        cache.put(ICON, new IconSize(10, 10));
+        cache.put("https://example.com/missing.png", null);
+
+        now.set(99);
+        assertTrue(cache.contains("https://example.com/missing.png"));
+
+        now.set(100);
+        assertFalse(cache.contains("https://example.com/missing.png"));
+        assertTrue(cache.contains(ICON));
+    }
+
+    @Test
+    public void test_save_PersistsIconSizes() throws Exception {
+        File file = new File(directory, "icons.properties");
+
+        IconSizeCache cache = new IconSizeCache(10, IconSizeCache.DEFAULT_TIME_TO_LIVE, file);
+        cache.put(ICON, new IconSize(64, 32));
+        cache.put("https://example.com/missing.png", null);
+        cache.save();
+
+        cache = new IconSizeCache(10, IconSizeCache.DEFAULT_TIME_TO_LIVE, file);
+        assertEquals(new IconSize(64, 32), cache.getIfPresent(ICON));
+        assertFalse(cache.contains("https://example.com/missing.png"));
+    }
+
+    @Test
+    public void test_save_DoesNotPersistDataUris() throws Exception {
+        File file = new File(directory, "icons.properties");
+        String dataUri = "data:image/png;base64,iVBORw0KGgo=";
+
+        IconSizeCache cache = new IconSizeCache(10, IconSizeCache.DEFAULT_TIME_TO_LIVE, file);
+        cache.put(dataUri, new IconSize(8, 8));
+        cache.put(ICON, new IconSize(64, 32));
+        assertEquals(new IconSize(8, 8), cache.getIfPresent(dataUri));
+        cache.save();
+
+        cache = new IconSizeCache(10, IconSizeCache.DEFAULT_TIME_TO_LIVE, file);
+        assertEquals(new IconSize(64, 32), cache.getIfPresent(ICON));
+        assertFalse(cache.contains(dataUri));
+        assertFalse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).contains("data"));
+    }
+
+    @Test
+    public void test_export_UsesTheCachedIconSize() {
+        Workspace workspace = new Workspace("Name", "Description");
+        workspace.getModel().addSoftwareSystem("Software System");
+        SystemLandscapeView view = workspace.getViews().createSystemLandscapeView("SystemLandscape", "Description");
+        view.addAllElements();
+        workspace.getViews().getConfiguration().getStyles().addElementStyle("Software System").icon(ICON);
+
+        StructurizrPlantUMLExporter exporter = new StructurizrPlantUMLExporter();
+        exporter.getIconSizeCache().put(ICON, new IconSize(200, 100));
+
+        String definition = exporter.export(view).getDefinition();
+        assertTrue(definition.contains("<img:" + ICON + "{scale=0.25}>"));
+    }
+
+}
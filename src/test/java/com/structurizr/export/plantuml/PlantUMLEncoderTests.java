@@ -0,0 +1,115 @@
+package com.structurizr.export.plantuml;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlantUMLEncoderTests {
+
+    private static final String DEFINITION = "@startuml\nBob -> Alice : hello\n@enduml";
+
+    @Test
+    public void test_encode() throws Exception {
+        PlantUMLEncoder encoder = new PlantUMLEncoder();
+
+        assertEquals("SyfFKj2rKt3CoKnELR1Io4ZDoSa70000", encoder.encode("Bob -> Alice : hello"));
+        assertEquals("SoWkIImgAStDuNBAJrBGjLDmpCbCJbMmKiX8pSd9vt98pKi1IW80", encoder.encode(DEFINITION));
+    }
+
+    @Test
+    public void test_encode_WhenTheBufferIsDirect() throws Exception {
+        byte[] bytes = DEFINITION.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+
+        assertEquals(new PlantUMLEncoder().encode(DEFINITION), new PlantUMLEncoder().encode(buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void test_encode_WithLargeDefinitions() throws Exception {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            buf.append("A").append(i).append(" -> B").append(i * 31 % 997).append('\n');
+        }
+        String definition = buf.toString();
+
+        PlantUMLEncoder encoder = new PlantUMLEncoder();
+        String encoded = encoder.encode(definition);
+
+        // the Deflater and buffer are reused between calls
+        assertEquals(encoded, encoder.encode(definition));
+        assertEquals("SoWkIImgAStDuNBAJrBGjLDmpCbCJbMmKiX8pSd9vt98pKi1IW80", encoder.encode(DEFINITION));
+    }
+
+    @Test
+    public void test_encode_WithACompressionLevel() throws Exception {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            buf.append("A").append(i).append(" -> B").append(i * 31 % 997).append('\n');
+        }
+        String definition = buf.toString();
+
+        String noCompression = new PlantUMLEncoder(Deflater.NO_COMPRESSION).encode(definition);
+        String defaultCompression = new PlantUMLEncoder(Deflater.DEFAULT_COMPRESSION).encode(definition);
+        String bestCompression = new PlantUMLEncoder().encode(definition);
+
+        assertTrue(noCompression.length() > defaultCompression.length());
+        assertTrue(noCompression.length() > bestCompression.length());
+        assertEquals(defaultCompression, new PlantUMLEncoder(6).encode(definition));
+    }
+
+    @Test
+    public void test_encode_WithDifferentCompressionLevelsOnTheSameThread() throws Exception {
+        String bestCompression = new PlantUMLEncoder().encode(DEFINITION);
+        String noCompression = new PlantUMLEncoder(Deflater.NO_COMPRESSION).encode(DEFINITION);
+
+        // the Deflater is replaced each time the level changes, and the output is unchanged
+        for (int i = 0; i < 3; i++) {
+            assertEquals(bestCompression, new PlantUMLEncoder().encode(DEFINITION));
+            assertEquals(noCompression, new PlantUMLEncoder(Deflater.NO_COMPRESSION).encode(DEFINITION));
+        }
+        assertEquals("SoWkIImgAStDuNBAJrBGjLDmpCbCJbMmKiX8pSd9vt98pKi1IW80", bestCompression);
+    }
+
+    @Test
+    public void test_construction_ThrowsAnException_WhenTheCompressionLevelIsInvalid() {
+        try {
+            new PlantUMLEncoder(10);
+            fail();
+        } catch (IllegalArgumentException iae) {
+            assertEquals("The compression level must be between 0 and 9.", iae.getMessage());
+        }
+    }
+
+    @Test
+    public void test_encode_FromMultipleThreads() throws Exception {
+        PlantUMLEncoder encoder = new PlantUMLEncoder();
+        String expected = encoder.encode(DEFINITION);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(() -> encoder.encode(DEFINITION)));
+            }
+
+            for (Future<String> future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
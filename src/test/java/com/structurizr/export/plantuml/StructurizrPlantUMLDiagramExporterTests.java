@@ -3,13 +3,19 @@ package com.structurizr.export.plantuml;
 import com.structurizr.Workspace;
 import com.structurizr.export.AbstractExporterTests;
 import com.structurizr.export.Diagram;
+import com.structurizr.export.ExportListener;
 import com.structurizr.model.*;
 import com.structurizr.util.WorkspaceUtils;
 import com.structurizr.view.*;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -70,6 +76,143 @@ public class StructurizrPlantUMLDiagramExporterTests extends AbstractExporterTes
         assertEquals(expected, diagram.getDefinition());
     }
 
+    @Test
+    public void test_BigBankPlcExample_WhenExportedConcurrently() throws Exception {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+        workspace.getViews().getConfiguration().addProperty(StructurizrPlantUMLExporter.PLANTUML_ANIMATION_PROPERTY, "true");
+
+        StructurizrPlantUMLExporter exporter = new StructurizrPlantUMLExporter();
+        List<Diagram> expected = new ArrayList<>(exporter.export(workspace));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Diagram> actual = new ArrayList<>(exporter.export(workspace, executor));
+            assertEquals(expected.size(), actual.size());
+
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getKey(), actual.get(i).getKey());
+                assertEquals(expected.get(i).getDefinition(), actual.get(i).getDefinition());
+                assertEquals(expected.get(i).getFrames().size(), actual.get(i).getFrames().size());
+
+                for (int j = 0; j < expected.get(i).getFrames().size(); j++) {
+                    assertEquals(expected.get(i).getFrames().get(j).getDefinition(), actual.get(i).getFrames().get(j).getDefinition());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_BigBankPlcExample_WhenFramesAreRenderedConcurrently() throws Exception {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+        workspace.getViews().getConfiguration().addProperty(StructurizrPlantUMLExporter.PLANTUML_ANIMATION_PROPERTY, "true");
+
+        StructurizrPlantUMLExporter exporter = new StructurizrPlantUMLExporter();
+        List<Diagram> expected = new ArrayList<>(exporter.export(workspace));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // the same executor is used for views and frames, which must not deadlock
+            exporter.setFrameExecutor(executor);
+            List<Diagram> actual = new ArrayList<>(exporter.export(workspace, executor));
+            assertEquals(expected.size(), actual.size());
+
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getDefinition(), actual.get(i).getDefinition());
+                assertEquals(expected.get(i).getFrames().size(), actual.get(i).getFrames().size());
+
+                for (int j = 0; j < expected.get(i).getFrames().size(); j++) {
+                    assertEquals(expected.get(i).getFrames().get(j).getDefinition(), actual.get(i).getFrames().get(j).getDefinition());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_exportListener() {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem a = workspace.getModel().addSoftwareSystem("A");
+        SoftwareSystem b = workspace.getModel().addSoftwareSystem("B");
+        a.uses(b, "Uses");
+
+        SystemLandscapeView view = workspace.getViews().createSystemLandscapeView("key", "Description");
+        view.addDefaultElements();
+        view.addAnimation(a);
+        view.addAnimation(b);
+        workspace.getViews().getConfiguration().addProperty(StructurizrPlantUMLExporter.PLANTUML_ANIMATION_PROPERTY, "true");
+
+        List<String> events = new ArrayList<>();
+        StructurizrPlantUMLExporter exporter = new StructurizrPlantUMLExporter();
+        exporter.setExportListener(new ExportListener() {
+            @Override
+            public void viewStarted(View view) {
+                events.add("viewStarted " + view.getKey());
+            }
+
+            @Override
+            public void viewFinished(View view, long durationNanos) {
+                assertTrue(durationNanos >= 0);
+                events.add("viewFinished " + view.getKey());
+            }
+
+            @Override
+            public void frameRendered(View view, Object frame, long durationNanos) {
+                assertTrue(durationNanos >= 0);
+                events.add("frameRendered " + frame);
+            }
+
+            @Override
+            public void elementWritten(View view, Object frame, Element element) {
+                events.add("elementWritten " + frame + " " + element.getName());
+            }
+
+            @Override
+            public void relationshipWritten(View view, Object frame, RelationshipView relationshipView) {
+                events.add("relationshipWritten " + frame + " " + relationshipView.getDescription());
+            }
+        });
+        exporter.export(view);
+
+        assertEquals(Arrays.asList(
+                "viewStarted key",
+                "elementWritten null A",
+                "elementWritten null B",
+                "relationshipWritten null Uses",
+                "frameRendered null",
+                "elementWritten 1 A",
+                "elementWritten 1 B",
+                "relationshipWritten 1 Uses",
+                "frameRendered 1",
+                "elementWritten 2 A",
+                "elementWritten 2 B",
+                "relationshipWritten 2 Uses",
+                "frameRendered 2",
+                "viewFinished key"
+        ), events);
+    }
+
+    @Test
+    public void test_filter_GivesTheSameResultAsTheUnicodeRegex() {
+        StringBuilder buf = new StringBuilder();
+        for (int codePoint = 0; codePoint <= Character.MAX_CODE_POINT; codePoint++) {
+            if (Character.getType(codePoint) != Character.SURROGATE) {
+                buf.appendCodePoint(codePoint);
+            }
+
+            if (buf.length() > 1000 || codePoint == Character.MAX_CODE_POINT) {
+                String s = buf.toString();
+                assertEquals(s.replaceAll("(?U)\\W", ""), AbstractPlantUMLExporter.filter(s));
+                buf.setLength(0);
+            }
+        }
+
+        assertEquals("SoftwareSystem", AbstractPlantUMLExporter.filter("Software System"));
+        assertEquals("Software_System", AbstractPlantUMLExporter.filter("Software_System"));
+    }
+
     @Test
     public void test_AmazonWebServicesExample() throws Exception {
         Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-54915-workspace.json"));
@@ -7,6 +7,7 @@ import com.structurizr.util.WorkspaceUtils;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.StringWriter;
 import java.util.Collection;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,4 +27,22 @@ public class WebSequenceDiagramsExporterTests extends AbstractExporterTests {
         assertEquals(expected, diagram.getDefinition());
     }
 
+    @Test
+    public void test_BigBankPlcExample_WhenExportedToAnAppendable() throws Exception {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("./src/test/structurizr-36141-workspace.json"));
+        WebSequenceDiagramsExporter exporter = new WebSequenceDiagramsExporter();
+
+        StringWriter out = new StringWriter();
+        exporter.export(workspace.getViews().getViewWithKey("SignIn"), out);
+        String expected = readFile(new File("./src/test/java/com/structurizr/export/websequencediagrams/36141-SignIn.wsd"));
+        assertEquals(expected, out.toString());
+
+        try {
+            exporter.export(workspace.getViews().getViewWithKey("SystemLandscape"), out);
+            fail();
+        } catch (IllegalArgumentException iae) {
+            assertEquals("Views of type SystemLandscapeView are not supported by this exporter.", iae.getMessage());
+        }
+    }
+
 }
\ No newline at end of file